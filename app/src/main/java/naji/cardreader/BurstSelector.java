@@ -0,0 +1,112 @@
+package naji.cardreader;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfDouble;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import naji.cardreader.DTOs.BurstFrame;
+import naji.cardreader.DTOs.CapturedImage;
+
+/**
+ * Scores The Photos Of a Burst Cheaply So The Expensive Alignment & OCR Only Run On The Best Looking One
+ * <p>
+ * a Single Photo Is Often Slightly Blurred Or Has Glare On It, Then The Whole Pipeline Fails & The User Has To Try Again.
+ * Each Photo Is Decoded At a Small Size & Scored By Its Sharpness (Variance Of The Laplacian),
+ * Its Exposure (How Few Pixels Are Clipped) & Whether a Card Quad Can Be Found In It.
+ */
+public class BurstSelector {
+    static final int BURST_SIZE = 3;
+    static final int SCORING_RESOLUTION = CardQuadDetector.WORKING_WIDTH;
+    static final int DARK_CLIPPING_LEVEL = 10;
+    static final int BRIGHT_CLIPPING_LEVEL = 245;
+
+    private final CardQuadDetector cardQuadDetector;
+
+    public BurstSelector(CardQuadDetector cardQuadDetector) {
+        this.cardQuadDetector = cardQuadDetector;
+    }
+
+    /**
+     * Scores Every Photo Of The Burst & Sorts Them, The Most Readable Looking Photo First
+     * <p>
+     * Photos Showing a Card Quad Always Come First, Then Sharper & Better Exposed Photos.
+     */
+    public List<BurstFrame> rank(List<BurstFrame> burstFrames) {
+        for (BurstFrame burstFrame : burstFrames) {
+            try {
+                score(burstFrame);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        List<BurstFrame> rankedFrames = new ArrayList<>(burstFrames);
+        rankedFrames.sort(Comparator.comparing((BurstFrame burstFrame) -> burstFrame.cardQuadFound)
+                .thenComparingDouble(burstFrame -> burstFrame.sharpness * burstFrame.exposure)
+                .reversed());
+        return rankedFrames;
+    }
+
+    /**
+     * Decodes The Photo At The Scoring Resolution & Fills In Its Scores
+     */
+    public void score(BurstFrame burstFrame) throws IOException {
+        //The Orientation Doesn't Change Any Of The Scores, So The Photo Isn't Rotated
+        CapturedImage capturedImage = ImageIntake.decodeImage(burstFrame.imageBytes, SCORING_RESOLUTION, 0);
+        Mat imageGray = new Mat();
+
+        try {
+            Imgproc.cvtColor(capturedImage.image, imageGray, Imgproc.COLOR_RGBA2GRAY);
+            burstFrame.sharpness = getSharpness(imageGray);
+            burstFrame.exposure = getExposure(imageGray);
+
+            MatOfPoint2f quad = cardQuadDetector.detectCardQuad(capturedImage.image);
+            burstFrame.cardQuadFound = quad != null;
+            if (quad != null)
+                quad.release();
+
+            System.out.println(String.format("Burst Frame Sharpness = %.2f, Exposure = %.2f, Card Quad = %s", burstFrame.sharpness, burstFrame.exposure, burstFrame.cardQuadFound));
+        } finally {
+            imageGray.release();
+            capturedImage.release();
+        }
+    }
+
+    /**
+     * The Variance Of The Laplacian, Blurred Images Have Weak Edges & So a Low Variance
+     */
+    public double getSharpness(Mat imageGray) {
+        Mat laplacian = new Mat();
+        MatOfDouble mean = new MatOfDouble();
+        MatOfDouble standardDeviation = new MatOfDouble();
+
+        Imgproc.Laplacian(imageGray, laplacian, CvType.CV_64F);
+        Core.meanStdDev(laplacian, mean, standardDeviation);
+        double deviation = standardDeviation.toArray()[0];
+
+        laplacian.release();
+        mean.release();
+        standardDeviation.release();
+        return deviation * deviation;
+    }
+
+    /**
+     * The Fraction Of Pixels Which Are Neither Crushed To Black Nor Blown Out (Glare), Between 0 & 1
+     */
+    public double getExposure(Mat imageGray) {
+        Mat wellExposed = new Mat();
+        Core.inRange(imageGray, new Scalar(DARK_CLIPPING_LEVEL), new Scalar(BRIGHT_CLIPPING_LEVEL), wellExposed);
+        double exposure = ((double) Core.countNonZero(wellExposed)) / imageGray.total();
+        wellExposed.release();
+        return exposure;
+    }
+}
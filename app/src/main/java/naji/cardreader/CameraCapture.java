@@ -0,0 +1,162 @@
+package naji.cardreader;
+
+import android.graphics.SurfaceTexture;
+import android.util.Size;
+import android.view.TextureView;
+import android.view.ViewGroup;
+
+import androidx.camera.core.CameraX;
+import androidx.camera.core.ImageCapture;
+import androidx.camera.core.ImageCaptureConfig;
+import androidx.camera.core.ImageProxy;
+import androidx.camera.core.Preview;
+import androidx.camera.core.PreviewConfig;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import naji.cardreader.DTOs.BurstFrame;
+
+/**
+ * Captures Photos Inside The App With CameraX, Straight Into Memory
+ * <p>
+ * Going Through The System Camera App Meant Writing Every Photo To The External Storage, Reading It Back
+ * & Deleting It Later. Here The Captured JPEG Stays In an In-Memory Image Buffer & Is Handed To The Pipeline Directly,
+ * At a Resolution That Is Enough For Alignment & For Re-Reading The Serial Number Region.
+ */
+public class CameraCapture {
+    static final Size TARGET_RESOLUTION = new Size(2560, 1920);
+
+    /**
+     * Called With The Encoded (JPEG) Photo & The Clockwise Rotation Needed To Make It Upright
+     */
+    interface OnCapturedListener {
+        void onCaptured(byte[] imageBytes, int rotationDegrees);
+
+        void onError(String message);
+    }
+
+    /**
+     * Called With All The Photos Of a Burst, In The Order They Were Taken
+     */
+    interface OnBurstCapturedListener {
+        void onBurstCaptured(List<BurstFrame> burstFrames);
+
+        void onError(String message);
+    }
+
+    private final Preview preview;
+    private final ImageCapture imageCapture;
+
+    public CameraCapture(TextureView previewView) {
+        PreviewConfig previewConfig = new PreviewConfig.Builder()
+                .setLensFacing(CameraX.LensFacing.BACK)
+                .build();
+        preview = new Preview(previewConfig);
+
+        //The TextureView Has To Be Re-Attached To Pick Up a New Surface
+        preview.setOnPreviewOutputUpdateListener(output -> {
+            ViewGroup parent = (ViewGroup) previewView.getParent();
+            int index = parent.indexOfChild(previewView);
+            parent.removeView(previewView);
+            parent.addView(previewView, index);
+            previewView.setSurfaceTexture(output.getSurfaceTexture());
+        });
+
+        ImageCaptureConfig imageCaptureConfig = new ImageCaptureConfig.Builder()
+                .setLensFacing(CameraX.LensFacing.BACK)
+                .setCaptureMode(ImageCapture.CaptureMode.MIN_LATENCY)
+                .setTargetResolution(TARGET_RESOLUTION)
+                .build();
+        imageCapture = new ImageCapture(imageCaptureConfig);
+    }
+
+    /**
+     * Counts Every Frame Shown In The Preview As an Arrived Frame, The Preview Gets Every Frame The Camera Delivers
+     */
+    public void setThroughputMeter(TextureView previewView, ThroughputMeter throughputMeter) {
+        previewView.setSurfaceTextureListener(new TextureView.SurfaceTextureListener() {
+            @Override
+            public void onSurfaceTextureAvailable(SurfaceTexture surfaceTexture, int width, int height) {
+            }
+
+            @Override
+            public void onSurfaceTextureSizeChanged(SurfaceTexture surfaceTexture, int width, int height) {
+            }
+
+            @Override
+            public boolean onSurfaceTextureDestroyed(SurfaceTexture surfaceTexture) {
+                return true;
+            }
+
+            @Override
+            public void onSurfaceTextureUpdated(SurfaceTexture surfaceTexture) {
+                throughputMeter.onFrameArrived();
+            }
+        });
+    }
+
+    /**
+     * Opens The Camera, It Is Closed & Reopened Automatically With The Lifecycle Of The Owner
+     */
+    public void start(LifecycleOwner lifecycleOwner) {
+        CameraX.bindToLifecycle(lifecycleOwner, preview, imageCapture);
+    }
+
+    /**
+     * Takes a Photo & Copies Its Encoded Bytes Out Of The Camera Buffer
+     */
+    public void capture(Executor executor, OnCapturedListener listener) {
+        imageCapture.takePicture(executor, new ImageCapture.OnImageCapturedListener() {
+            @Override
+            public void onCaptureSuccess(ImageProxy image, int rotationDegrees) {
+                byte[] imageBytes;
+                try {
+                    ByteBuffer buffer = image.getPlanes()[0].getBuffer();
+                    imageBytes = new byte[buffer.remaining()];
+                    buffer.get(imageBytes);
+                } finally {
+                    image.close();
+                }
+                listener.onCaptured(imageBytes, rotationDegrees);
+            }
+
+            @Override
+            public void onError(ImageCapture.ImageCaptureError imageCaptureError, String message, Throwable cause) {
+                listener.onError(message);
+            }
+        });
+    }
+
+    /**
+     * Takes Several Photos In Quick Succession, Each One Is Requested As Soon As The Previous One Arrives
+     */
+    public void captureBurst(Executor executor, int count, OnBurstCapturedListener listener) {
+        captureBurst(executor, count, new ArrayList<>(), listener);
+    }
+
+    private void captureBurst(Executor executor, int count, List<BurstFrame> burstFrames, OnBurstCapturedListener listener) {
+        capture(executor, new OnCapturedListener() {
+            @Override
+            public void onCaptured(byte[] imageBytes, int rotationDegrees) {
+                burstFrames.add(new BurstFrame(imageBytes, rotationDegrees));
+                if (burstFrames.size() < count)
+                    captureBurst(executor, count, burstFrames, listener);
+                else
+                    listener.onBurstCaptured(burstFrames);
+            }
+
+            @Override
+            public void onError(String message) {
+                //The Photos Taken So Far Are Still Worth Reading
+                if (burstFrames.isEmpty())
+                    listener.onError(message);
+                else
+                    listener.onBurstCaptured(burstFrames);
+            }
+        });
+    }
+}
@@ -1,30 +1,25 @@
 package naji.cardreader;
 
 import android.Manifest;
-import android.annotation.SuppressLint;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.content.res.Resources;
 import android.content.res.XmlResourceParser;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.graphics.Matrix;
-import android.media.ExifInterface;
-import android.net.Uri;
 import android.os.Bundle;
-import android.os.Environment;
-import android.provider.MediaStore;
 import android.util.Log;
+import android.view.TextureView;
 import android.view.View;
 import android.widget.Button;
 import android.widget.ImageView;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
-import androidx.core.content.FileProvider;
 
 
 import com.googlecode.tesseract.android.TessBaseAPI;
@@ -33,23 +28,9 @@ import org.opencv.android.BaseLoaderCallback;
 import org.opencv.android.LoaderCallbackInterface;
 import org.opencv.android.OpenCVLoader;
 import org.opencv.android.Utils;
-import org.opencv.calib3d.Calib3d;
-import org.opencv.core.CvType;
-import org.opencv.core.DMatch;
-import org.opencv.core.KeyPoint;
+import org.opencv.core.Core;
 import org.opencv.core.Mat;
-import org.opencv.core.MatOfDMatch;
-import org.opencv.core.MatOfKeyPoint;
-import org.opencv.core.MatOfPoint2f;
-import org.opencv.core.Point;
-import org.opencv.core.Rect;
-import org.opencv.core.Size;
-import org.opencv.features2d.DescriptorMatcher;
-import org.opencv.features2d.Feature2D;
-import org.opencv.features2d.ORB;
 import org.opencv.imgcodecs.Imgcodecs;
-import org.opencv.imgproc.Imgproc;
-import org.opencv.photo.Photo;
 import org.xmlpull.v1.XmlPullParser;
 
 import java.io.File;
@@ -57,27 +38,21 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Field;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.Comparator;
-import java.util.Date;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import naji.cardreader.DTOs.AlignedImage;
+import naji.cardreader.DTOs.BurstFrame;
+import naji.cardreader.DTOs.CapturedImage;
 import naji.cardreader.DTOs.ExtractedText;
 import naji.cardreader.DTOs.Template;
 import naji.cardreader.DTOs.TemplateInfo;
-import naji.cardreader.DTOs.TesseractAPI;
-
-import static org.opencv.imgproc.Imgproc.MORPH_CLOSE;
-import static org.opencv.imgproc.Imgproc.MORPH_OPEN;
-import static org.opencv.imgproc.Imgproc.THRESH_OTSU;
 
 /**
  * Main Activity For Capturing Card Images & OCRing Their Serial Numbers
@@ -96,7 +71,11 @@ import static org.opencv.imgproc.Imgproc.THRESH_OTSU;
  */
 public class CardReader extends AppCompatActivity {
     static final int REQUEST_CAMERA_PERMISSION_CODE = 1;
-    static final int REQUEST_TAKE_PHOTO_CODE = 2;
+    //Off By Default, Reading Preprocessing Variants In Parallel Costs Another Set Of Tesseract Models Per Worker
+    //Turned On Or Off With a Launch Extra (am start -n naji.cardreader/.CardReader --ez parallel_variants true), Which Is Remembered
+    static final String PARALLEL_VARIANTS_SETTING = "parallel_variants";
+    //Each Variant Worker Loads Its Own Tesseract Models, So There Are Only a Few Of Them
+    static final int VARIANT_WORKERS = 2;
 
     /**
      * Core
@@ -109,23 +88,39 @@ public class CardReader extends AppCompatActivity {
     ImageView imageView = null;
     ImageView serialNumberView = null;
     TextView textViewEnglish = null;
+    TextureView previewView = null;
+    ThroughputOverlay throughputOverlay = null;
     Button captureImageButton;
-    Uri imageFileURI;
+    Button scanButton;
+    Button burstButton;
+
+    /**
+     * Camera Related
+     */
+    CameraCapture cameraCapture;
+    LiveScanner liveScanner;
+    ThroughputMeter throughputMeter = new ThroughputMeter();
+    //Templates, The Tracker & Tesseract Aren't Thread Safe, So Every Pipeline Run (Captured Or Live) Goes Through This Single Thread
+    ExecutorService pipelineExecutor = Executors.newSingleThreadExecutor();
 
 
     /**
      * OpenCV Related
      */
-    Feature2D FEATURE_EXTRACTOR;
-    DescriptorMatcher MATCHER;
-    ArrayList<Template> TEMPLATES = new ArrayList<>();
+    TemplateRegistry TEMPLATE_REGISTRY;
+    TemplateLibrary TEMPLATE_LIBRARY;
+    CardRecognizer CARD_RECOGNIZER;
+    BurstSelector BURST_SELECTOR = new BurstSelector(new CardQuadDetector());
+    PipelineMetrics PIPELINE_METRICS = new PipelineMetrics();
     Map<String, TemplateInfo> TEMPLATE_INFORMATIONS = new HashMap<>();
 
 
     /**
      * Tesseract Related
      */
-    ArrayList<TesseractAPI> TESS_APIS = new ArrayList<>();
+    ArrayList<OcrEngine> OCR_ENGINES = new ArrayList<>();
+    List<List<OcrEngine>> VARIANT_OCR_ENGINES = new ArrayList<>();
+    ParallelVariantReader PARALLEL_VARIANT_READER;
 
     /**
      * Called After OpenCV Initialization is Successful
@@ -142,15 +137,6 @@ public class CardReader extends AppCompatActivity {
         }
     };
 
-    /**
-     * Pretty Self Explanatory!
-     */
-    public static Bitmap rotateImage(Bitmap source, float angle) {
-        Matrix matrix = new Matrix();
-        matrix.postRotate(angle);
-        return Bitmap.createBitmap(source, 0, 0, source.getWidth(), source.getHeight(), matrix, true);
-    }
-
     /**
      * Called After OpenCV Has Initialized and is Ready To Function
      */
@@ -164,8 +150,9 @@ public class CardReader extends AppCompatActivity {
         // Load The Serial Number Positions From XML
         readSerialNumberPositionsFromXML();
 
-        //Check Access Permissions
-        checkPermissions();
+        //Check Access Permissions, The Camera Is Opened Once We Have Them
+        if (checkPermissions())
+            startCamera();
 
         //Copy Tesseract Models From Raw Resources To System Storage
         try {
@@ -173,7 +160,7 @@ public class CardReader extends AppCompatActivity {
             initializeTesseractAPI("fas");
         } catch (Exception e) {
             e.printStackTrace();
-            if (TESS_APIS.size() <= 1) {
+            if (OCR_ENGINES.size() <= 1) {
                 System.out.println("One of the Models Could Not be Loaded... Exiting...");
                 finish();
             }
@@ -198,30 +185,90 @@ public class CardReader extends AppCompatActivity {
         getWindow().getDecorView().setLayoutDirection(View.LAYOUT_DIRECTION_RTL);
         setContentView(R.layout.activity_image_capturer);
         captureImageButton = this.findViewById(R.id.button);
+        scanButton = this.findViewById(R.id.scanButton);
+        burstButton = this.findViewById(R.id.burstButton);
         imageView = findViewById(R.id.imageView);
+        previewView = findViewById(R.id.previewView);
+        throughputOverlay = findViewById(R.id.throughputOverlay);
+        throughputOverlay.setThroughputMeter(throughputMeter);
         serialNumberView = findViewById(R.id.serialNumberView);
         textViewEnglish = findViewById(R.id.textViewEnglish);
         textViewEnglish.setText("");
 
         //On Clicking The `Capture` Button, Take The Picture & Send It For Text Extraction
-        captureImageButton.setOnClickListener(v -> {
-            try {
-                dispatchTakePictureIntent();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+        captureImageButton.setOnClickListener(v -> takePicture());
+
+        //On Clicking The `Scan` Button, Start (Or Stop) Reading The Live Camera Frames
+        scanButton.setOnClickListener(v -> toggleLiveScan());
+
+        //On Clicking The `Burst` Button, Take a Few Pictures & Read The Best Looking One
+        burstButton.setOnClickListener(v -> takeBurst());
+
+        //Long Clicking The Text Shows How Long Each Pipeline Stage Takes & Dumps The Metrics To a File
+        textViewEnglish.setOnLongClickListener(v -> {
+            showPipelineMetrics();
+            return true;
         });
+
+        //The Result Covers The Camera Preview, Tapping It Goes Back To The Preview
+        imageView.setOnClickListener(v -> imageView.setVisibility(View.GONE));
     }
 
     /**
-     * Checks Whether We Have Access To The Camera
+     * Checks Whether We Have Access To The Camera, Asks For It If We Don't
      */
-    public void checkPermissions() {
+    public boolean checkPermissions() {
         int permission = ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA);
 
         if (permission != PackageManager.PERMISSION_GRANTED) {
             ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.CAMERA}, REQUEST_CAMERA_PERMISSION_CODE);
+            return false;
         }
+        return true;
+    }
+
+    /**
+     * Opens The Camera Preview & Prepares The In-Memory Capture & The Live Scanner
+     */
+    public void startCamera() {
+        cameraCapture = new CameraCapture(previewView);
+        cameraCapture.setThroughputMeter(previewView, throughputMeter);
+        cameraCapture.start(this);
+        liveScanner = new LiveScanner(pipelineExecutor, throughputMeter, this::processFrame);
+    }
+
+    /**
+     * Starts Scanning The Live Frames, Or Stops It If It Is Already Running
+     */
+    public void toggleLiveScan() {
+        if (liveScanner == null) {
+            checkPermissions();
+            return;
+        }
+
+        if (liveScanner.isRunning()) {
+            stopLiveScan();
+        } else {
+            imageView.setVisibility(View.GONE);
+            throughputMeter.reset();
+            throughputOverlay.setVisibility(View.VISIBLE);
+            throughputOverlay.invalidate();
+
+            //a New Scan Shouldn't Continue The Track Or The Fusion Of The Previous One
+            pipelineExecutor.execute(() -> {
+                if (CARD_RECOGNIZER != null)
+                    CARD_RECOGNIZER.resetTracking();
+            });
+            liveScanner.start(this);
+        }
+    }
+
+    /**
+     * Stops Scanning The Live Frames & Hides The Throughput Overlay
+     */
+    public void stopLiveScan() {
+        liveScanner.stop();
+        throughputOverlay.setVisibility(View.GONE);
     }
 
     /**
@@ -234,6 +281,7 @@ public class CardReader extends AppCompatActivity {
                 Toast.makeText(this, "Permission has been denied by user.", Toast.LENGTH_LONG).show();
             } else {
                 Toast.makeText(this, "Permission has been granted by user.", Toast.LENGTH_LONG).show();
+                startCamera();
             }
         }
     }
@@ -244,6 +292,11 @@ public class CardReader extends AppCompatActivity {
     public void readSerialNumberPositionsFromXML() {
         try {
             XmlResourceParser parser = resources.getXml(R.xml.template_serial_number_positions);
+            TemplateInfo lastTemplateInfo = null;
+            //The Declared Pipeline Of The Last Template, Compiled Once Its Element Ends
+            List<Map<String, String>> pipelineSteps = new ArrayList<>();
+            List<Map<String, String>> pipelineOcrs = new ArrayList<>();
+            String pipelineFormat = null;
 
             while (parser.getEventType() != XmlPullParser.END_DOCUMENT) {
                 if (parser.getEventType() == XmlPullParser.START_TAG) {
@@ -262,15 +315,52 @@ public class CardReader extends AppCompatActivity {
 
                         TemplateInfo templateInfo = new TemplateInfo(templateName, templateXLeft, templateXRight, templateYTop, templateYBottom, sortedCharacterLenghts);
                         TEMPLATE_INFORMATIONS.put(templateName, templateInfo);
+                        lastTemplateInfo = templateInfo;
+                    } else if (parser.getName().equals("PreprocessingProfile") && lastTemplateInfo != null) {
+                        //Optional, Comes After The Fixed Elements Of The Template
+                        lastTemplateInfo.preprocessingProfile = TemplateRegistry.checkPreprocessingProfile(lastTemplateInfo.templateName, parser.nextText());
+                    } else if (parser.getName().equals("Pipeline") && lastTemplateInfo != null) {
+                        pipelineSteps = new ArrayList<>();
+                        pipelineOcrs = new ArrayList<>();
+                        pipelineFormat = null;
+                    } else if (parser.getName().equals("Step") && lastTemplateInfo != null) {
+                        pipelineSteps.add(readAttributes(parser));
+                    } else if (parser.getName().equals("Ocr") && lastTemplateInfo != null) {
+                        pipelineOcrs.add(readAttributes(parser));
+                    } else if (parser.getName().equals("Format") && lastTemplateInfo != null) {
+                        pipelineFormat = parser.nextText();
                     }
+                } else if (parser.getEventType() == XmlPullParser.END_TAG && parser.getName().equals("Pipeline") && lastTemplateInfo != null) {
+                    //a Broken Pipeline Fails The Loading, As It Does In The Tools
+                    lastTemplateInfo.serialNumberPipeline = SerialNumberPipeline.compile(lastTemplateInfo.templateName, pipelineSteps, pipelineOcrs, pipelineFormat);
                 }
                 parser.next();
             }
         } catch (Throwable t) {
+            //No Template Is Loaded From a Half Read File
+            releaseTemplateInformations();
             Toast.makeText(this, "Request failed: " + t.toString(), Toast.LENGTH_LONG).show();
         }
     }
 
+    public void releaseTemplateInformations() {
+        for (TemplateInfo templateInfo : TEMPLATE_INFORMATIONS.values()) {
+            if (templateInfo.serialNumberPipeline != null)
+                templateInfo.serialNumberPipeline.release();
+        }
+        TEMPLATE_INFORMATIONS.clear();
+    }
+
+    /**
+     * The Attributes Of The Current Start Tag
+     */
+    private static Map<String, String> readAttributes(XmlPullParser parser) {
+        Map<String, String> attributes = new HashMap<>();
+        for (int i = 0; i < parser.getAttributeCount(); i++)
+            attributes.put(parser.getAttributeName(i), parser.getAttributeValue(i));
+        return attributes;
+    }
+
     /**
      * Copy Tesseract Models From Raw Resources To System
      *
@@ -317,13 +407,50 @@ public class CardReader extends AppCompatActivity {
         System.out.println(String.format("'%s' Training File Loaded", modelName));
         tessBaseAPI.setPageSegMode(TessBaseAPI.PageSegMode.PSM_AUTO_OSD);
         tessBaseAPI.setPageSegMode(TessBaseAPI.PageSegMode.PSM_SINGLE_LINE);
-        if (modelName.contains("eng"))
-            tessBaseAPI.setVariable(TessBaseAPI.VAR_CHAR_WHITELIST, "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789");
-        else
-            tessBaseAPI.setVariable(TessBaseAPI.VAR_CHAR_WHITELIST, "0123456789٠١٢٣٤٥٦٧٨٩");
+        tessBaseAPI.setVariable(TessBaseAPI.VAR_CHAR_WHITELIST, TesseractSettings.getCharacterWhitelist(modelName));
 
 //        tessBaseAPI.setDebug(true);
-        TESS_APIS.add(new TesseractAPI(modelName, tessBaseAPI));
+        OCR_ENGINES.add(new TessTwoOcrEngine(modelName, tessBaseAPI, TesseractSettings.getCharacterWhitelist(modelName)));
+    }
+
+    /**
+     * Loads Another Set Of Tesseract Models For Every Variant Worker & Lets The Recognizer Read Preprocessing Variants In Parallel
+     * <p>
+     * Called After The Models Were Copied By {@link #initializeTesseractAPI(String)}, If They Can't Be Loaded The Variants Are Just Not Read.
+     */
+    public void initializeParallelVariantReader() {
+        String tesseractFolderPath = getExternalFilesDir("tesseract/tessdata/").getParent();
+        try {
+            for (int i = 0; i < VARIANT_WORKERS; i++) {
+                List<OcrEngine> ocrEngines = new ArrayList<>();
+                VARIANT_OCR_ENGINES.add(ocrEngines);
+                for (OcrEngine ocrEngine : OCR_ENGINES) {
+                    String modelName = ocrEngine.getName();
+                    TessBaseAPI tessBaseAPI = new TessBaseAPI();
+                    if (!tessBaseAPI.init(tesseractFolderPath, modelName))
+                        throw new Exception(String.format("'%s' Tesseract Model Could Not Be Loaded For a Variant Worker...", modelName));
+
+                    tessBaseAPI.setPageSegMode(TessBaseAPI.PageSegMode.PSM_SINGLE_LINE);
+                    tessBaseAPI.setVariable(TessBaseAPI.VAR_CHAR_WHITELIST, TesseractSettings.getCharacterWhitelist(modelName));
+                    ocrEngines.add(new TessTwoOcrEngine(modelName, tessBaseAPI, TesseractSettings.getCharacterWhitelist(modelName)));
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            releaseVariantOcrEngines();
+            return;
+        }
+
+        PARALLEL_VARIANT_READER = new ParallelVariantReader(VARIANT_OCR_ENGINES, Arrays.asList(ParallelVariantReader.DEFAULT_VARIANTS), PIPELINE_METRICS);
+        CARD_RECOGNIZER.setParallelVariantReader(PARALLEL_VARIANT_READER);
+    }
+
+    public void releaseVariantOcrEngines() {
+        for (List<OcrEngine> ocrEngines : VARIANT_OCR_ENGINES) {
+            for (OcrEngine ocrEngine : ocrEngines)
+                ocrEngine.release();
+        }
+        VARIANT_OCR_ENGINES.clear();
     }
 
     /**
@@ -331,24 +458,46 @@ public class CardReader extends AppCompatActivity {
      */
     public void loadTemplatesAndExtractFeatures() {
         try {
-//            FEATURE_EXTRACTOR = AKAZE.create(); // More Accurate But Slower
-            FEATURE_EXTRACTOR = ORB.create(); // Accurate Enough And Faster
-            MATCHER = DescriptorMatcher.create(DescriptorMatcher.BRUTEFORCE_HAMMING);
+            TEMPLATE_REGISTRY = new TemplateRegistry();
 
             Field[] fields = R.raw.class.getFields();
             for (Field field : fields) {
                 if (field.getName().contains("template_card")) {
                     int templateCardID = field.getInt(field);
+                    //Templates Without Info (Missing, Or The XML Failed To Load) Can't Be Read, So They Aren't Loaded
+                    if (!TEMPLATE_INFORMATIONS.containsKey(field.getName())) {
+                        System.out.println(String.format("No Template Info For '%s', Skipped", field.getName()));
+                        continue;
+                    }
 
-                    Template template = loadTemplateAndExtractFeature(templateCardID);
-                    TEMPLATES.add(template);
+                    loadTemplateAndExtractFeature(templateCardID);
                 }
             }
+
+            CARD_RECOGNIZER = new CardRecognizer(TEMPLATE_REGISTRY, OCR_ENGINES, PIPELINE_METRICS);
+            if (isParallelVariantsEnabled())
+                initializeParallelVariantReader();
+
+            //Template Packs Copied Into The App's Files Are Picked Up While Running, Without Rebuilding The App
+            TEMPLATE_LIBRARY = new TemplateLibrary(TEMPLATE_REGISTRY, getExternalFilesDir("templates"));
+            CARD_RECOGNIZER.setTemplateLibrary(TEMPLATE_LIBRARY);
+            TEMPLATE_LIBRARY.startWatching(TemplateLibrary.DEFAULT_POLL_MILLIS);
         } catch (IOException | IllegalAccessException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Whether Preprocessing Variants Are Read In Parallel, a Launch Extra Replaces The Remembered Setting
+     */
+    boolean isParallelVariantsEnabled() {
+        SharedPreferences preferences = getPreferences(MODE_PRIVATE);
+        Intent intent = getIntent();
+        if (intent != null && intent.hasExtra(PARALLEL_VARIANTS_SETTING))
+            preferences.edit().putBoolean(PARALLEL_VARIANTS_SETTING, intent.getBooleanExtra(PARALLEL_VARIANTS_SETTING, false)).apply();
+        return preferences.getBoolean(PARALLEL_VARIANTS_SETTING, false);
+    }
+
     /**
      * Loads a Card (Called Templates) By Its Resource ID
      *
@@ -360,57 +509,49 @@ public class CardReader extends AppCompatActivity {
         TemplateInfo templateInfo = TEMPLATE_INFORMATIONS.get(templateName);
 
         Mat template = Utils.loadResource(this, templateID, Imgcodecs.IMREAD_COLOR);
-        Mat templateGray = new Mat(template.height(), template.width(), CvType.CV_8UC1);
-        Imgproc.cvtColor(template, templateGray, Imgproc.COLOR_BGR2GRAY);
-        MatOfKeyPoint templateKeypoints = new MatOfKeyPoint();
-        Mat templateDescriptors = new Mat();
-        FEATURE_EXTRACTOR.detectAndCompute(templateGray, new Mat(), templateKeypoints, templateDescriptors, false);
-
-        return new Template(templateID, templateName, templateInfo, template, templateKeypoints, templateDescriptors);
+        //Only The Descriptors Stay Resident, The Pixels Are Decoded From The Resource Again When Needed
+        return TEMPLATE_REGISTRY.addTemplate(templateID, templateName, templateInfo, template,
+                () -> Utils.loadResource(getApplicationContext(), templateID, Imgcodecs.IMREAD_COLOR));
     }
 
     /**
-     * If You Want To Cache The Models For Later Use, Then Modify This Code To Not Delete Temp Files
+     * Gives The Cached Template Pixels Back When The System Runs Low On Memory
      */
     @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        destroyOpenCVResources();
-        if (!isChangingConfigurations()) {
-            deleteTempFiles(getExternalFilesDir(Environment.DIRECTORY_PICTURES));
-        }
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (TEMPLATE_REGISTRY != null)
+            TEMPLATE_REGISTRY.trimMemory(level);
     }
 
-    /**
-     * Deletes The Temporary Images Stored On Storage
-     */
-    public void deleteTempFiles(File file) {
-        if (file != null) {
-            if (file.isDirectory()) {
-                File[] files = file.listFiles();
-                if (files != null) {
-                    for (File f : files) {
-                        if (f.isDirectory()) {
-                            deleteTempFiles(f);
-                        } else {
-                            f.delete();
-                        }
-                    }
-                }
-            }
-            file.delete();
-        }
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (liveScanner != null)
+            liveScanner.stop();
+
+        //Queued Behind Whatever The Pipeline Is Still Doing, So Nothing Is Released While In Use
+        pipelineExecutor.execute(() -> {
+            destroyOpenCVResources();
+            if (liveScanner != null)
+                liveScanner.release();
+        });
+        pipelineExecutor.shutdown();
     }
 
     /**
      * Destroys OpenCV Resources To Prevent Memory Overflow
      */
     public void destroyOpenCVResources() {
-        for (Template template : TEMPLATES) {
-            template.template.release();
-            template.templateDescriptors.release();
-            template.templateKeypoints.release();
-        }
+        if (CARD_RECOGNIZER != null)
+            CARD_RECOGNIZER.release();
+        if (PARALLEL_VARIANT_READER != null)
+            PARALLEL_VARIANT_READER.release();
+        releaseVariantOcrEngines();
+        if (TEMPLATE_LIBRARY != null)
+            TEMPLATE_LIBRARY.release();
+        if (TEMPLATE_REGISTRY != null)
+            TEMPLATE_REGISTRY.release();
     }
 
     @Override
@@ -419,356 +560,280 @@ public class CardReader extends AppCompatActivity {
     }
 
     /**
-     * Initializes an Intent For Taking Pictures
+     * Takes a Picture With The In-App Camera & Sends It For Text Extraction, The Picture Never Touches The Storage
      */
-    public void dispatchTakePictureIntent() throws IOException {
-        Intent captureImageIntent = new Intent(MediaStore.ACTION_IMAGE_CAPTURE);
-
-        // Ensure That There's a Camera Activity to Handle The Intent
-        if (captureImageIntent.resolveActivity(getPackageManager()) != null) {
-            // Create the File Where The Photo Should Go
-            File imageFile = createImageFile();
-            imageFileURI = FileProvider.getUriForFile(Objects.requireNonNull(getApplicationContext()), BuildConfig.APPLICATION_ID + ".fileprovider", imageFile);
-            captureImageIntent.putExtra(MediaStore.EXTRA_OUTPUT, imageFileURI);
-            startActivityForResult(captureImageIntent, REQUEST_TAKE_PHOTO_CODE);
+    public void takePicture() {
+        if (cameraCapture == null) {
+            checkPermissions();
+            return;
         }
+
+        cameraCapture.capture(pipelineExecutor, new CameraCapture.OnCapturedListener() {
+            @Override
+            public void onCaptured(byte[] imageBytes, int rotationDegrees) {
+                processCapturedImage(imageBytes, rotationDegrees);
+            }
+
+            @Override
+            public void onError(String message) {
+                runOnUiThread(() -> Toast.makeText(CardReader.this, "Request failed: " + message, Toast.LENGTH_LONG).show());
+            }
+        });
     }
 
     /**
-     * Create a Temporary Image File To Be Processed
+     * Takes a Burst Of Pictures, Only The Best Looking One Goes Through The Whole Pipeline
      */
-    public File createImageFile() throws IOException {
-        String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
-        String imageFileName = "NajiCardReader_" + timeStamp;
-        File storageDir = getExternalFilesDir(Environment.DIRECTORY_PICTURES);
-        File image = File.createTempFile(
-                imageFileName,  /* prefix */
-                ".jpg",         /* suffix */
-                storageDir      /* directory */
-        );
-        if (storageDir != null) {
-            Toast.makeText(this, String.format("Images Are Stored in: '%s'", storageDir.toString()), Toast.LENGTH_SHORT).show();
+    public void takeBurst() {
+        if (cameraCapture == null) {
+            checkPermissions();
+            return;
         }
-        return image;
+
+        cameraCapture.captureBurst(pipelineExecutor, BurstSelector.BURST_SIZE, new CameraCapture.OnBurstCapturedListener() {
+            @Override
+            public void onBurstCaptured(List<BurstFrame> burstFrames) {
+                processBurst(burstFrames);
+            }
+
+            @Override
+            public void onError(String message) {
+                runOnUiThread(() -> Toast.makeText(CardReader.this, "Request failed: " + message, Toast.LENGTH_LONG).show());
+            }
+        });
     }
 
     /**
-     * Called When a Captured Image Is Ready To Be Processed
+     * Reads The Photos Of a Burst From The Best Looking To The Worst, Stopping At The First One Whose Serial Number Could Be Read
      */
-    @Override
-    protected void onActivityResult(int requestCode, int resultCode, Intent data) {
-        super.onActivityResult(requestCode, resultCode, data);
-
-        if (requestCode == REQUEST_TAKE_PHOTO_CODE) {
-            try (InputStream inputStream = getContentResolver().openInputStream(imageFileURI)) {
-                Bitmap photo = BitmapFactory.decodeStream(getContentResolver().openInputStream(imageFileURI));
-
-                ExifInterface exifInterface = new ExifInterface(inputStream);
-                int orientation = exifInterface.getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_UNDEFINED);
+    public void processBurst(List<BurstFrame> burstFrames) {
+        List<BurstFrame> rankedFrames = BURST_SELECTOR.rank(burstFrames);
+        CapturedImage bestCapturedImage = null;
 
-                Bitmap rotatedBitmap;
-                switch (orientation) {
-
-                    case ExifInterface.ORIENTATION_ROTATE_90:
-                        rotatedBitmap = rotateImage(photo, 90);
-                        break;
-
-                    case ExifInterface.ORIENTATION_ROTATE_180:
-                        rotatedBitmap = rotateImage(photo, 180);
-                        break;
-
-                    case ExifInterface.ORIENTATION_ROTATE_270:
-                        rotatedBitmap = rotateImage(photo, 270);
-                        break;
+        try {
+            for (BurstFrame burstFrame : rankedFrames) {
+                CapturedImage capturedImage;
+                try {
+                    long decodeStart = PIPELINE_METRICS.start();
+                    capturedImage = ImageIntake.decodeImage(burstFrame.imageBytes, getWorkingResolution(), burstFrame.rotationDegrees);
+                    PIPELINE_METRICS.record(PipelineMetrics.DECODE, null, decodeStart);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    continue;
+                }
+                ExtractedText extractedText = null;
+                try {
+                    extractedText = readCapturedImage(capturedImage);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
 
-                    case ExifInterface.ORIENTATION_NORMAL:
-                    default:
-                        rotatedBitmap = photo;
+                if (extractedText != null) {
+                    try {
+                        showExtractedText(extractedText);
+                    } finally {
+                        extractedText.alignedImage.release();
+                        capturedImage.release();
+                    }
+                    return;
                 }
 
-                processBitmapImage(rotatedBitmap);
-            } catch (IOException e) {
-                e.printStackTrace();
+                //If Nothing Can Be Read, The Best Looking Photo Is Shown
+                if (bestCapturedImage == null)
+                    bestCapturedImage = capturedImage;
+                else
+                    capturedImage.release();
             }
+
+            if (bestCapturedImage != null)
+                showResult(bestCapturedImage.image, null, "");
+        } finally {
+            if (bestCapturedImage != null)
+                bestCapturedImage.release();
         }
     }
 
     /**
-     * Given a Bitmap Image, It OCRs The Image & Finds The Serial Number Inside (If It Exists)
+     * Called When a Captured Image Is Ready To Be Processed
      */
-    public void processBitmapImage(Bitmap cameraImageBitmap) {
-        Mat cameraImage = new Mat();
-
+    public void processCapturedImage(byte[] imageBytes, int rotationDegrees) {
+        CapturedImage capturedImage = null;
         try {
-            Bitmap cameraImageBitmapCopy = cameraImageBitmap.copy(Bitmap.Config.ARGB_8888, true);
-            Utils.bitmapToMat(cameraImageBitmapCopy, cameraImage);
-
-            // Get The Best Aligned Image By Templates Possible
-            List<AlignedImage> alignedImages = alignImageWithTemplates(cameraImage);
+            long decodeStart = PIPELINE_METRICS.start();
+            capturedImage = ImageIntake.decodeImage(imageBytes, getWorkingResolution(), rotationDegrees);
+            PIPELINE_METRICS.record(PipelineMetrics.DECODE, null, decodeStart);
 
-            ExtractedText extractedText = null;
-            if (alignedImages.size() > 0)
-                extractedText = extractSerialNumberFromAlignedImages(alignedImages);
-
-            //Show The Aligned Image On The Screen
-            if (extractedText != null) {
-                Bitmap alignedImageBitmap = Bitmap.createBitmap(extractedText.alignedImage.image.width(), extractedText.alignedImage.image.height(), Bitmap.Config.ARGB_8888);
-                Utils.matToBitmap(extractedText.alignedImage.image, alignedImageBitmap);
-                this.imageView.setImageBitmap(alignedImageBitmap);
-                this.serialNumberView.setImageBitmap(extractedText.alignedImage.serialNumberBitmap);
-                this.textViewEnglish.setText("شماره کارت: " + extractedText.text);
-            } else {
-                this.imageView.setImageBitmap(cameraImageBitmap);
-                this.serialNumberView.setImageBitmap(null);
-                this.textViewEnglish.setText("");
-            }
-        } catch (Exception e) {
+            processCapturedImage(capturedImage);
+        } catch (IOException e) {
             e.printStackTrace();
         } finally {
-            cameraImage.release();
+            if (capturedImage != null)
+                capturedImage.release();
         }
     }
 
     /**
-     * Given a List of Aligned Images, Extracts Serial Number From Them And Tries To Find The Most Correct Text From Them, If Not, Returns Null
+     * The Longer Side (In Pixels) Captured Images Are Decoded At, Based On The Widest Template
      */
-    public ExtractedText extractSerialNumberFromAlignedImages(List<AlignedImage> alignedImages) {
-        List<ExtractedText> extractedTexts = new ArrayList<>();
-        for (AlignedImage alignedImage : alignedImages) {
-            List<ExtractedText> extractedText = extractSerialNumberFromAlignedImage(alignedImage);
-            extractedTexts.addAll(extractedText);
-        }
+    public int getWorkingResolution() {
+        return CARD_RECOGNIZER.getTemplateRegistry().getMaxTemplateWidth() * ImageIntake.WORKING_RESOLUTION_FACTOR;
+    }
 
-        //Choose The Best Extracted Text Based On Text Length & Confidence
-        ExtractedText bestExtractedText = null;
-        if (extractedTexts.size() > 0) {
-            Collections.sort(extractedTexts, (t1, t2) -> t2.confidence - t1.confidence);
+    /**
+     * Given a Captured Photo, It OCRs The Photo & Finds The Serial Number Inside (If It Exists)
+     * <p>
+     * The Card Is Aligned On The Working Resolution Image, But The Serial Number Areas Are Read Again From The Original Photo At Full Resolution.
+     */
+    public void processCapturedImage(CapturedImage capturedImage) {
+        try {
+            ExtractedText extractedText = readCapturedImage(capturedImage);
 
-            bestExtractedText = extractedTexts.stream()
-                    .filter(x -> x.text.length() >= 10)
-                    .max(Comparator.comparingInt(x -> x.confidence))
-                    .orElse(null);
+            //Show The Aligned Image On The Screen, The Bitmaps Are Made Right Away So It Can Be Released Afterwards
+            if (extractedText != null) {
+                try {
+                    showExtractedText(extractedText);
+                } finally {
+                    extractedText.alignedImage.release();
+                }
+            } else {
+                showResult(capturedImage.image, null, "");
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
         }
-
-        return bestExtractedText;
     }
 
     /**
-     * Aligns an Image With All of The Templates We Have
+     * Aligns The Captured Image, Re-Reads Its Serial Number Areas At Full Resolution & OCRs Them
+     *
+     * @return The Best Extracted Text, Or Null If No Serial Number Could Be Read. The Aligned Images Which Didn't Win Are Released,
+     * The Winning One Is Left To The Caller
      */
-    public List<AlignedImage> alignImageWithTemplates(Mat image) {
-        List<AlignedImage> alignedImages = new ArrayList<>();
-
-        for (Template template : TEMPLATES) {
-            AlignedImage alignedImage = alignImageWithTemplate(image, template);
-
-            //Crop The Serial Number Area From The Aligned Image & Add It To The Object
-            if (alignedImage != null)
-                alignedImage.serialNumberBitmap = cropSerialNumberArea(alignedImage);
-            alignedImages.add(alignedImage);
+    public ExtractedText readCapturedImage(CapturedImage capturedImage) {
+        CARD_RECOGNIZER.refreshTemplates();
+        long totalStart = PIPELINE_METRICS.start();
+
+        // Get The Best Aligned Image By Templates Possible
+        List<AlignedImage> alignedImages = CARD_RECOGNIZER.alignImageWithTemplates(capturedImage.image, false);
+        ExtractedText extractedText = readAlignedImages(capturedImage, alignedImages);
+
+        //a Quad Which Looked Like The Card But Gave No Serial Number Falls Back To The Features
+        if (extractedText == null && CardRecognizer.isCardQuadAlignment(alignedImages)) {
+            long fallbackStart = PIPELINE_METRICS.start();
+            extractedText = readAlignedImages(capturedImage, CARD_RECOGNIZER.alignImageWithFeatures(capturedImage.image, false));
+            PIPELINE_METRICS.record(PipelineMetrics.QUAD_FALLBACK, alignedImages.get(0).templateName, fallbackStart);
         }
 
-        return alignedImages;
+        PIPELINE_METRICS.record(PipelineMetrics.TOTAL, extractedText == null ? null : extractedText.alignedImage.templateName, totalStart);
+        return extractedText;
     }
 
-
     /**
-     * Given an Image, It Aligns The Image With a Template (Needed For Extracting The Serial Number Region)
+     * Re-Reads The Serial Number Areas Of The Aligned Images At Full Resolution & OCRs Them, Only The Winning Aligned Image Is Kept
      */
-    @SuppressLint("DefaultLocale")
-    public AlignedImage alignImageWithTemplate(Mat image, Template template) {
-        Mat imageGray = new Mat();
-        Imgproc.cvtColor(image, imageGray, Imgproc.COLOR_BGR2GRAY);
-
-        int image_width = image.width();
-        float scale = ((float) template.template.width()) / image_width;
-        Imgproc.resize(image, image, new Size(), scale, scale);
-        Imgproc.resize(imageGray, imageGray, new Size(), scale, scale);
-
-        MatOfKeyPoint imageKeypoints = new MatOfKeyPoint();
-        Mat imageDescriptors = new Mat();
-        MatOfDMatch matches = new MatOfDMatch();
-
+    private ExtractedText readAlignedImages(CapturedImage capturedImage, List<AlignedImage> alignedImages) {
+        ExtractedText extractedText = null;
         try {
-            //Detecting Image Features
-            FEATURE_EXTRACTOR.detectAndCompute(imageGray, new Mat(), imageKeypoints, imageDescriptors, false);
-
-            //Matching Features From Template To Image
-            MATCHER.match(template.templateDescriptors, imageDescriptors, matches);
-            List<DMatch> matchesList = matches.toList();
-
-            double max_dist = 0.0;
-            double min_dist = 100.0;
-
-            for (int i = 0; i < matchesList.size(); i++) {
-                double dist = (double) matchesList.get(i).distance;
-                if (dist < min_dist)
-                    min_dist = dist;
-                if (dist > max_dist)
-                    max_dist = dist;
-            }
-
-            LinkedList<DMatch> goodMatchesList = new LinkedList<DMatch>();
-            for (int i = 0; i < matchesList.size(); i++) {
-                if (matchesList.get(i).distance < (3 * min_dist)) {
-                    goodMatchesList.addLast(matchesList.get(i));
-                }
+            for (AlignedImage alignedImage : alignedImages) {
+                if (alignedImage != null)
+                    alignedImage.serialNumberImage = cropFullResolutionSerialNumberArea(capturedImage, alignedImage);
             }
 
-            if (goodMatchesList.size() > 0) {
-                MatOfDMatch goodMatchesMat = new MatOfDMatch();
-                goodMatchesMat.fromList(goodMatchesList);
-
-                LinkedList<Point> templateList = new LinkedList<>();
-                LinkedList<Point> imageList = new LinkedList<>();
-
-                List<KeyPoint> templateKeypointsList = template.templateKeypoints.toList();
-                List<KeyPoint> imageKeypointsList = imageKeypoints.toList();
-
-                for (int i = 0; i < goodMatchesList.size(); i++) {
-                    templateList.addLast(templateKeypointsList.get(goodMatchesList.get(i).queryIdx).pt);
-                    imageList.addLast(imageKeypointsList.get(goodMatchesList.get(i).trainIdx).pt);
-                }
-
-                MatOfPoint2f templatePoints = new MatOfPoint2f();
-                templatePoints.fromList(templateList);
-
-                MatOfPoint2f imagePoints = new MatOfPoint2f();
-                imagePoints.fromList(imageList);
-
-                Mat homography = Calib3d.findHomography(imagePoints, templatePoints, Calib3d.RANSAC);
-                double[] homographyProperties = getHomographyProperties(homography);
-                boolean niceHomography = determineNiceHomography(homographyProperties);
-                double determinant = homographyProperties[0];
-                System.out.println(String.format("%s Homography, Determinant = %.2f", niceHomography ? "Nice" : "Bad", determinant));
-
-                Mat outputMat = new Mat();
-                Imgproc.warpPerspective(image, outputMat, homography, new Size(template.template.width(), template.template.height()));
-                Imgproc.resize(outputMat, outputMat, new Size(template.template.width(), template.template.height()));
-                System.out.println(String.format("Width %s, Height %s ", outputMat.width(), outputMat.height()));
-
-                return new AlignedImage(outputMat, niceHomography, determinant, template.templateResourceId, template.templateResourceName);
-            } else {
-                return null;
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-            return null;
+            if (alignedImages.size() > 0)
+                extractedText = CARD_RECOGNIZER.extractSerialNumberFromAlignedImages(alignedImages);
         } finally {
-            imageKeypoints.release();
-            imageDescriptors.release();
-            matches.release();
-            imageGray.release();
+            for (AlignedImage alignedImage : alignedImages) {
+                if (alignedImage != null && (extractedText == null || alignedImage != extractedText.alignedImage))
+                    alignedImage.release();
+            }
         }
+        return extractedText;
     }
 
     /**
-     * Extracts The Properties Of The Homography Matrix Including The Determinant
+     * Called On The Pipeline Thread For Every Analyzed Live Frame, Stops The Scan Once a Serial Number Is Read
      */
-    public double[] getHomographyProperties(Mat homography) {
-        double determinant = homography.get(0, 0)[0] * homography.get(1, 1)[0] - homography.get(1, 0)[0] * homography.get(0, 1)[0];
-        System.out.println(String.format("The Determinant Is => %.2f", determinant));
+    public void processFrame(Mat frame, long frameTimestamp) {
+        if (CARD_RECOGNIZER == null || !liveScanner.isRunning())
+            return;
 
-        double N1 = Math.sqrt(homography.get(0, 0)[0] * homography.get(0, 0)[0] + homography.get(1, 0)[0] * homography.get(1, 0)[0]);
-        double N2 = Math.sqrt(homography.get(0, 1)[0] * homography.get(0, 1)[0] + homography.get(1, 1)[0] * homography.get(1, 1)[0]);
-        double N3 = Math.sqrt(homography.get(2, 0)[0] * homography.get(2, 0)[0] + homography.get(2, 1)[0] * homography.get(2, 1)[0]);
+        ExtractedText extractedText = CARD_RECOGNIZER.extractSerialNumberFromFrame(frame, frameTimestamp);
+        if (extractedText == null)
+            return;
 
-        return new double[]{determinant, N1, N2, N3};
+        runOnUiThread(this::stopLiveScan);
+        showExtractedText(extractedText);
+        extractedText.alignedImage.release();
     }
 
     /**
-     * Property of an affine (and projective?) transformation:
-     * If the determinant of the top-left 2x2 matrix is > 0 the transformation is orientation-preserving.
-     * Else if the determinant is < 0, it is orientation-reversing.
+     * Shows The Aligned Image, The Serial Number Area & The Text Of The Extracted Text
      */
-    public boolean determineNiceHomography(double[] homographyProperties) {
-        double determinant = homographyProperties[0];
-        double N1 = homographyProperties[1];
-        double N2 = homographyProperties[2];
-        double N3 = homographyProperties[3];
-
-        if (determinant < 0)
-            return false;
-
-        if (N1 > 4 || N1 < 0.1)
-            return false;
-
-        if (N2 > 4 || N2 < 0.1)
-            return false;
-
-        if (N3 > 0.002)
-            return false;
-
-        return true;
+    public void showExtractedText(ExtractedText extractedText) {
+        showResult(extractedText.alignedImage.image, toBitmap(extractedText.alignedImage.serialNumberImage), "شماره کارت: " + extractedText.text);
     }
 
     /**
-     * Crops The Given Image To Get The Serial Number Area. Each Template (Card) Has Its Own Hard Coded Serial Number Positions
+     * Shows a Result On The Screen, The Bitmap Is Made On The Calling (Pipeline) Thread & Only The Views Are Set On The UI Thread
      */
-    public Bitmap cropSerialNumberArea(AlignedImage alignedImage) {
-        int XLeft, XRight, YTop, YBottom, distanceX, distanceY;
-        Rect rectCrop;
-
-        TemplateInfo templateInfo = TEMPLATE_INFORMATIONS.get(alignedImage.templateName);
-
-        XLeft = templateInfo.XLeft;
-        XRight = templateInfo.XRight;
-        YTop = templateInfo.YTop;
-        YBottom = templateInfo.YBottom;
-        distanceX = XRight - XLeft;
-        distanceY = YBottom - YTop;
-        rectCrop = new Rect(XLeft, YTop, distanceX, distanceY);
-
-        Mat submat = alignedImage.image.submat(rectCrop);
-
-        Photo.detailEnhance(submat, submat, 10, (float) 0.15);
-
-        Imgproc.cvtColor(submat, submat, Imgproc.COLOR_BGR2GRAY);
-        Imgproc.threshold(submat, submat, 128, 255, THRESH_OTSU);
-        Imgproc.resize(submat, submat, new Size(), 2, 2);
-
-        Imgproc.medianBlur(submat, submat, 3);
-        Imgproc.morphologyEx(submat, submat, MORPH_CLOSE, Mat.ones(3, 3, CvType.CV_32F));
-        Imgproc.morphologyEx(submat, submat, MORPH_OPEN, Mat.ones(3, 3, CvType.CV_32F));
-
-        Bitmap serialNumberBitmap;
-        serialNumberBitmap = Bitmap.createBitmap(submat.width(), submat.height(), Bitmap.Config.ARGB_8888);
-        Utils.matToBitmap(submat, serialNumberBitmap);
-
-        return serialNumberBitmap;
+    public void showResult(Mat image, Bitmap serialNumberBitmap, String text) {
+        Bitmap imageBitmap = toBitmap(image);
+
+        runOnUiThread(() -> {
+            this.imageView.setImageBitmap(imageBitmap);
+            this.imageView.setVisibility(View.VISIBLE);
+            this.serialNumberView.setImageBitmap(serialNumberBitmap);
+            this.textViewEnglish.setText(text);
+        });
     }
 
     /**
-     * Given a Bitmap Image, It OCRs The Image And Extract Distinguishable Numbers (or Text) From It
+     * Shows The Latency Percentiles Of The Pipeline Stages & Writes Them As JSON Next To The Tesseract Models
      */
-    public ArrayList<ExtractedText> extractSerialNumberFromAlignedImage(AlignedImage alignedImage) {
-        //If a SerialNumberImage Was Found Then Prepare To Show It On Page Or Else Show The Whole Image
-        String extractedText;
-        ArrayList<ExtractedText> extractedTexts = new ArrayList<>();
-
-        for (TesseractAPI tessAPI : TESS_APIS) {
-            try {
-                tessAPI.api.setImage(alignedImage.serialNumberBitmap);
-                extractedText = tessAPI.api.getUTF8Text();
-                int confidence = tessAPI.api.meanConfidence();
+    public void showPipelineMetrics() {
+        String summary = PIPELINE_METRICS.summarize();
+        try {
+            File metricsFile = new File(getExternalFilesDir("metrics"), "pipeline_metrics.json");
+            PIPELINE_METRICS.dump(metricsFile);
+            System.out.println(String.format("Pipeline Metrics Written To %s", metricsFile));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
 
-                TemplateInfo templateInfo = TEMPLATE_INFORMATIONS.get(alignedImage.templateName);
+        new AlertDialog.Builder(this)
+                .setMessage(summary.isEmpty() ? "No Scans Yet." : summary)
+                .setPositiveButton(android.R.string.ok, null)
+                .show();
+    }
 
-                // Cleaning Up Extracted Texts Based On the XML Information
-                extractedText = extractedText.replace(" ", "");
-                for (int characterLength : templateInfo.characterLengths) {
-                    int extractedTextLength = extractedText.length();
-                    if (!Arrays.stream(templateInfo.characterLengths).anyMatch(i -> i == extractedTextLength)) {
-                        extractedText = extractedText.substring(0, Math.min(extractedText.length(), characterLength));
-                    }
-                }
+    /**
+     * Crops The Serial Number Area From The Original Photo At Full Resolution, Falls Back To The Aligned Image If The Region Can't Be Decoded
+     */
+    public Mat cropFullResolutionSerialNumberArea(CapturedImage capturedImage, AlignedImage alignedImage) {
+        TemplateInfo templateInfo = CARD_RECOGNIZER.getTemplateRegistry().getTemplateInfo(alignedImage.templateName);
 
-                extractedTexts.add(new ExtractedText(tessAPI.apiName, extractedText, confidence, alignedImage));
-            } catch (Exception e) {
-                System.out.println("Error in Recognizing Text.");
-            }
+        try {
+            Mat serialNumberArea = ImageIntake.decodeSerialNumberRegion(capturedImage, alignedImage.homography, CARD_RECOGNIZER.getSerialNumberRect(templateInfo));
+            long preprocessStart = PIPELINE_METRICS.start();
+            Mat serialNumberImage = CARD_RECOGNIZER.preprocessSerialNumberArea(serialNumberArea, 1, templateInfo);
+            PIPELINE_METRICS.record(PipelineMetrics.PREPROCESS, alignedImage.templateName, preprocessStart);
+
+            //Kept For Preprocessing Variants, It Is Already At Full Resolution So It Isn't Upscaled Again
+            alignedImage.serialNumberArea = serialNumberArea;
+            alignedImage.serialNumberResizeFactor = 1;
+            return serialNumberImage;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return CARD_RECOGNIZER.cropSerialNumberArea(alignedImage);
         }
-        return extractedTexts;
     }
 
-}
\ No newline at end of file
+    /**
+     * Converts a Mat Into a Bitmap To Be Shown On The Screen
+     */
+    public Bitmap toBitmap(Mat image) {
+        Bitmap bitmap = Bitmap.createBitmap(image.width(), image.height(), Bitmap.Config.ARGB_8888);
+        Utils.matToBitmap(image, bitmap);
+        return bitmap;
+    }
+}
@@ -0,0 +1,259 @@
+package naji.cardreader;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.media.ExifInterface;
+
+import org.opencv.android.Utils;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import naji.cardreader.DTOs.CapturedImage;
+
+/**
+ * Reads Captured Photos At a Resolution Close To What The Pipeline Actually Needs
+ * <p>
+ * Camera Photos Are 12 To 50 Mega Pixels, But The Card Is Warped Into a Template Which Is About a Thousand Pixels Wide.
+ * Decoding The Full Photo Only To Shrink It Later Wastes Most Of The Decoding Time & Memory,
+ * So We Read The Image Bounds First & Let The JPEG Decoder Reduce The Pixels While Decoding.
+ * <p>
+ * The Photo Is Kept In a Single Encoded Buffer, Which Serves The EXIF Orientation & The Pixels,
+ * Which Are Decoded Straight Into a Mat & Rotated There (No Intermediate Bitmaps).
+ * <p>
+ * Alignment Is Happy With The Reduced Image, But OCR Benefits From Every Sensor Pixel, So Once The Card Is Aligned
+ * Only The Serial Number Region Of The Original Photo Is Decoded At Full Resolution.
+ */
+public class ImageIntake {
+    /**
+     * The Decoded Image Is Kept This Many Times Bigger Than The Template, To Leave Room For Perspective & Cards Not Filling The Photo
+     */
+    static final int WORKING_RESOLUTION_FACTOR = 2;
+
+    /**
+     * The JPEG Decoder Can Only Reduce The Image By These Factors While Decoding
+     */
+    static final int MAX_REDUCTION = 8;
+
+    /**
+     * Full Resolution Serial Number Areas Are Warped At This Scale Of The Template, The Size Preprocessing Would Otherwise Upscale To
+     */
+    static final double SERIAL_NUMBER_SCALE = 2;
+
+    /**
+     * Extra Pixels Decoded Around The Serial Number Region, So The Warp Never Samples Outside Of The Decoded Region
+     */
+    static final int SERIAL_NUMBER_REGION_MARGIN = 8;
+
+    /**
+     * The Largest Power Of Two Subsampling Which Still Keeps The Longer Side Of The Image At Least As Big As The Target
+     */
+    public static int calculateInSampleSize(int width, int height, int targetLongSide) {
+        int longSide = Math.max(width, height);
+        int inSampleSize = 1;
+        while (inSampleSize < MAX_REDUCTION && longSide / (inSampleSize * 2) >= targetLongSide)
+            inSampleSize *= 2;
+        return inSampleSize;
+    }
+
+    /**
+     * Reads The EXIF Orientation From The Encoded Image Buffer As The Clockwise Rotation Needed To Make The Image Upright
+     */
+    public static int readRotationDegrees(byte[] imageBytes) throws IOException {
+        ExifInterface exifInterface = new ExifInterface(new ByteArrayInputStream(imageBytes));
+        switch (exifInterface.getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_UNDEFINED)) {
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                return 90;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                return 180;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                return 270;
+            case ExifInterface.ORIENTATION_NORMAL:
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Decodes The Encoded Image, Rotated Upright By Its EXIF Orientation
+     *
+     * @see #decodeImage(byte[], int, int)
+     */
+    public static CapturedImage decodeImage(byte[] imageBytes, int targetLongSide) throws IOException {
+        return decodeImage(imageBytes, targetLongSide, readRotationDegrees(imageBytes));
+    }
+
+    /**
+     * Decodes The Encoded Image Into an Upright RGBA Mat Whose Longer Side Is Close To The Target
+     * <p>
+     * The Pipeline Has Always Worked On RGBA Images (As Produced By Android Bitmaps), So The Decoded Image Is Kept That Way.
+     * The Returned Image Also Knows How To Map The Pixels Of The Original (Unrotated, Full Resolution) Photo Into Its Own Pixels.
+     *
+     * @param rotationDegrees The Clockwise Rotation Needed To Make The Image Upright (0, 90, 180 or 270)
+     */
+    public static CapturedImage decodeImage(byte[] imageBytes, int targetLongSide, int rotationDegrees) throws IOException {
+        //Only The Header Is Read Here, No Pixels Are Allocated
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(imageBytes, 0, imageBytes.length, options);
+        int reduction = calculateInSampleSize(options.outWidth, options.outHeight, targetLongSide);
+
+        MatOfByte encodedImage = new MatOfByte(imageBytes);
+        Mat image = Imgcodecs.imdecode(encodedImage, getReducedDecodeFlag(reduction) | Imgcodecs.IMREAD_IGNORE_ORIENTATION);
+        encodedImage.release();
+        if (image.empty())
+            throw new IOException("The Captured Image Could Not Be Decoded");
+
+        //The Decoder Rounds The Reduced Size Up, So The Exact Scales Are Taken From The Decoded Image
+        int reducedWidth = image.width();
+        int reducedHeight = image.height();
+        Mat originalToReduced = Mat.eye(3, 3, CvType.CV_64F);
+        originalToReduced.put(0, 0, ((double) reducedWidth) / options.outWidth);
+        originalToReduced.put(1, 1, ((double) reducedHeight) / options.outHeight);
+
+        int rotateCode;
+        Mat rotation = Mat.eye(3, 3, CvType.CV_64F);
+        switch (rotationDegrees) {
+            case 90:
+                rotateCode = Core.ROTATE_90_CLOCKWISE;
+                rotation.put(0, 0, 0, -1, reducedHeight - 1, 1, 0, 0, 0, 0, 1);
+                break;
+
+            case 180:
+                rotateCode = Core.ROTATE_180;
+                rotation.put(0, 0, -1, 0, reducedWidth - 1, 0, -1, reducedHeight - 1, 0, 0, 1);
+                break;
+
+            case 270:
+                rotateCode = Core.ROTATE_90_COUNTERCLOCKWISE;
+                rotation.put(0, 0, 0, 1, 0, -1, 0, reducedWidth - 1, 0, 0, 1);
+                break;
+
+            default:
+                rotateCode = -1;
+        }
+
+        if (rotateCode != -1) {
+            Mat rotatedImage = new Mat();
+            Core.rotate(image, rotatedImage, rotateCode);
+            image.release();
+            image = rotatedImage;
+        }
+
+        Mat originalToImage = new Mat();
+        Core.gemm(rotation, originalToReduced, 1, new Mat(), 0, originalToImage);
+        originalToReduced.release();
+        rotation.release();
+
+        Imgproc.cvtColor(image, image, Imgproc.COLOR_BGR2RGBA);
+        return new CapturedImage(image, imageBytes, originalToImage, options.outWidth, options.outHeight);
+    }
+
+    /**
+     * Decodes Only The Serial Number Region Of The Original Photo At Full Resolution & Warps It Into The Template Coordinates
+     *
+     * @param homography   The Homography Which Maps The Captured (Working Resolution) Image Into The Template
+     * @param templateRect The Serial Number Rectangle In Template Coordinates
+     * @return The Warped RGBA Serial Number Area, Scaled By {@link #SERIAL_NUMBER_SCALE}
+     */
+    public static Mat decodeSerialNumberRegion(CapturedImage capturedImage, Mat homography, Rect templateRect) throws IOException {
+        //Original Photo To Template
+        Mat originalToTemplate = new Mat();
+        Core.gemm(homography, capturedImage.originalToImage, 1, new Mat(), 0, originalToTemplate);
+
+        //Find Where The Serial Number Rectangle Lies In The Original Photo
+        MatOfPoint2f templateCorners = new MatOfPoint2f(
+                new Point(templateRect.x, templateRect.y),
+                new Point(templateRect.x + templateRect.width, templateRect.y),
+                new Point(templateRect.x + templateRect.width, templateRect.y + templateRect.height),
+                new Point(templateRect.x, templateRect.y + templateRect.height));
+        MatOfPoint2f originalCorners = new MatOfPoint2f();
+        Mat templateToOriginal = originalToTemplate.inv();
+        Core.perspectiveTransform(templateCorners, originalCorners, templateToOriginal);
+        templateToOriginal.release();
+        templateCorners.release();
+
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (Point corner : originalCorners.toArray()) {
+            minX = Math.min(minX, corner.x);
+            minY = Math.min(minY, corner.y);
+            maxX = Math.max(maxX, corner.x);
+            maxY = Math.max(maxY, corner.y);
+        }
+        originalCorners.release();
+
+        android.graphics.Rect region = new android.graphics.Rect(
+                (int) Math.floor(minX) - SERIAL_NUMBER_REGION_MARGIN,
+                (int) Math.floor(minY) - SERIAL_NUMBER_REGION_MARGIN,
+                (int) Math.ceil(maxX) + SERIAL_NUMBER_REGION_MARGIN,
+                (int) Math.ceil(maxY) + SERIAL_NUMBER_REGION_MARGIN);
+        if (!region.intersect(0, 0, capturedImage.originalWidth, capturedImage.originalHeight)) {
+            originalToTemplate.release();
+            throw new IOException("The Serial Number Region Lies Outside Of The Captured Image");
+        }
+
+        //Only The Region Is Decoded (Subsampled If The Photo Has More Pixels Than The Warp Needs), The Rest Of The Photo Never Reaches The Memory
+        double originalPixelsPerSerialNumberPixel = region.width() / (templateRect.width * SERIAL_NUMBER_SCALE);
+        int inSampleSize = 1;
+        while (inSampleSize * 2 <= originalPixelsPerSerialNumberPixel)
+            inSampleSize *= 2;
+
+        BitmapRegionDecoder regionDecoder = BitmapRegionDecoder.newInstance(capturedImage.imageBytes, 0, capturedImage.imageBytes.length, false);
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        options.inSampleSize = inSampleSize;
+        Bitmap regionBitmap = regionDecoder.decodeRegion(region, options);
+        regionDecoder.recycle();
+
+        Mat regionMat = new Mat();
+        Utils.bitmapToMat(regionBitmap, regionMat);
+        regionBitmap.recycle();
+
+        //Region Pixels -> Original Photo -> Template -> Scaled Serial Number Area
+        Mat regionToOriginal = Mat.eye(3, 3, CvType.CV_64F);
+        regionToOriginal.put(0, 0, inSampleSize, 0, region.left, 0, inSampleSize, region.top);
+        Mat templateToSerialNumber = Mat.eye(3, 3, CvType.CV_64F);
+        templateToSerialNumber.put(0, 0, SERIAL_NUMBER_SCALE, 0, -SERIAL_NUMBER_SCALE * templateRect.x, 0, SERIAL_NUMBER_SCALE, -SERIAL_NUMBER_SCALE * templateRect.y);
+
+        Mat regionToTemplate = new Mat();
+        Core.gemm(originalToTemplate, regionToOriginal, 1, new Mat(), 0, regionToTemplate);
+        Mat regionToSerialNumber = new Mat();
+        Core.gemm(templateToSerialNumber, regionToTemplate, 1, new Mat(), 0, regionToSerialNumber);
+
+        Mat serialNumberArea = new Mat();
+        Size serialNumberSize = new Size(templateRect.width * SERIAL_NUMBER_SCALE, templateRect.height * SERIAL_NUMBER_SCALE);
+        Imgproc.warpPerspective(regionMat, serialNumberArea, regionToSerialNumber, serialNumberSize);
+
+        regionMat.release();
+        originalToTemplate.release();
+        regionToOriginal.release();
+        templateToSerialNumber.release();
+        regionToTemplate.release();
+        regionToSerialNumber.release();
+        return serialNumberArea;
+    }
+
+    private static int getReducedDecodeFlag(int reduction) {
+        switch (reduction) {
+            case 2:
+                return Imgcodecs.IMREAD_REDUCED_COLOR_2;
+            case 4:
+                return Imgcodecs.IMREAD_REDUCED_COLOR_4;
+            case 8:
+                return Imgcodecs.IMREAD_REDUCED_COLOR_8;
+            default:
+                return Imgcodecs.IMREAD_COLOR;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package naji.cardreader;
+
+import androidx.camera.core.ImageProxy;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts CameraX YUV_420_888 Frames Into OpenCV Mats
+ * <p>
+ * The Planes Are Wrapped By Mats Without Copying Them, Only The Color Conversion Writes New Pixels,
+ * And It Writes Them Into a Buffer Which Is Reused For Every Frame.
+ * This Follows What {@link org.opencv.android.JavaCamera2View} Does For Camera2 Images.
+ */
+public class ImageProxyConverter {
+    private final Mat rgba = new Mat();
+    private byte[] i420Bytes;
+
+    /**
+     * Converts The Frame Into an RGBA Mat, The Returned Mat Is Overwritten By The Next Conversion
+     */
+    public Mat rgba(ImageProxy image) {
+        ImageProxy.PlaneProxy[] planes = image.getPlanes();
+        int width = image.getWidth();
+        int height = image.getHeight();
+
+        if (planes[1].getPixelStride() == 2) {
+            //Chroma Channels Are Interleaved (NV12 Or NV21), So The Planes Can Be Converted In Place
+            Mat yMat = new Mat(height, width, CvType.CV_8UC1, planes[0].getBuffer(), planes[0].getRowStride());
+            Mat uvMat1 = new Mat(height / 2, width / 2, CvType.CV_8UC2, planes[1].getBuffer(), planes[1].getRowStride());
+            Mat uvMat2 = new Mat(height / 2, width / 2, CvType.CV_8UC2, planes[2].getBuffer(), planes[2].getRowStride());
+
+            if (uvMat2.dataAddr() - uvMat1.dataAddr() > 0)
+                Imgproc.cvtColorTwoPlane(yMat, uvMat1, rgba, Imgproc.COLOR_YUV2RGBA_NV12);
+            else
+                Imgproc.cvtColorTwoPlane(yMat, uvMat2, rgba, Imgproc.COLOR_YUV2RGBA_NV21);
+
+            yMat.release();
+            uvMat1.release();
+            uvMat2.release();
+        } else {
+            //Chroma Channels Are Planar, They Have To Be Packed Into One I420 Buffer First
+            int length = width * height * 3 / 2;
+            if (i420Bytes == null || i420Bytes.length != length)
+                i420Bytes = new byte[length];
+
+            int offset = copyPlane(planes[0], width, height, 0);
+            offset = copyPlane(planes[1], width / 2, height / 2, offset);
+            copyPlane(planes[2], width / 2, height / 2, offset);
+
+            Mat i420Mat = new Mat(height * 3 / 2, width, CvType.CV_8UC1);
+            i420Mat.put(0, 0, i420Bytes);
+            Imgproc.cvtColor(i420Mat, rgba, Imgproc.COLOR_YUV2RGBA_I420, 4);
+            i420Mat.release();
+        }
+
+        return rgba;
+    }
+
+    public void release() {
+        rgba.release();
+    }
+
+    private int copyPlane(ImageProxy.PlaneProxy plane, int width, int height, int offset) {
+        ByteBuffer buffer = plane.getBuffer();
+        int rowStride = plane.getRowStride();
+        buffer.rewind();
+
+        if (rowStride == width) {
+            buffer.get(i420Bytes, offset, width * height);
+            return offset + width * height;
+        }
+
+        for (int row = 0; row < height; row++) {
+            buffer.position(row * rowStride);
+            buffer.get(i420Bytes, offset, width);
+            offset += width;
+        }
+        return offset;
+    }
+}
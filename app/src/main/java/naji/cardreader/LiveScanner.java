@@ -0,0 +1,92 @@
+package naji.cardreader;
+
+import android.util.Size;
+
+import androidx.camera.core.CameraX;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageAnalysisConfig;
+import androidx.lifecycle.LifecycleOwner;
+
+import org.opencv.core.Mat;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Feeds Live Camera Frames Into The Pipeline With CameraX ImageAnalysis
+ * <p>
+ * The Camera Keeps Delivering Frames At Its Own Rate, While The Analyzer Only Ever Sees The Latest One,
+ * Frames Arriving While a Frame Is Being Analyzed Are Dropped By CameraX Instead Of Queueing Up Behind It.
+ * So a Slow Alignment Or OCR Never Makes The Preview Lag, It Only Lowers The Analysis Rate.
+ */
+public class LiveScanner {
+    static final Size TARGET_RESOLUTION = new Size(1280, 960);
+
+    /**
+     * Called On The Analyzer Executor For Every Analyzed Frame
+     */
+    interface FrameProcessor {
+        /**
+         * @param frame     The RGBA Frame, Only Valid During The Call
+         * @param timestamp The Sensor Timestamp Of The Frame (Nanoseconds)
+         */
+        void processFrame(Mat frame, long timestamp);
+    }
+
+    private final ImageAnalysis imageAnalysis;
+    private final ImageProxyConverter imageProxyConverter = new ImageProxyConverter();
+    private volatile boolean running = false;
+
+    public LiveScanner(Executor analyzerExecutor, ThroughputMeter throughputMeter, FrameProcessor frameProcessor) {
+        ImageAnalysisConfig imageAnalysisConfig = new ImageAnalysisConfig.Builder()
+                .setLensFacing(CameraX.LensFacing.BACK)
+                .setBackpressureStrategy(ImageAnalysis.BackpressureStrategy.KEEP_ONLY_LATEST)
+                .setTargetResolution(TARGET_RESOLUTION)
+                .build();
+        imageAnalysis = new ImageAnalysis(imageAnalysisConfig);
+
+        //Frames Are Not Rotated, The Alignment Doesn't Care About The Card Orientation
+        imageAnalysis.setAnalyzer(analyzerExecutor, (image, rotationDegrees) -> {
+            long analysisStart = System.nanoTime();
+            try {
+                Mat frame = imageProxyConverter.rgba(image);
+                frameProcessor.processFrame(frame, image.getTimestamp());
+            } catch (Exception e) {
+                e.printStackTrace();
+            } finally {
+                image.close();
+                throughputMeter.onFrameAnalyzed(System.nanoTime() - analysisStart);
+            }
+        });
+    }
+
+    /**
+     * Starts Delivering Frames, Next To The Use Cases Already Bound To The Owner
+     */
+    public void start(LifecycleOwner lifecycleOwner) {
+        if (running)
+            return;
+        CameraX.bindToLifecycle(lifecycleOwner, imageAnalysis);
+        running = true;
+    }
+
+    /**
+     * Stops Delivering Frames, The Frame Being Analyzed (If Any) Still Finishes
+     */
+    public void stop() {
+        if (!running)
+            return;
+        CameraX.unbind(imageAnalysis);
+        running = false;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Releases The Conversion Buffer, Must Be Called On The Analyzer Executor Or After It Is Shut Down
+     */
+    public void release() {
+        imageProxyConverter.release();
+    }
+}
@@ -0,0 +1,64 @@
+package naji.cardreader;
+
+import com.googlecode.tesseract.android.TessBaseAPI;
+
+import org.opencv.core.Mat;
+
+import naji.cardreader.DTOs.RecognizedText;
+
+/**
+ * Tesseract (Through tess-two) As The OCR Engine Of The Pipeline
+ * <p>
+ * The Preprocessed Serial Number Area Is Handed Over As Raw 8 Bit Gray Pixels, No Bitmap Is Needed.
+ */
+public class TessTwoOcrEngine extends TesseractSettings {
+    private final String name;
+    private final TessBaseAPI api;
+    private byte[] pixels;
+
+    /**
+     * @param api                Already Set Up With The Character Whitelist & The Single Line Page Segmentation Mode
+     * @param characterWhitelist The Whitelist The API Was Set Up With, Restored For Templates Which Don't Declare Their Own
+     */
+    public TessTwoOcrEngine(String name, TessBaseAPI api, String characterWhitelist) {
+        super(characterWhitelist);
+        this.name = name;
+        this.api = api;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public RecognizedText recognize(Mat image) {
+        Mat continuousImage = image.isContinuous() ? image : image.clone();
+        int length = (int) continuousImage.total();
+        if (pixels == null || pixels.length != length)
+            pixels = new byte[length];
+        continuousImage.get(0, 0, pixels);
+        if (continuousImage != image)
+            continuousImage.release();
+
+        api.setImage(pixels, image.width(), image.height(), 1, image.width());
+        String text = api.getUTF8Text();
+        int confidence = api.meanConfidence();
+        return new RecognizedText(text, confidence);
+    }
+
+    @Override
+    protected void setCharacterWhitelist(String characterWhitelist) {
+        api.setVariable(TessBaseAPI.VAR_CHAR_WHITELIST, characterWhitelist);
+    }
+
+    @Override
+    protected void setPageSegMode(int pageSegMode) {
+        api.setPageSegMode(pageSegMode);
+    }
+
+    @Override
+    public void release() {
+        api.end();
+    }
+}
@@ -0,0 +1,109 @@
+package naji.cardreader;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * Draws The Numbers Of a {@link ThroughputMeter} Over The Camera Preview
+ * <p>
+ * The Text Is Written Into a Reused Character Buffer Instead Of Formatting New Strings,
+ * And The View Redraws Itself a Few Times a Second Rather Than Once Per Frame.
+ */
+public class ThroughputOverlay extends View {
+    static final long REFRESH_INTERVAL_MILLIS = 250;
+
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint backgroundPaint = new Paint();
+    private final char[] line = new char[64];
+    private ThroughputMeter throughputMeter;
+
+    public ThroughputOverlay(Context context) {
+        this(context, null);
+    }
+
+    public ThroughputOverlay(Context context, AttributeSet attributeSet) {
+        super(context, attributeSet);
+        textPaint.setColor(Color.WHITE);
+        textPaint.setTypeface(Typeface.MONOSPACE);
+        textPaint.setTextSize(getResources().getDimension(R.dimen.overlay_text_size));
+        backgroundPaint.setColor(0x80000000);
+    }
+
+    public void setThroughputMeter(ThroughputMeter throughputMeter) {
+        this.throughputMeter = throughputMeter;
+        invalidate();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (throughputMeter == null || getVisibility() != VISIBLE)
+            return;
+
+        float lineHeight = textPaint.getTextSize() * 1.25f;
+        canvas.drawRect(0, 0, getWidth(), lineHeight * 3 + lineHeight / 2, backgroundPaint);
+
+        int length = 0;
+        length = append("camera ", length);
+        length = append(throughputMeter.getArrivalRate(), length);
+        length = append(" fps  analysis ", length);
+        length = append(throughputMeter.getAnalysisRate(), length);
+        length = append(" fps", length);
+        canvas.drawText(line, 0, length, lineHeight / 2, lineHeight, textPaint);
+
+        length = 0;
+        length = append("dropped ", length);
+        length = append(throughputMeter.getDroppedCount(), length);
+        canvas.drawText(line, 0, length, lineHeight / 2, lineHeight * 2, textPaint);
+
+        length = 0;
+        length = append("p50 ", length);
+        length = append(throughputMeter.getLatencyPercentileMillis(50), length);
+        length = append("  p95 ", length);
+        length = append(throughputMeter.getLatencyPercentileMillis(95), length);
+        length = append("  p99 ", length);
+        length = append(throughputMeter.getLatencyPercentileMillis(99), length);
+        length = append(" ms", length);
+        canvas.drawText(line, 0, length, lineHeight / 2, lineHeight * 3, textPaint);
+
+        postInvalidateDelayed(REFRESH_INTERVAL_MILLIS);
+    }
+
+    private int append(String text, int offset) {
+        int count = Math.min(text.length(), line.length - offset);
+        text.getChars(0, count, line, offset);
+        return offset + count;
+    }
+
+    /**
+     * Appends a Non Negative Number With One Decimal Digit
+     */
+    private int append(double value, int offset) {
+        long tenths = Math.round(value * 10);
+        offset = append(tenths / 10, offset);
+        if (offset + 2 > line.length)
+            return offset;
+        line[offset] = '.';
+        line[offset + 1] = (char) ('0' + tenths % 10);
+        return offset + 2;
+    }
+
+    private int append(long value, int offset) {
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10)
+            digits++;
+        if (offset + digits > line.length)
+            return offset;
+
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            line[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return offset + digits;
+    }
+}
@@ -0,0 +1,82 @@
+package naji.cardreader.benchmark;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint2f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import naji.cardreader.CardQuadDetector;
+
+/**
+ * Selecting The Template Candidate For a Captured Image: Finding The Card Quad & Comparing Its Appearance With Every Template
+ * Of a Matching Aspect Ratio, In Both Orientations, Like `alignImageWithCardQuad` Does
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CandidateSelectionBenchmark {
+    CardQuadDetector cardQuadDetector = new CardQuadDetector();
+    List<Mat> templates = new ArrayList<>();
+    List<Mat> templateThumbnails = new ArrayList<>();
+    Mat captured;
+    MatOfPoint2f quad;
+
+    @Setup
+    public void setup() {
+        for (String templateName : Fixtures.TEMPLATE_NAMES) {
+            Mat template = Fixtures.loadTemplate(templateName);
+            Mat templateGray = Fixtures.toGray(template);
+            templates.add(template);
+            templateThumbnails.add(cardQuadDetector.createThumbnail(templateGray));
+            templateGray.release();
+        }
+
+        captured = Fixtures.createCapturedImage(templates.get(0));
+        quad = cardQuadDetector.detectCardQuad(captured);
+        if (quad == null)
+            throw new IllegalStateException("The Fixture Card Quad Was Not Found");
+    }
+
+    @Benchmark
+    public MatOfPoint2f detectCardQuad() {
+        MatOfPoint2f detectedQuad = cardQuadDetector.detectCardQuad(captured);
+        if (detectedQuad != null)
+            detectedQuad.release();
+        return detectedQuad;
+    }
+
+    @Benchmark
+    public void compareTemplates(Blackhole blackhole) {
+        double quadAspectRatio = cardQuadDetector.getAspectRatio(quad);
+        double bestScore = 0;
+        for (int i = 0; i < templates.size(); i++) {
+            if (!cardQuadDetector.matchesAspectRatio(quadAspectRatio, templates.get(i).size()))
+                continue;
+
+            for (boolean upsideDown : new boolean[]{false, true})
+                bestScore = Math.max(bestScore, cardQuadDetector.compareAppearance(captured, quad, upsideDown, templateThumbnails.get(i)));
+        }
+        blackhole.consume(bestScore);
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (Mat template : templates)
+            template.release();
+        for (Mat templateThumbnail : templateThumbnails)
+            templateThumbnail.release();
+        captured.release();
+        quad.release();
+    }
+}
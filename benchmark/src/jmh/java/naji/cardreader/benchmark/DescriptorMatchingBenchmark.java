@@ -0,0 +1,89 @@
+package naji.cardreader.benchmark;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfDMatch;
+import org.opencv.core.MatOfKeyPoint;
+import org.opencv.core.Size;
+import org.opencv.features2d.DescriptorMatcher;
+import org.opencv.features2d.Feature2D;
+import org.opencv.features2d.ORB;
+import org.opencv.imgproc.Imgproc;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matching The Template Descriptors To The Captured Image Descriptors, Brute Force (As In The App) Versus an Indexed Matcher
+ * <p>
+ * The Java Bindings Can't Configure an LSH Index For Binary Descriptors, So The Indexed Matcher Is The Default FLANN (KD-Tree)
+ * Matcher On The ORB Descriptors Converted To Floats, The Conversion Is Done Once In The Setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DescriptorMatchingBenchmark {
+    static final String BRUTE_FORCE = "bruteforce_hamming";
+    static final String INDEXED = "flann";
+
+    @Param({"template_card_1", "template_card_2", "template_card_3"})
+    String templateName;
+
+    @Param({BRUTE_FORCE, INDEXED})
+    String matcherName;
+
+    DescriptorMatcher matcher;
+    Mat templateDescriptors = new Mat();
+    Mat imageDescriptors = new Mat();
+
+    @Setup
+    public void setup() {
+        Feature2D featureExtractor = ORB.create();
+        Mat template = Fixtures.loadTemplate(templateName);
+        Mat templateGray = Fixtures.toGray(template);
+        Mat captured = Fixtures.createCapturedImage(template);
+        Mat capturedGray = Fixtures.toGray(captured);
+
+        //The App Resizes The Captured Image To The Template Width Before Extracting Its Features
+        double scale = ((double) template.width()) / captured.width();
+        Imgproc.resize(capturedGray, capturedGray, new Size(), scale, scale);
+
+        featureExtractor.detectAndCompute(templateGray, new Mat(), new MatOfKeyPoint(), templateDescriptors, false);
+        featureExtractor.detectAndCompute(capturedGray, new Mat(), new MatOfKeyPoint(), imageDescriptors, false);
+        template.release();
+        templateGray.release();
+        captured.release();
+        capturedGray.release();
+
+        if (matcherName.equals(INDEXED)) {
+            templateDescriptors.convertTo(templateDescriptors, CvType.CV_32F);
+            imageDescriptors.convertTo(imageDescriptors, CvType.CV_32F);
+            matcher = DescriptorMatcher.create(DescriptorMatcher.FLANNBASED);
+        } else {
+            matcher = DescriptorMatcher.create(DescriptorMatcher.BRUTEFORCE_HAMMING);
+        }
+    }
+
+    @Benchmark
+    public void match(Blackhole blackhole) {
+        MatOfDMatch matches = new MatOfDMatch();
+        matcher.match(templateDescriptors, imageDescriptors, matches);
+        blackhole.consume(matches.rows());
+        matches.release();
+    }
+
+    @TearDown
+    public void tearDown() {
+        templateDescriptors.release();
+        imageDescriptors.release();
+    }
+}
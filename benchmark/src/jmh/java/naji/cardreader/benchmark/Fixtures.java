@@ -0,0 +1,135 @@
+package naji.cardreader.benchmark;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.io.File;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+/**
+ * Fixed Inputs For The Benchmarks, Built From The Templates Shipped With The App
+ * <p>
+ * a "Captured" Image Is Made By Warping a Template With a Fixed Perspective Onto a Plain Background & Adding Seeded Noise,
+ * So Every Run (And Every Machine) Benchmarks Exactly The Same Pixels.
+ */
+public class Fixtures {
+    static final String[] TEMPLATE_NAMES = {"template_card_1", "template_card_2", "template_card_3"};
+    static final Size CAPTURED_SIZE = new Size(1600, 1200);
+    static final int NOISE_SEED = 42;
+    static final double NOISE_DEVIATION = 6;
+
+    static {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    static File getResourcesFolder() {
+        return new File(System.getProperty("cardreader.resources", "../app/src/main/res"));
+    }
+
+    /**
+     * Loads The Template Image In BGR Order, The Same Way The App Loads It
+     */
+    public static Mat loadTemplate(String templateName) {
+        File templateFile = new File(getResourcesFolder(), "raw/" + templateName + ".png");
+        Mat template = Imgcodecs.imread(templateFile.getPath(), Imgcodecs.IMREAD_COLOR);
+        if (template.empty())
+            throw new IllegalStateException("Template Not Found: " + templateFile);
+        return template;
+    }
+
+    public static Mat toGray(Mat image) {
+        Mat imageGray = new Mat();
+        Imgproc.cvtColor(image, imageGray, image.channels() == 4 ? Imgproc.COLOR_RGBA2GRAY : Imgproc.COLOR_BGR2GRAY);
+        return imageGray;
+    }
+
+    /**
+     * The Serial Number Rectangle Of The Template, Read From The App's `template_serial_number_positions.xml`
+     */
+    public static Rect loadSerialNumberRect(String templateName) throws Exception {
+        File positionsFile = new File(getResourcesFolder(), "xml/template_serial_number_positions.xml");
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(positionsFile);
+
+        NodeList templates = document.getElementsByTagName("template");
+        for (int i = 0; i < templates.getLength(); i++) {
+            Element template = (Element) templates.item(i);
+            if (!template.getAttribute("name").equals(templateName))
+                continue;
+
+            int XLeft = readInt(template, "XLeft");
+            int XRight = readInt(template, "XRight");
+            int YTop = readInt(template, "YTop");
+            int YBottom = readInt(template, "YBottom");
+            return new Rect(XLeft, YTop, XRight - XLeft, YBottom - YTop);
+        }
+        throw new IllegalStateException("No Serial Number Position For: " + templateName);
+    }
+
+    /**
+     * The Corners Of The Card Inside The Synthetic Captured Image, a Slightly Tilted & Rotated Card Covering Most Of The Frame
+     */
+    public static Point[] getCapturedCardCorners() {
+        return new Point[]{
+                new Point(230, 260),
+                new Point(1390, 190),
+                new Point(1420, 950),
+                new Point(200, 1010)
+        };
+    }
+
+    /**
+     * The Homography From The Synthetic Captured Image Into The Template
+     */
+    public static Mat getCapturedToTemplate(Mat template) {
+        MatOfPoint2f capturedCorners = new MatOfPoint2f(getCapturedCardCorners());
+        MatOfPoint2f templateCorners = new MatOfPoint2f(
+                new Point(0, 0),
+                new Point(template.width() - 1, 0),
+                new Point(template.width() - 1, template.height() - 1),
+                new Point(0, template.height() - 1));
+
+        Mat homography = Imgproc.getPerspectiveTransform(capturedCorners, templateCorners);
+        capturedCorners.release();
+        templateCorners.release();
+        return homography;
+    }
+
+    /**
+     * Builds The Synthetic Captured Image Of The Template In RGBA Order, Like The Images The Pipeline Works On
+     */
+    public static Mat createCapturedImage(Mat template) {
+        Mat templateToCaptured = getCapturedToTemplate(template).inv();
+        Mat captured = new Mat(CAPTURED_SIZE, CvType.CV_8UC3, new Scalar(90, 100, 110));
+        Imgproc.warpPerspective(template, captured, templateToCaptured, CAPTURED_SIZE, Imgproc.INTER_LINEAR, Core.BORDER_TRANSPARENT);
+        templateToCaptured.release();
+
+        Mat noise = new Mat(captured.size(), CvType.CV_16SC3);
+        Core.setRNGSeed(NOISE_SEED);
+        Core.randn(noise, 0, NOISE_DEVIATION);
+        Mat noisyCaptured = new Mat();
+        captured.convertTo(noisyCaptured, CvType.CV_16SC3);
+        Core.add(noisyCaptured, noise, noisyCaptured);
+        noisyCaptured.convertTo(captured, CvType.CV_8UC3);
+        noise.release();
+        noisyCaptured.release();
+
+        Imgproc.cvtColor(captured, captured, Imgproc.COLOR_BGR2RGBA);
+        return captured;
+    }
+
+    private static int readInt(Element element, String tagName) {
+        return Integer.parseInt(element.getElementsByTagName(tagName).item(0).getTextContent().trim());
+    }
+}
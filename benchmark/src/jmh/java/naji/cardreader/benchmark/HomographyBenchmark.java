@@ -0,0 +1,99 @@
+package naji.cardreader.benchmark;
+
+import org.opencv.calib3d.Calib3d;
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.Point;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import naji.cardreader.HomographyValidator;
+
+/**
+ * Estimating The Homography With RANSAC From Point Matches & Validating It, As Done For Every Shortlisted Template
+ * <p>
+ * The Matches Are Generated From The Known Fixture Homography With Seeded Jitter & a Fixed Share Of Outliers,
+ * So The RANSAC Workload Is The Same On Every Run.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HomographyBenchmark {
+    static final int SEED = 7;
+    static final double JITTER = 1.5;
+
+    @Param({"100", "500"})
+    int matchesCount;
+
+    @Param({"0.3"})
+    double outlierRatio;
+
+    HomographyValidator homographyValidator = new HomographyValidator();
+    MatOfPoint2f imagePoints;
+    MatOfPoint2f templatePoints;
+    Mat homography;
+
+    @Setup
+    public void setup() {
+        Mat template = Fixtures.loadTemplate(Fixtures.TEMPLATE_NAMES[0]);
+        Mat capturedToTemplate = Fixtures.getCapturedToTemplate(template);
+        Random random = new Random(SEED);
+
+        Point[] capturedPoints = new Point[matchesCount];
+        for (int i = 0; i < matchesCount; i++)
+            capturedPoints[i] = new Point(200 + random.nextDouble() * 1200, 200 + random.nextDouble() * 800);
+
+        MatOfPoint2f capturedMat = new MatOfPoint2f(capturedPoints);
+        MatOfPoint2f projectedMat = new MatOfPoint2f();
+        Core.perspectiveTransform(capturedMat, projectedMat, capturedToTemplate);
+        Point[] projectedPoints = projectedMat.toArray();
+
+        for (int i = 0; i < matchesCount; i++) {
+            if (random.nextDouble() < outlierRatio) {
+                projectedPoints[i] = new Point(random.nextDouble() * template.width(), random.nextDouble() * template.height());
+            } else {
+                projectedPoints[i].x += random.nextGaussian() * JITTER;
+                projectedPoints[i].y += random.nextGaussian() * JITTER;
+            }
+        }
+
+        imagePoints = capturedMat;
+        templatePoints = new MatOfPoint2f(projectedPoints);
+        homography = capturedToTemplate;
+        projectedMat.release();
+        template.release();
+    }
+
+    @Benchmark
+    public void findHomography(Blackhole blackhole) {
+        Mat inliersMask = new Mat();
+        Mat foundHomography = Calib3d.findHomography(imagePoints, templatePoints, Calib3d.RANSAC, 3, inliersMask);
+        blackhole.consume(homographyValidator.determineNiceHomography(homographyValidator.getHomographyProperties(foundHomography)));
+        foundHomography.release();
+        inliersMask.release();
+    }
+
+    @Benchmark
+    public boolean validateHomography() {
+        return homographyValidator.determineNiceHomography(homographyValidator.getHomographyProperties(homography));
+    }
+
+    @TearDown
+    public void tearDown() {
+        imagePoints.release();
+        templatePoints.release();
+        homography.release();
+    }
+}
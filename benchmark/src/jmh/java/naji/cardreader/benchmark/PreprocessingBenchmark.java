@@ -0,0 +1,72 @@
+package naji.cardreader.benchmark;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.imgproc.Imgproc;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+import naji.cardreader.SerialNumberPreprocessor;
+
+/**
+ * Preprocessing The Cropped Serial Number Area Before OCR
+ * <p>
+ * The Resize Factor 2 Variant Is Used For Areas Cropped From The Aligned Image, The Factor 1 Variant For Areas Re-Read At Full Resolution.
+ * Every Preprocessing Profile Is Timed, Their Accuracy Is Compared By The Golden Dataset Harness (`golden --profile`).
+ * The Crop Is Only Read & The Preprocessor Keeps Its Buffers, So This Measures The Steady State Without Allocations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PreprocessingBenchmark {
+    @Param({"template_card_1", "template_card_2", "template_card_3"})
+    String templateName;
+
+    @Param({"1", "2"})
+    double resizeFactor;
+
+    @Param({"accurate", "fast", "bilateral"})
+    String profile;
+
+    SerialNumberPreprocessor serialNumberPreprocessor = new SerialNumberPreprocessor();
+    Mat serialNumberArea;
+
+    @Setup
+    public void setup() throws Exception {
+        Mat template = Fixtures.loadTemplate(templateName);
+        Mat captured = Fixtures.createCapturedImage(template);
+        Mat capturedToTemplate = Fixtures.getCapturedToTemplate(template);
+
+        Mat aligned = new Mat();
+        Imgproc.warpPerspective(captured, aligned, capturedToTemplate, template.size());
+        Rect serialNumberRect = Fixtures.loadSerialNumberRect(templateName);
+        serialNumberArea = aligned.submat(serialNumberRect).clone();
+
+        template.release();
+        captured.release();
+        capturedToTemplate.release();
+        aligned.release();
+    }
+
+    @Benchmark
+    public Mat preprocess() {
+        Mat serialNumberImage = serialNumberPreprocessor.preprocess(serialNumberArea, resizeFactor, profile, templateName);
+        serialNumberImage.release();
+        return serialNumberImage;
+    }
+
+    @TearDown
+    public void tearDown() {
+        serialNumberArea.release();
+        serialNumberPreprocessor.release();
+    }
+}
@@ -0,0 +1,55 @@
+package naji.cardreader.benchmark;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfKeyPoint;
+import org.opencv.features2d.Feature2D;
+import org.opencv.features2d.ORB;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extracting The ORB Features Of a Template, As Done For Every Template When The App Starts
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TemplateFeatureBenchmark {
+    @Param({"template_card_1", "template_card_2", "template_card_3"})
+    String templateName;
+
+    Feature2D featureExtractor;
+    Mat templateGray;
+
+    @Setup
+    public void setup() {
+        featureExtractor = ORB.create();
+        Mat template = Fixtures.loadTemplate(templateName);
+        templateGray = Fixtures.toGray(template);
+        template.release();
+    }
+
+    @Benchmark
+    public void detectAndCompute(Blackhole blackhole) {
+        MatOfKeyPoint keypoints = new MatOfKeyPoint();
+        Mat descriptors = new Mat();
+        featureExtractor.detectAndCompute(templateGray, new Mat(), keypoints, descriptors, false);
+        blackhole.consume(descriptors.rows());
+        keypoints.release();
+        descriptors.release();
+    }
+
+    @TearDown
+    public void tearDown() {
+        templateGray.release();
+    }
+}
@@ -0,0 +1,111 @@
+package naji.cardreader;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+import org.opencv.video.KalmanFilter;
+
+/**
+ * Smooths The Card Corners Between Live Frames With a Constant Velocity Kalman Filter
+ * <p>
+ * The Homography Estimated On Each Frame Jitters a Few Pixels, Which Moves The Serial Number Crop Around
+ * & Makes OCR Results Disagree Between Frames. Filtering The Four Card Corners (Instead Of The Homography Itself)
+ * Keeps The Crop Steady While Still Following Real Card Movements.
+ */
+public class CardCornersFilter {
+    static final int CORNERS_COUNT = 4;
+    static final int STATE_SIZE = CORNERS_COUNT * 4;
+    static final int MEASUREMENT_SIZE = CORNERS_COUNT * 2;
+    static final double PROCESS_NOISE = 1e-2;
+    static final double MEASUREMENT_NOISE = 4;
+
+    private final KalmanFilter kalmanFilter = new KalmanFilter(STATE_SIZE, MEASUREMENT_SIZE, 0, CvType.CV_32F);
+    private final Mat measurement = new Mat(MEASUREMENT_SIZE, 1, CvType.CV_32F);
+    private boolean initialized = false;
+
+    /**
+     * The State Is (x, y, vx, vy) For Each Corner And Only The Positions Are Measured
+     */
+    public CardCornersFilter() {
+        Mat transitionMatrix = Mat.eye(STATE_SIZE, STATE_SIZE, CvType.CV_32F);
+        Mat measurementMatrix = Mat.zeros(MEASUREMENT_SIZE, STATE_SIZE, CvType.CV_32F);
+        for (int i = 0; i < MEASUREMENT_SIZE; i++) {
+            transitionMatrix.put(i, MEASUREMENT_SIZE + i, 1);
+            measurementMatrix.put(i, i, 1);
+        }
+
+        kalmanFilter.set_transitionMatrix(transitionMatrix);
+        kalmanFilter.set_measurementMatrix(measurementMatrix);
+        kalmanFilter.set_processNoiseCov(scaledIdentity(STATE_SIZE, PROCESS_NOISE));
+        kalmanFilter.set_measurementNoiseCov(scaledIdentity(MEASUREMENT_SIZE, MEASUREMENT_NOISE));
+    }
+
+    /**
+     * Feeds The Measured Corners Of The Current Frame Into The Filter
+     *
+     * @return The Smoothed Corners, In The Same Order As The Measured Ones
+     */
+    public Point[] filter(Point[] measuredCorners) {
+        for (int i = 0; i < CORNERS_COUNT; i++) {
+            measurement.put(2 * i, 0, measuredCorners[i].x);
+            measurement.put(2 * i + 1, 0, measuredCorners[i].y);
+        }
+
+        //The First Measurement Is Taken As Is, There Is Nothing To Smooth It With Yet
+        if (!initialized) {
+            Mat statePost = Mat.zeros(STATE_SIZE, 1, CvType.CV_32F);
+            measurement.copyTo(statePost.rowRange(0, MEASUREMENT_SIZE));
+            kalmanFilter.set_statePost(statePost);
+            kalmanFilter.set_errorCovPost(Mat.eye(STATE_SIZE, STATE_SIZE, CvType.CV_32F));
+            initialized = true;
+            return measuredCorners;
+        }
+
+        kalmanFilter.predict();
+        Mat state = kalmanFilter.correct(measurement);
+
+        Point[] filteredCorners = new Point[CORNERS_COUNT];
+        for (int i = 0; i < CORNERS_COUNT; i++)
+            filteredCorners[i] = new Point(state.get(2 * i, 0)[0], state.get(2 * i + 1, 0)[0]);
+        return filteredCorners;
+    }
+
+    /**
+     * Builds The Stabilized Homography (Image To Template) From The Smoothed Card Corners
+     */
+    public Mat getStabilizedHomography(Point[] filteredCorners, Size templateSize) {
+        MatOfPoint2f imageCorners = new MatOfPoint2f(filteredCorners);
+        MatOfPoint2f templateCorners = new MatOfPoint2f(
+                new Point(0, 0),
+                new Point(templateSize.width - 1, 0),
+                new Point(templateSize.width - 1, templateSize.height - 1),
+                new Point(0, templateSize.height - 1));
+
+        Mat homography = Imgproc.getPerspectiveTransform(imageCorners, templateCorners);
+        imageCorners.release();
+        templateCorners.release();
+        return homography;
+    }
+
+    /**
+     * Forgets The Previous Corners, Should Be Called Whenever The Card Track Is Lost Or The Template Changes
+     */
+    public void reset() {
+        initialized = false;
+    }
+
+    public void release() {
+        measurement.release();
+    }
+
+    private static Mat scaledIdentity(int size, double value) {
+        Mat identity = Mat.eye(size, size, CvType.CV_32F);
+        Core.multiply(identity, new Scalar(value), identity);
+        return identity;
+    }
+}
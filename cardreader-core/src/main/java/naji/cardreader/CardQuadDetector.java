@@ -0,0 +1,193 @@
+package naji.cardreader;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.Point;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Finds The Card Inside an Image As a Four Cornered Contour (a Quad)
+ * <p>
+ * Cards Are Rectangles With Known Aspect Ratios, So When The Card Edges Are Visible We Can Warp The Card
+ * Directly Into The Template Coordinates Without Matching Features & Running RANSAC For Every Template.
+ * Feature Based Alignment Is Only Needed When No Clean Quad Can Be Found.
+ */
+public class CardQuadDetector {
+    static final int WORKING_WIDTH = 640;
+    static final int MAX_CANDIDATE_CONTOURS = 5;
+    static final double MIN_AREA_RATIO = 0.2;
+    static final double APPROXIMATION_EPSILON_RATIO = 0.02;
+    static final double ASPECT_RATIO_TOLERANCE = 0.15;
+    static final double MIN_APPEARANCE_SCORE = 0.3;
+    static final Size THUMBNAIL_SIZE = new Size(64, 40);
+
+    /**
+     * Finds The Biggest Convex Quad In The Image
+     *
+     * @return The Corners In (Top Left, Top Right, Bottom Right, Bottom Left) Order With The Long Card Edge On Top, Or Null If No Quad Was Found
+     */
+    public MatOfPoint2f detectCardQuad(Mat image) {
+        double scale = Math.min(1.0, ((double) WORKING_WIDTH) / image.width());
+
+        Mat imageGray = new Mat();
+        Mat edges = new Mat();
+        Mat hierarchy = new Mat();
+        List<MatOfPoint> contours = new ArrayList<>();
+
+        try {
+            Imgproc.resize(image, imageGray, new Size(), scale, scale, Imgproc.INTER_AREA);
+            Imgproc.cvtColor(imageGray, imageGray, Imgproc.COLOR_BGR2GRAY);
+            Imgproc.GaussianBlur(imageGray, imageGray, new Size(5, 5), 0);
+
+            //Close The Small Gaps In The Card Edges So The Card Becomes One Contour
+            Imgproc.Canny(imageGray, edges, 50, 150);
+            Imgproc.dilate(edges, edges, Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(3, 3)));
+            Imgproc.findContours(edges, contours, hierarchy, Imgproc.RETR_EXTERNAL, Imgproc.CHAIN_APPROX_SIMPLE);
+
+            double minArea = MIN_AREA_RATIO * imageGray.width() * imageGray.height();
+            contours.sort(Comparator.comparingDouble((MatOfPoint contour) -> Imgproc.contourArea(contour)).reversed());
+
+            for (int i = 0; i < Math.min(contours.size(), MAX_CANDIDATE_CONTOURS); i++) {
+                if (Imgproc.contourArea(contours.get(i)) < minArea)
+                    break;
+
+                MatOfPoint2f contour = new MatOfPoint2f(contours.get(i).toArray());
+                MatOfPoint2f approximation = new MatOfPoint2f();
+                double perimeter = Imgproc.arcLength(contour, true);
+                Imgproc.approxPolyDP(contour, approximation, APPROXIMATION_EPSILON_RATIO * perimeter, true);
+                contour.release();
+
+                Point[] corners = approximation.toArray();
+                approximation.release();
+                if (corners.length == 4 && Imgproc.isContourConvex(new MatOfPoint(corners))) {
+                    for (Point corner : corners) {
+                        corner.x /= scale;
+                        corner.y /= scale;
+                    }
+                    return new MatOfPoint2f(orderCorners(corners));
+                }
+            }
+            return null;
+        } finally {
+            for (MatOfPoint contour : contours)
+                contour.release();
+            imageGray.release();
+            edges.release();
+            hierarchy.release();
+        }
+    }
+
+    /**
+     * Sorts The Corners Clockwise Starting From Top Left, Then Rotates Them So That The First Edge Is The Long Card Edge
+     */
+    public Point[] orderCorners(Point[] corners) {
+        Point topLeft = corners[0], topRight = corners[0], bottomRight = corners[0], bottomLeft = corners[0];
+        for (Point corner : corners) {
+            if (corner.x + corner.y < topLeft.x + topLeft.y)
+                topLeft = corner;
+            if (corner.x + corner.y > bottomRight.x + bottomRight.y)
+                bottomRight = corner;
+            if (corner.y - corner.x < topRight.y - topRight.x)
+                topRight = corner;
+            if (corner.y - corner.x > bottomLeft.y - bottomLeft.x)
+                bottomLeft = corner;
+        }
+
+        double horizontalEdges = distance(topLeft, topRight) + distance(bottomLeft, bottomRight);
+        double verticalEdges = distance(topLeft, bottomLeft) + distance(topRight, bottomRight);
+        if (horizontalEdges >= verticalEdges)
+            return new Point[]{topLeft, topRight, bottomRight, bottomLeft};
+        else
+            return new Point[]{bottomLeft, topLeft, topRight, bottomRight};
+    }
+
+    /**
+     * The Ratio Between The Average Long Edge & The Average Short Edge Of The Quad
+     */
+    public double getAspectRatio(MatOfPoint2f quad) {
+        Point[] corners = quad.toArray();
+        double longEdges = distance(corners[0], corners[1]) + distance(corners[2], corners[3]);
+        double shortEdges = distance(corners[1], corners[2]) + distance(corners[3], corners[0]);
+        return longEdges / shortEdges;
+    }
+
+    /**
+     * Checks Whether The Quad Has Nearly The Same Aspect Ratio As The Template (Perspective Distortion Is Tolerated)
+     */
+    public boolean matchesAspectRatio(double quadAspectRatio, Size templateSize) {
+        double templateAspectRatio = templateSize.width / templateSize.height;
+        return Math.abs(quadAspectRatio - templateAspectRatio) / templateAspectRatio <= ASPECT_RATIO_TOLERANCE;
+    }
+
+    /**
+     * Computes The Perspective Transform Which Maps The Quad Onto a Rectangle Of The Given Size
+     *
+     * @param upsideDown Whether The Card Is Rotated 180 Degrees Inside The Quad
+     */
+    public Mat getPerspectiveTransform(MatOfPoint2f quad, Size size, boolean upsideDown) {
+        Point[] corners = quad.toArray();
+        if (upsideDown)
+            corners = new Point[]{corners[2], corners[3], corners[0], corners[1]};
+
+        MatOfPoint2f source = new MatOfPoint2f(corners);
+        MatOfPoint2f destination = new MatOfPoint2f(
+                new Point(0, 0),
+                new Point(size.width - 1, 0),
+                new Point(size.width - 1, size.height - 1),
+                new Point(0, size.height - 1));
+
+        Mat transform = Imgproc.getPerspectiveTransform(source, destination);
+        source.release();
+        destination.release();
+        return transform;
+    }
+
+    /**
+     * Creates a Tiny Grayscale Version Of The Image For Cheap Appearance Checks
+     */
+    public Mat createThumbnail(Mat image) {
+        Mat thumbnail = new Mat();
+        Imgproc.resize(image, thumbnail, THUMBNAIL_SIZE, 0, 0, Imgproc.INTER_AREA);
+        if (thumbnail.channels() > 1)
+            Imgproc.cvtColor(thumbnail, thumbnail, Imgproc.COLOR_BGR2GRAY);
+        return thumbnail;
+    }
+
+    /**
+     * Warps The Quad Into The Thumbnail Size & Compares It With The Template Thumbnail Using Normalized Cross Correlation
+     *
+     * @return a Score Between -1 & 1, Higher Is More Similar
+     */
+    public double compareAppearance(Mat image, MatOfPoint2f quad, boolean upsideDown, Mat templateThumbnail) {
+        //Warping Straight Into The Thumbnail Would Alias Badly, So We Warp Into a Bigger Size & Then Shrink It
+        Size warpSize = new Size(THUMBNAIL_SIZE.width * 4, THUMBNAIL_SIZE.height * 4);
+        Mat transform = getPerspectiveTransform(quad, warpSize, upsideDown);
+        Mat warped = new Mat();
+        Mat thumbnail = null;
+        Mat result = new Mat();
+
+        try {
+            Imgproc.warpPerspective(image, warped, transform, warpSize);
+            thumbnail = createThumbnail(warped);
+            Imgproc.matchTemplate(thumbnail, templateThumbnail, result, Imgproc.TM_CCOEFF_NORMED);
+            return Core.minMaxLoc(result).maxVal;
+        } finally {
+            transform.release();
+            warped.release();
+            if (thumbnail != null)
+                thumbnail.release();
+            result.release();
+        }
+    }
+
+    private static double distance(Point a, Point b) {
+        return Math.hypot(a.x - b.x, a.y - b.y);
+    }
+}
@@ -0,0 +1,795 @@
+package naji.cardreader;
+
+import org.opencv.calib3d.Calib3d;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.DMatch;
+import org.opencv.core.KeyPoint;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfDMatch;
+import org.opencv.core.MatOfKeyPoint;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.Size;
+import org.opencv.features2d.DescriptorMatcher;
+import org.opencv.features2d.Feature2D;
+import org.opencv.features2d.ORB;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+
+import naji.cardreader.DTOs.AlignedImage;
+import naji.cardreader.DTOs.ExtractedText;
+import naji.cardreader.DTOs.RecognizedText;
+import naji.cardreader.DTOs.Template;
+import naji.cardreader.DTOs.TemplateInfo;
+import naji.cardreader.SerialNumberPipeline.OcrStage;
+
+/**
+ * The Card Recognition Pipeline: Aligns Images With The Templates, Crops & Preprocesses The Serial Number Areas & OCRs Them
+ * <p>
+ * It Only Works On Mats (RGBA Images, Like The Ones Made From Android Bitmaps), So The Same Pipeline Runs Inside The App
+ * And Headless On a Plain JVM. Where Images Come From & How Results Are Shown Is Up To The Caller.
+ * <p>
+ * a Recognizer Owns Its Feature Extractor, Matcher, Tracker & OCR Engines & Is Not Thread Safe,
+ * Concurrent Scans Need One Recognizer Each (They Can Share The Template Registry).
+ */
+public class CardRecognizer {
+    private TemplateRegistry templateRegistry;
+    private final List<OcrEngine> ocrEngines;
+    private final PipelineMetrics pipelineMetrics;
+
+    private final Feature2D featureExtractor;
+    private final DescriptorMatcher matcher;
+    private final CardQuadDetector cardQuadDetector = new CardQuadDetector();
+    private final HomographyTracker homographyTracker = new HomographyTracker();
+    private final CardCornersFilter cardCornersFilter = new CardCornersFilter();
+    private final SerialNumberFusion serialNumberFusion = new SerialNumberFusion();
+    //Whether The Tracked Card Was Found By Its Quad, & Whether The Next Untracked Frame Should Skip The Quad Because Reading Such a Card Failed
+    private boolean trackingCardQuad = false;
+    private boolean skipCardQuad = false;
+    private final TemplateShortlist templateShortlist = new TemplateShortlist();
+    private final HomographyValidator homographyValidator = new HomographyValidator();
+    private final SerialNumberPreprocessor serialNumberPreprocessor = new SerialNumberPreprocessor();
+    private ParallelVariantReader parallelVariantReader;
+    private TemplateLibrary templateLibrary;
+    //The Library Snapshot The Recognizer Currently Scans With, Given Back When It Switches To a Newer One
+    private TemplateRegistry acquiredSnapshot;
+
+    public CardRecognizer(TemplateRegistry templateRegistry, List<OcrEngine> ocrEngines, PipelineMetrics pipelineMetrics) {
+        this.templateRegistry = templateRegistry;
+        this.ocrEngines = ocrEngines;
+        this.pipelineMetrics = pipelineMetrics;
+
+//        featureExtractor = AKAZE.create(); // More Accurate But Slower
+        featureExtractor = ORB.create(); // Accurate Enough And Faster
+        matcher = DescriptorMatcher.create(DescriptorMatcher.BRUTEFORCE_HAMMING);
+    }
+
+    public TemplateRegistry getTemplateRegistry() {
+        return templateRegistry;
+    }
+
+    public PipelineMetrics getPipelineMetrics() {
+        return pipelineMetrics;
+    }
+
+    /**
+     * Scans With The Snapshots Of The Library From Now On (Instead Of The Registry It Was Created With), Switching At The Start Of Every Scan
+     */
+    public void setTemplateLibrary(TemplateLibrary templateLibrary) {
+        this.templateLibrary = templateLibrary;
+        refreshTemplates();
+    }
+
+    /**
+     * Switches To The Latest Snapshot Of The Template Library, If There Is One & It Changed
+     * <p>
+     * Only Called Between Scans (By The Scan Entry Points, Or By Callers Running The Pipeline Steps Themselves),
+     * So a Scan Sees The Same Templates From Start To End. The Tracked Card Is Forgotten, It May Belong To a Removed Template.
+     *
+     * @return Whether The Templates Changed
+     */
+    public boolean refreshTemplates() {
+        if (templateLibrary == null || (acquiredSnapshot != null && templateLibrary.isCurrent(acquiredSnapshot)))
+            return false;
+
+        TemplateRegistry snapshot = templateLibrary.acquireSnapshot();
+        if (acquiredSnapshot != null)
+            templateLibrary.releaseSnapshot(acquiredSnapshot);
+        acquiredSnapshot = snapshot;
+        templateRegistry = snapshot;
+        resetTracking();
+        return true;
+    }
+
+    /**
+     * Reads Several Preprocessing Variants Of Every Serial Number Area In Parallel From Now On, Null Goes Back To The Single Chain
+     * <p>
+     * The Reader Is Left To The Caller, Who Releases It.
+     */
+    public void setParallelVariantReader(ParallelVariantReader parallelVariantReader) {
+        this.parallelVariantReader = parallelVariantReader;
+    }
+
+    /**
+     * Aligns The Image, OCRs The Serial Number Areas & Returns The Best Extracted Text, Or Null If No Serial Number Could Be Read
+     * <p>
+     * The Aligned Images Which Didn't Win Are Released, The Winning One Is Left To The Caller.
+     */
+    public ExtractedText recognize(Mat image) {
+        return recognize(image, null);
+    }
+
+    /**
+     * Like {@link #recognize(Mat)}, But The Image Is Aligned With The Guessed Template First, Skipping The Quad Search & The Shortlist.
+     * Only If That Doesn't Give a Serial Number, The Image Goes Through The Full Search
+     *
+     * @param templateGuess The Name Of The Template The Image Most Likely Shows, Or Null
+     */
+    public ExtractedText recognize(Mat image, String templateGuess) {
+        refreshTemplates();
+        long totalStart = pipelineMetrics.start();
+
+        ExtractedText extractedText = null;
+        Template guessedTemplate = templateGuess == null ? null : templateRegistry.findTemplateByName(templateGuess);
+        if (guessedTemplate != null)
+            extractedText = recognizeWithTemplate(image, guessedTemplate);
+
+        if (extractedText == null) {
+            List<AlignedImage> alignedImages = alignImageWithTemplates(image, true);
+            extractedText = extractSerialNumberAndRelease(alignedImages);
+
+            //a Quad Which Looked Like The Card But Gave No Serial Number Falls Back To The Features
+            if (extractedText == null && isCardQuadAlignment(alignedImages)) {
+                long fallbackStart = pipelineMetrics.start();
+                extractedText = extractSerialNumberAndRelease(alignImageWithFeatures(image, true));
+                pipelineMetrics.record(PipelineMetrics.QUAD_FALLBACK, alignedImages.get(0).templateName, fallbackStart);
+            }
+        }
+
+        pipelineMetrics.record(PipelineMetrics.TOTAL, extractedText == null ? null : extractedText.alignedImage.templateName, totalStart);
+        return extractedText;
+    }
+
+    /**
+     * Reads The Serial Numbers Of The Aligned Images, Only The Winning Aligned Image Is Kept
+     */
+    private ExtractedText extractSerialNumberAndRelease(List<AlignedImage> alignedImages) {
+        ExtractedText extractedText = null;
+        if (alignedImages.size() > 0)
+            extractedText = extractSerialNumberFromAlignedImages(alignedImages);
+
+        for (AlignedImage alignedImage : alignedImages) {
+            if (alignedImage != null && (extractedText == null || alignedImage != extractedText.alignedImage))
+                alignedImage.release();
+        }
+        return extractedText;
+    }
+
+    /**
+     * Whether The Images Came From The Card Quad, Which Should Be Followed By {@link #alignImageWithFeatures(Mat, boolean)} If Nothing Was Read From Them
+     */
+    public static boolean isCardQuadAlignment(List<AlignedImage> alignedImages) {
+        return alignedImages.size() == 1 && alignedImages.get(0) != null && alignedImages.get(0).alignedWithCardQuad;
+    }
+
+    /**
+     * Aligns The Image With One Template & Reads Its Serial Number, Or Returns Null If The Alignment Isn't Nice Or Nothing Was Read
+     */
+    private ExtractedText recognizeWithTemplate(Mat image, Template template) {
+        AlignedImage alignedImage = alignImageWithTemplate(image, template);
+        if (alignedImage == null)
+            return null;
+
+        ExtractedText extractedText = null;
+        if (alignedImage.niceHomography) {
+            alignedImage.serialNumberImage = cropSerialNumberArea(alignedImage);
+            extractedText = extractSerialNumberFromAlignedImages(Collections.singletonList(alignedImage));
+        }
+        if (extractedText == null)
+            alignedImage.release();
+        return extractedText;
+    }
+
+    /**
+     * Given a List of Aligned Images, Extracts Serial Number From Them And Tries To Find The Most Correct Text From Them, If Not, Returns Null
+     */
+    public ExtractedText extractSerialNumberFromAlignedImages(List<AlignedImage> alignedImages) {
+        List<ExtractedText> extractedTexts = new ArrayList<>();
+        for (AlignedImage alignedImage : alignedImages) {
+            List<ExtractedText> extractedText = extractSerialNumberFromAlignedImage(alignedImage);
+            extractedTexts.addAll(extractedText);
+        }
+
+        return chooseBestExtractedText(extractedTexts);
+    }
+
+    /**
+     * Chooses The Best Extracted Text Based On Text Length & Confidence, Or Null If None Of Them Looks Like a Serial Number
+     */
+    public ExtractedText chooseBestExtractedText(List<ExtractedText> extractedTexts) {
+        ExtractedText bestExtractedText = null;
+        if (extractedTexts.size() > 0) {
+            Collections.sort(extractedTexts, (t1, t2) -> t2.confidence - t1.confidence);
+
+            bestExtractedText = extractedTexts.stream()
+                    .filter(x -> x.text.length() >= 10)
+                    .max(Comparator.comparingInt(x -> x.confidence))
+                    .orElse(null);
+        }
+
+        return bestExtractedText;
+    }
+
+    /**
+     * Aligns an Image With All of The Templates We Have
+     * <p>
+     * If The Card Edges Can Be Found, The Card Is Warped Directly & Only The Best Matching Template Is Returned,
+     * Otherwise We Fall Back To Feature Based Alignment With The Shortlisted Templates.
+     */
+    public List<AlignedImage> alignImageWithTemplates(Mat image) {
+        return alignImageWithTemplates(image, true);
+    }
+
+    /**
+     * Aligns an Image With All of The Templates We Have
+     *
+     * @param cropSerialNumbers Whether The Serial Number Areas Should Be Cropped & Preprocessed From The Aligned Images Right Away
+     */
+    public List<AlignedImage> alignImageWithTemplates(Mat image, boolean cropSerialNumbers) {
+        List<AlignedImage> alignedImages = new ArrayList<>();
+
+        long quadStart = pipelineMetrics.start();
+        AlignedImage quadAlignedImage = alignImageWithCardQuad(image);
+        pipelineMetrics.record(PipelineMetrics.QUAD, quadAlignedImage == null ? null : quadAlignedImage.templateName, quadStart);
+        if (quadAlignedImage != null) {
+            if (cropSerialNumbers)
+                quadAlignedImage.serialNumberImage = cropSerialNumberArea(quadAlignedImage);
+            alignedImages.add(quadAlignedImage);
+            return alignedImages;
+        }
+
+        return alignImageWithFeatures(image, cropSerialNumbers);
+    }
+
+    /**
+     * Aligns an Image With The Shortlisted Templates By Matching Their Features, Without Looking For The Card Quad
+     *
+     * @param cropSerialNumbers Whether The Serial Number Areas Should Be Cropped & Preprocessed From The Aligned Images Right Away
+     */
+    public List<AlignedImage> alignImageWithFeatures(Mat image, boolean cropSerialNumbers) {
+        List<AlignedImage> alignedImages = new ArrayList<>();
+
+        //The Pipeline Works On RGBA Images (As Made From Android Bitmaps)
+        long shortlistStart = pipelineMetrics.start();
+        List<Template> shortlistedTemplates = templateShortlist.shortlist(image, true, templateRegistry.getTemplates(), TemplateShortlist.SHORTLIST_SIZE);
+        pipelineMetrics.record(PipelineMetrics.SHORTLIST, null, shortlistStart);
+        for (Template template : shortlistedTemplates) {
+            AlignedImage alignedImage = alignImageWithTemplate(image, template);
+
+            //Crop The Serial Number Area From The Aligned Image & Add It To The Object
+            if (alignedImage != null && cropSerialNumbers)
+                alignedImage.serialNumberImage = cropSerialNumberArea(alignedImage);
+            alignedImages.add(alignedImage);
+        }
+
+        return alignedImages;
+    }
+
+    /**
+     * Collects The Serial Number Areas Of Tracked Live Frames & OCRs Their Fusion Once Enough Frames Are Collected
+     *
+     * @param frameTimestamp The Timestamp Of The Frame, Carried Into The Extracted Text
+     * @return The Extracted Text, Or Null If More Frames Are Needed (Or The Card Is Not Tracked)
+     */
+    public ExtractedText extractSerialNumberFromFrame(Mat frame, long frameTimestamp) {
+        //While a Card Is Being Tracked The Templates Are Kept, The Next Scan Picks Up The Changes
+        if (!homographyTracker.isTracking())
+            refreshTemplates();
+        List<AlignedImage> alignedImages = alignFrameWithTemplates(frame);
+
+        //Only Frames Aligned By The Tracker Are Steady Enough To Be Fused
+        AlignedImage trackedImage = null;
+        if (homographyTracker.isTracking()) {
+            String trackedTemplateName = homographyTracker.getTemplate().templateResourceName;
+            trackedImage = alignedImages.stream()
+                    .filter(x -> x != null && x.templateName.equals(trackedTemplateName))
+                    .findFirst()
+                    .orElse(null);
+        }
+
+        //Live Frames Arrive Continuously, So Aligned Images We Don't Need Are Released Right Away
+        for (AlignedImage alignedImage : alignedImages) {
+            if (alignedImage != null && alignedImage != trackedImage)
+                alignedImage.release();
+        }
+
+        if (trackedImage == null) {
+            serialNumberFusion.clear();
+            return null;
+        }
+
+        //The Serial Number Image Is Made From The Fused Areas Instead
+        if (trackedImage.serialNumberImage != null)
+            trackedImage.serialNumberImage.release();
+        if (trackedImage.serialNumberArea != null)
+            trackedImage.serialNumberArea.release();
+        trackedImage.serialNumberImage = null;
+        trackedImage.serialNumberArea = null;
+
+        Mat serialNumberArea = trackedImage.image.submat(getSerialNumberRect(templateRegistry.getTemplateInfo(trackedImage.templateName)));
+        boolean ready = serialNumberFusion.add(trackedImage.templateName, serialNumberArea);
+        serialNumberArea.release();
+        if (!ready) {
+            trackedImage.release();
+            return null;
+        }
+
+        Mat fusedSerialNumberArea = serialNumberFusion.fuse();
+        serialNumberFusion.clear();
+        long preprocessStart = pipelineMetrics.start();
+        trackedImage.serialNumberImage = preprocessSerialNumberArea(fusedSerialNumberArea, templateRegistry.getTemplateInfo(trackedImage.templateName));
+        pipelineMetrics.record(PipelineMetrics.PREPROCESS, trackedImage.templateName, preprocessStart);
+        trackedImage.serialNumberArea = fusedSerialNumberArea;
+        trackedImage.serialNumberResizeFactor = SerialNumberPreprocessor.DEFAULT_RESIZE_FACTOR;
+
+        ExtractedText extractedText = extractSerialNumberFromAlignedImages(Collections.singletonList(trackedImage));
+        if (extractedText == null) {
+            trackedImage.release();
+            //a Card Tracked From Its Quad Which Gave No Serial Number Is Aligned Again With The Features
+            if (trackingCardQuad) {
+                resetTracking();
+                skipCardQuad = true;
+            }
+            return null;
+        }
+
+        extractedText.frameTimestamp = frameTimestamp;
+        return extractedText;
+    }
+
+    /**
+     * Aligns a Live Camera Frame With The Templates
+     * <p>
+     * While The Card Is Being Tracked, The Homography Is Updated Cheaply With Optical Flow.
+     * Only When The Track Degrades (Or Before The First Detection) a Full Alignment Is Done, Which Then Re-Seeds The Tracker.
+     * The Tracked Card Corners Are Smoothed Between Frames So The Serial Number Crop Stays Steady.
+     * Tracked Frames Are Not Cropped Here, Since Their Serial Number Areas Are Fused Before Preprocessing.
+     */
+    public List<AlignedImage> alignFrameWithTemplates(Mat frame) {
+        Mat frameGray = new Mat();
+        Imgproc.cvtColor(frame, frameGray, Imgproc.COLOR_BGR2GRAY);
+
+        try {
+            if (homographyTracker.isTracking()) {
+                Template template = homographyTracker.getTemplate();
+                long trackStart = pipelineMetrics.start();
+                Mat homography = homographyTracker.track(frameGray);
+                pipelineMetrics.record(PipelineMetrics.TRACK, template.templateResourceName, trackStart);
+
+                if (homography != null && determineNiceHomography(getHomographyProperties(homography))) {
+                    Mat stabilizedHomography = stabilizeHomography(homography, template);
+                    homography.release();
+
+                    AlignedImage alignedImage = alignImageWithHomography(frame, stabilizedHomography, template);
+                    return new ArrayList<>(Collections.singletonList(alignedImage));
+                }
+
+                if (homography != null)
+                    homography.release();
+                homographyTracker.reset();
+            }
+
+            cardCornersFilter.reset();
+            List<AlignedImage> alignedImages = skipCardQuad ? alignImageWithFeatures(frame, true) : alignImageWithTemplates(frame);
+            skipCardQuad = false;
+
+            //Seed The Tracker (And The Corners Filter) With The Most Reliable Alignment We Have
+            alignedImages.stream()
+                    .filter(x -> x != null && x.niceHomography)
+                    .max(Comparator.comparingInt(x -> x.homographyInliers))
+                    .ifPresent(x -> {
+                        Template template = templateRegistry.findTemplateByName(x.templateName);
+                        if (homographyTracker.seed(frameGray, x.homography, template)) {
+                            stabilizeHomography(x.homography, template).release();
+                            trackingCardQuad = x.alignedWithCardQuad;
+                        }
+                    });
+
+            return alignedImages;
+        } finally {
+            frameGray.release();
+        }
+    }
+
+    /**
+     * Passes The Card Corners Of The Homography Through The Kalman Filter & Builds a Steady Homography From Them
+     */
+    public Mat stabilizeHomography(Mat homography, Template template) {
+        MatOfPoint2f cardCorners = homographyTracker.getCardCorners(homography, template.templateSize);
+        Point[] filteredCorners = cardCornersFilter.filter(cardCorners.toArray());
+        cardCorners.release();
+        return cardCornersFilter.getStabilizedHomography(filteredCorners, template.templateSize);
+    }
+
+    /**
+     * Warps The Image Into The Template Using an Already Known Homography (Image To Template), Which Has To Be Validated Already
+     */
+    public AlignedImage alignImageWithHomography(Mat image, Mat homography, Template template) {
+        double determinant = getHomographyProperties(homography)[0];
+
+        long warpStart = pipelineMetrics.start();
+        Mat outputMat = new Mat();
+        Imgproc.warpPerspective(image, outputMat, homography, template.templateSize);
+        pipelineMetrics.record(PipelineMetrics.WARP, template.templateResourceName, warpStart);
+
+        return new AlignedImage(outputMat, homography, true, determinant, template.templateResourceId, template.templateResourceName);
+    }
+
+    /**
+     * Finds The Card Quad In The Image & Warps It Into The Template Which Has The Same Aspect Ratio & The Most Similar Appearance
+     *
+     * @return The Aligned Image, Or Null If No Clean Quad Was Found Or No Template Looked Like It
+     */
+    public AlignedImage alignImageWithCardQuad(Mat image) {
+        MatOfPoint2f quad = cardQuadDetector.detectCardQuad(image);
+        if (quad == null)
+            return null;
+
+        try {
+            double quadAspectRatio = cardQuadDetector.getAspectRatio(quad);
+
+            Template bestTemplate = null;
+            boolean bestUpsideDown = false;
+            double bestScore = CardQuadDetector.MIN_APPEARANCE_SCORE;
+            for (Template template : templateRegistry.getTemplates()) {
+                if (!cardQuadDetector.matchesAspectRatio(quadAspectRatio, template.templateSize))
+                    continue;
+
+                for (boolean upsideDown : new boolean[]{false, true}) {
+                    double score = cardQuadDetector.compareAppearance(image, quad, upsideDown, template.templateThumbnail);
+                    if (score > bestScore) {
+                        bestScore = score;
+                        bestTemplate = template;
+                        bestUpsideDown = upsideDown;
+                    }
+                }
+            }
+
+            if (bestTemplate == null)
+                return null;
+
+            long transformStart = pipelineMetrics.start();
+            Mat transform = cardQuadDetector.getPerspectiveTransform(quad, bestTemplate.templateSize, bestUpsideDown);
+
+            //a Quad Which Only Looks Like a Card May Still Be Too Skewed Or Too Small, Then The Features Decide
+            if (!determineNiceHomography(getHomographyProperties(transform))) {
+                pipelineMetrics.record(PipelineMetrics.QUAD_REJECTED, bestTemplate.templateResourceName, transformStart);
+                transform.release();
+                return null;
+            }
+
+            AlignedImage alignedImage = alignImageWithHomography(image, transform, bestTemplate);
+            //The Four Corners Of The Quad Are All The Homography Was Made Of
+            alignedImage.homographyInliers = 4;
+            alignedImage.alignedWithCardQuad = true;
+            return alignedImage;
+        } finally {
+            quad.release();
+        }
+    }
+
+    /**
+     * Given an Image, It Aligns The Image With a Template (Needed For Extracting The Serial Number Region)
+     */
+    public AlignedImage alignImageWithTemplate(Mat image, Template template) {
+        String templateName = template.templateResourceName;
+        long grayAndResizeStart = pipelineMetrics.start();
+        Mat imageGray = new Mat();
+        Imgproc.cvtColor(image, imageGray, Imgproc.COLOR_BGR2GRAY);
+
+        int image_width = image.width();
+        float scale = ((float) template.templateSize.width) / image_width;
+        Imgproc.resize(imageGray, imageGray, new Size(), scale, scale, Imgproc.INTER_LINEAR);
+        pipelineMetrics.record(PipelineMetrics.GRAY_AND_RESIZE, templateName, grayAndResizeStart);
+
+        MatOfKeyPoint imageKeypoints = new MatOfKeyPoint();
+        Mat imageDescriptors = new Mat();
+        MatOfDMatch matches = new MatOfDMatch();
+        Mat inliersMask = new Mat();
+        //Stands In For The Optional Arguments (The Feature Mask & The Term Added By gemm)
+        Mat noMat = new Mat();
+        MatOfPoint2f templatePoints = new MatOfPoint2f();
+        MatOfPoint2f imagePoints = new MatOfPoint2f();
+        Mat resizedHomography = null;
+        Mat scaleMat = null;
+        //Owned By The Aligned Image Once It Is Made, Released Here If Anything Fails Before
+        Mat homography = null;
+        Mat outputMat = null;
+
+        try {
+            //Detecting Image Features
+            long detectAndComputeStart = pipelineMetrics.start();
+            featureExtractor.detectAndCompute(imageGray, noMat, imageKeypoints, imageDescriptors, false);
+            pipelineMetrics.record(PipelineMetrics.DETECT_AND_COMPUTE, templateName, detectAndComputeStart);
+
+            //Matching Features From Template To Image
+            long matchStart = pipelineMetrics.start();
+            matcher.match(template.templateDescriptors, imageDescriptors, matches);
+            pipelineMetrics.record(PipelineMetrics.MATCH, templateName, matchStart);
+            List<DMatch> matchesList = matches.toList();
+
+            double max_dist = 0.0;
+            double min_dist = 100.0;
+
+            for (int i = 0; i < matchesList.size(); i++) {
+                double dist = (double) matchesList.get(i).distance;
+                if (dist < min_dist)
+                    min_dist = dist;
+                if (dist > max_dist)
+                    max_dist = dist;
+            }
+
+            LinkedList<DMatch> goodMatchesList = new LinkedList<DMatch>();
+            for (int i = 0; i < matchesList.size(); i++) {
+                if (matchesList.get(i).distance < (3 * min_dist)) {
+                    goodMatchesList.addLast(matchesList.get(i));
+                }
+            }
+
+            if (goodMatchesList.size() > 0) {
+                LinkedList<Point> templateList = new LinkedList<>();
+                LinkedList<Point> imageList = new LinkedList<>();
+
+                List<KeyPoint> templateKeypointsList = template.templateKeypoints.toList();
+                List<KeyPoint> imageKeypointsList = imageKeypoints.toList();
+
+                for (int i = 0; i < goodMatchesList.size(); i++) {
+                    templateList.addLast(templateKeypointsList.get(goodMatchesList.get(i).queryIdx).pt);
+                    imageList.addLast(imageKeypointsList.get(goodMatchesList.get(i).trainIdx).pt);
+                }
+
+                templatePoints.fromList(templateList);
+                imagePoints.fromList(imageList);
+
+                long findHomographyStart = pipelineMetrics.start();
+                resizedHomography = Calib3d.findHomography(imagePoints, templatePoints, Calib3d.RANSAC, 3, inliersMask, 2000, 0.995);
+                pipelineMetrics.record(PipelineMetrics.FIND_HOMOGRAPHY, templateName, findHomographyStart);
+
+                //The Features Were Found On The Resized Image, So We Fold The Scale Into The Homography To Map The Original Image
+                scaleMat = Mat.eye(3, 3, CvType.CV_64F);
+                scaleMat.put(0, 0, scale);
+                scaleMat.put(1, 1, scale);
+                homography = new Mat();
+                Core.gemm(resizedHomography, scaleMat, 1, noMat, 0, homography);
+
+                double[] homographyProperties = getHomographyProperties(homography);
+                boolean niceHomography = determineNiceHomography(homographyProperties);
+                double determinant = homographyProperties[0];
+
+                long warpStart = pipelineMetrics.start();
+                outputMat = new Mat();
+                Imgproc.warpPerspective(image, outputMat, homography, template.templateSize);
+                Imgproc.resize(outputMat, outputMat, template.templateSize);
+                pipelineMetrics.record(PipelineMetrics.WARP, templateName, warpStart);
+
+                AlignedImage alignedImage = new AlignedImage(outputMat, homography, niceHomography, determinant, template.templateResourceId, template.templateResourceName);
+                alignedImage.homographyInliers = Core.countNonZero(inliersMask);
+                outputMat = null;
+                homography = null;
+                return alignedImage;
+            } else {
+                return null;
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            imageKeypoints.release();
+            imageDescriptors.release();
+            matches.release();
+            inliersMask.release();
+            imageGray.release();
+            noMat.release();
+            templatePoints.release();
+            imagePoints.release();
+            if (resizedHomography != null)
+                resizedHomography.release();
+            if (scaleMat != null)
+                scaleMat.release();
+            if (homography != null)
+                homography.release();
+            if (outputMat != null)
+                outputMat.release();
+        }
+    }
+
+    /**
+     * Extracts The Properties Of The Homography Matrix Including The Determinant
+     *
+     * @see HomographyValidator#getHomographyProperties(Mat)
+     */
+    public double[] getHomographyProperties(Mat homography) {
+        return homographyValidator.getHomographyProperties(homography);
+    }
+
+    /**
+     * Whether The Homography Describes a Plausible View Of a Card
+     *
+     * @see HomographyValidator#determineNiceHomography(double[])
+     */
+    public boolean determineNiceHomography(double[] homographyProperties) {
+        return homographyValidator.determineNiceHomography(homographyProperties);
+    }
+
+    /**
+     * Crops The Given Image To Get The Serial Number Area. Each Template (Card) Has Its Own Hard Coded Serial Number Positions
+     * <p>
+     * The Cropped Area Is Kept On The Aligned Image (For Preprocessing Variants), The Preprocessed Image Is Returned.
+     */
+    public Mat cropSerialNumberArea(AlignedImage alignedImage) {
+        TemplateInfo templateInfo = templateRegistry.getTemplateInfo(alignedImage.templateName);
+        Mat submat = alignedImage.image.submat(getSerialNumberRect(templateInfo));
+
+        long preprocessStart = pipelineMetrics.start();
+        Mat serialNumberImage = preprocessSerialNumberArea(submat, templateInfo);
+        pipelineMetrics.record(PipelineMetrics.PREPROCESS, alignedImage.templateName, preprocessStart);
+
+        if (alignedImage.serialNumberArea != null)
+            alignedImage.serialNumberArea.release();
+        alignedImage.serialNumberArea = submat;
+        alignedImage.serialNumberResizeFactor = SerialNumberPreprocessor.DEFAULT_RESIZE_FACTOR;
+        return serialNumberImage;
+    }
+
+    /**
+     * The Hard Coded Serial Number Position Of The Template (In Template Coordinates)
+     */
+    public Rect getSerialNumberRect(TemplateInfo templateInfo) {
+        int XLeft, XRight, YTop, YBottom, distanceX, distanceY;
+
+        XLeft = templateInfo.XLeft;
+        XRight = templateInfo.XRight;
+        YTop = templateInfo.YTop;
+        YBottom = templateInfo.YBottom;
+        distanceX = XRight - XLeft;
+        distanceY = YBottom - YTop;
+        return new Rect(XLeft, YTop, distanceX, distanceY);
+    }
+
+    /**
+     * Enhances & Binarizes The Serial Number Area So Tesseract Can Read It, With The Preprocessing Profile Of The Template
+     */
+    public Mat preprocessSerialNumberArea(Mat submat, TemplateInfo templateInfo) {
+        return preprocessSerialNumberArea(submat, SerialNumberPreprocessor.DEFAULT_RESIZE_FACTOR, templateInfo);
+    }
+
+    /**
+     * Enhances & Binarizes The Serial Number Area So Tesseract Can Read It, With The Declared Pipeline Or The Preprocessing Profile Of The Template
+     *
+     * @param submat       The Serial Number Area, It Is Only Read & Stays With The Caller
+     * @param resizeFactor How Much The Area Is Upscaled, Areas Already Read At a Higher Resolution Need Less
+     * @return The Binary Image, Valid Until The Next Area Of The Same Template Is Preprocessed
+     * @see SerialNumberPreprocessor#preprocess(Mat, double, String, String)
+     */
+    public Mat preprocessSerialNumberArea(Mat submat, double resizeFactor, TemplateInfo templateInfo) {
+        if (templateInfo.serialNumberPipeline != null)
+            return serialNumberPreprocessor.preprocess(submat, resizeFactor, templateInfo.serialNumberPipeline, templateInfo.templateName);
+        return serialNumberPreprocessor.preprocess(submat, resizeFactor, templateInfo.preprocessingProfile, templateInfo.templateName);
+    }
+
+    /**
+     * Given The Preprocessed Serial Number Image, It OCRs The Image With Every Engine And Extract Distinguishable Numbers (or Text) From It
+     * <p>
+     * With a Parallel Variant Reader, Several Preprocessing Variants Of The Area Are Read & Only The Texts Of The Best One Are Returned.
+     */
+    public ArrayList<ExtractedText> extractSerialNumberFromAlignedImage(AlignedImage alignedImage) {
+        String extractedText;
+        ArrayList<ExtractedText> extractedTexts = new ArrayList<>();
+        TemplateInfo templateInfo = templateRegistry.getTemplateInfo(alignedImage.templateName);
+
+        if (parallelVariantReader != null && alignedImage.serialNumberArea != null) {
+            try {
+                return parallelVariantReader.read(alignedImage, templateInfo);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return extractedTexts;
+            }
+        }
+
+        for (OcrEngine ocrEngine : ocrEngines) {
+            if (!configureOcrEngine(ocrEngine, templateInfo))
+                continue;
+            try {
+                long ocrStart = pipelineMetrics.start();
+                RecognizedText recognizedText = ocrEngine.recognize(alignedImage.serialNumberImage);
+                extractedText = recognizedText.text;
+                int confidence = recognizedText.confidence;
+                pipelineMetrics.record(PipelineMetrics.OCR + ocrEngine.getName(), alignedImage.templateName, ocrStart);
+
+                extractedTexts.add(new ExtractedText(ocrEngine.getName(), cleanText(extractedText, templateInfo), confidence, alignedImage));
+            } catch (Exception e) {
+                System.out.println("Error in Recognizing Text.");
+            }
+        }
+        return extractedTexts;
+    }
+
+    /**
+     * Configures The Engine As The Template Declares (Or As The Engine Was Created If It Declares Nothing)
+     *
+     * @return Whether The Template Is Read With The Engine At All
+     */
+    public static boolean configureOcrEngine(OcrEngine ocrEngine, TemplateInfo templateInfo) {
+        SerialNumberPipeline serialNumberPipeline = templateInfo.serialNumberPipeline;
+        if (serialNumberPipeline == null || !serialNumberPipeline.hasOcrStages()) {
+            ocrEngine.configure(null, null);
+            return true;
+        }
+
+        OcrStage ocrStage = serialNumberPipeline.getOcrStage(ocrEngine.getName());
+        if (ocrStage == null)
+            return false;
+        ocrEngine.configure(ocrStage.characterWhitelist, ocrStage.pageSegmentationMode);
+        return true;
+    }
+
+    /**
+     * Cleans Up The Extracted Text Based On the XML Information, Drops The Spaces & Cuts It To a Length The Template Allows
+     */
+    public static String cleanText(String extractedText, TemplateInfo templateInfo) {
+        extractedText = extractedText.replace(" ", "");
+        for (int characterLength : templateInfo.characterLengths) {
+            int extractedTextLength = extractedText.length();
+            if (!Arrays.stream(templateInfo.characterLengths).anyMatch(i -> i == extractedTextLength)) {
+                extractedText = extractedText.substring(0, Math.min(extractedText.length(), characterLength));
+            }
+        }
+        return extractedText;
+    }
+
+    /**
+     * Whether The (Cleaned) Text Looks Like a Serial Number Of The Template, Matching Its Declared Format,
+     * Or Otherwise Having One Of Its Lengths & Only Letters Or Digits
+     */
+    public static boolean isFormatValid(String text, TemplateInfo templateInfo) {
+        if (templateInfo.serialNumberPipeline != null && templateInfo.serialNumberPipeline.getFormat() != null)
+            return templateInfo.serialNumberPipeline.getFormat().matcher(text).matches();
+
+        int textLength = text.length();
+        if (!Arrays.stream(templateInfo.characterLengths).anyMatch(i -> i == textLength))
+            return false;
+        return text.chars().allMatch(Character::isLetterOrDigit);
+    }
+
+    /**
+     * Forgets The Tracked Card & The Collected Live Frames, So The Next Frame Starts a New Scan
+     */
+    public void resetTracking() {
+        homographyTracker.reset();
+        cardCornersFilter.reset();
+        serialNumberFusion.clear();
+    }
+
+    /**
+     * Destroys OpenCV Resources To Prevent Memory Overflow, The Template Registry & OCR Engines Are Left To Their Owners
+     * (a Library Snapshot Is Given Back)
+     */
+    public void release() {
+        if (acquiredSnapshot != null) {
+            templateLibrary.releaseSnapshot(acquiredSnapshot);
+            acquiredSnapshot = null;
+        }
+        homographyTracker.release();
+        cardCornersFilter.release();
+        serialNumberFusion.clear();
+        serialNumberPreprocessor.release();
+    }
+}
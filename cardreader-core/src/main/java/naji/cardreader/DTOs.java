@@ -0,0 +1,190 @@
+package naji.cardreader;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfKeyPoint;
+import org.opencv.core.Size;
+
+public class DTOs {
+    /**
+     * a DTO For Storing Aligned Images & Their Properties
+     */
+    static class AlignedImage {
+        Mat image;
+        Mat homography;
+        Boolean niceHomography;
+        double homographyDeterminant;
+        int homographyInliers;
+        int templateId;
+        String templateName;
+        //The Preprocessed (Binary) Serial Number Area, Ready For OCR
+        Mat serialNumberImage;
+        //The Serial Number Area It Was Preprocessed From & How Much It Was Upscaled, Kept For Preprocessing Variants
+        Mat serialNumberArea;
+        double serialNumberResizeFactor = SerialNumberPreprocessor.DEFAULT_RESIZE_FACTOR;
+        //Warped From The Card Edges Instead Of Matched Features, So a Failed Read Can Still Fall Back To The Features
+        boolean alignedWithCardQuad;
+
+        AlignedImage(Mat image, Mat homography, Boolean niceHomography, double homographyDeterminant, int templateId, String templateName) {
+            this.image = image;
+            this.homography = homography;
+            this.niceHomography = niceHomography;
+            this.homographyDeterminant = homographyDeterminant;
+            this.templateId = templateId;
+            this.templateName = templateName;
+        }
+
+        void release() {
+            image.release();
+            homography.release();
+            if (serialNumberImage != null)
+                serialNumberImage.release();
+            if (serialNumberArea != null)
+                serialNumberArea.release();
+        }
+    }
+
+    /**
+     * a DTO For Storing a Captured Photo, Decoded At The Working Resolution, Alongside Its Encoded Original
+     */
+    static class CapturedImage {
+        Mat image;
+        byte[] imageBytes;
+        Mat originalToImage;
+        int originalWidth;
+        int originalHeight;
+
+        CapturedImage(Mat image, byte[] imageBytes, Mat originalToImage, int originalWidth, int originalHeight) {
+            this.image = image;
+            this.imageBytes = imageBytes;
+            this.originalToImage = originalToImage;
+            this.originalWidth = originalWidth;
+            this.originalHeight = originalHeight;
+        }
+
+        void release() {
+            image.release();
+            originalToImage.release();
+        }
+    }
+
+    /**
+     * a DTO For Storing One Photo Of a Burst & How Good It Looks For Reading
+     */
+    static class BurstFrame {
+        byte[] imageBytes;
+        int rotationDegrees;
+        double sharpness;
+        double exposure;
+        boolean cardQuadFound;
+
+        BurstFrame(byte[] imageBytes, int rotationDegrees) {
+            this.imageBytes = imageBytes;
+            this.rotationDegrees = rotationDegrees;
+        }
+    }
+
+    /**
+     * a DTO For Storing The Features Of Template Images & Their Properties,
+     * The Pixels Themselves Aren't Kept & Are Loaded Through {@link TemplatePixelCache} When Needed
+     */
+    static class Template {
+        int templateResourceId;
+        String templateResourceName;
+        TemplateInfo templateInfo;
+        Size templateSize;
+        TemplatePixelCache.Loader templateImageLoader;
+        MatOfKeyPoint templateKeypoints;
+        Mat templateDescriptors;
+        Mat templateThumbnail;
+        Mat templateSignature;
+
+        Template(int templateResourceId, String templateResourceName, TemplateInfo templateInfo, Size templateSize, TemplatePixelCache.Loader templateImageLoader, MatOfKeyPoint templateKeypoints, Mat templateDescriptors, Mat templateThumbnail, Mat templateSignature) {
+            this.templateResourceId = templateResourceId;
+            this.templateResourceName = templateResourceName;
+            this.templateInfo = templateInfo;
+            this.templateSize = templateSize;
+            this.templateImageLoader = templateImageLoader;
+            this.templateKeypoints = templateKeypoints;
+            this.templateDescriptors = templateDescriptors;
+            this.templateThumbnail = templateThumbnail;
+            this.templateSignature = templateSignature;
+        }
+    }
+
+    /**
+     * a DTO For Storing The Raw Result Of an OCR Engine
+     */
+    static class RecognizedText {
+        String text;
+        int confidence;
+
+        RecognizedText(String text, int confidence) {
+            this.text = text;
+            this.confidence = confidence;
+        }
+    }
+
+    /**
+     * Extracted Texts Using Tesseract Are Stored In This DTO To Use Later
+     */
+    static class ExtractedText {
+        String ocrEngineName;
+        String text;
+        int confidence;
+        AlignedImage alignedImage;
+        //The Timestamp Of The Live Frame The Text Was Read From, Zero For Captured Photos
+        long frameTimestamp;
+
+        ExtractedText(String ocrEngineName, String text, int confidence, AlignedImage alignedImage) {
+            this.ocrEngineName = ocrEngineName;
+            this.text = text;
+            this.confidence = confidence;
+            this.alignedImage = alignedImage;
+        }
+    }
+
+    /**
+     * One Way Of Preprocessing The Serial Number Area, Tried Next To The Others When The Usual Way Doesn't Read Well
+     */
+    static class PreprocessingVariant {
+        String name;
+        //One Of The SerialNumberPreprocessor Profiles, Or Null For The Profile Of The Template
+        String profile;
+        //Multiplies The Usual Resize Factor Of The Area
+        double resizeScale;
+        //Swaps Black & White, For Light Characters Printed On Dark Cards
+        boolean inverted;
+
+        PreprocessingVariant(String name, String profile, double resizeScale, boolean inverted) {
+            this.name = name;
+            this.profile = profile;
+            this.resizeScale = resizeScale;
+            this.inverted = inverted;
+        }
+    }
+
+    /**
+     * Extracted Texts Using Tesseract Are Stored In This DTO To Use Later
+     */
+    static class TemplateInfo {
+        String templateName;
+        int XLeft;
+        int XRight;
+        int YTop;
+        int YBottom;
+        int[] characterLengths;
+        //One Of The SerialNumberPreprocessor Profiles, The Accurate One Unless The Template Asks For Another
+        String preprocessingProfile = SerialNumberPreprocessor.DEFAULT_PROFILE;
+        //The Steps, OCR Engines & Format The Template Declares, Used Instead Of The Profile If It Declares Any
+        SerialNumberPipeline serialNumberPipeline;
+
+        TemplateInfo(String templateName, int XLeft, int XRight, int YTop, int YBottom, int[] characterLengths) {
+            this.templateName = templateName;
+            this.XLeft = XLeft;
+            this.XRight = XRight;
+            this.YTop = YTop;
+            this.YBottom = YBottom;
+            this.characterLengths = characterLengths;
+        }
+    }
+}
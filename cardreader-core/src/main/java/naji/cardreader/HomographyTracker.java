@@ -0,0 +1,209 @@
+package naji.cardreader;
+
+import org.opencv.calib3d.Calib3d;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.MatOfFloat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.core.TermCriteria;
+import org.opencv.imgproc.Imgproc;
+import org.opencv.video.SparsePyrLKOpticalFlow;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import naji.cardreader.DTOs.Template;
+
+/**
+ * Follows The Card Between Live Frames With Sparse (Lucas-Kanade) Optical Flow
+ * <p>
+ * The Card Barely Moves Between Two Frames, So Instead Of Detecting & Matching Features On Every Frame,
+ * We Seed The Tracker From a Successful Alignment And Then Only Follow a Few Hundred Points Inside The Card.
+ * The Homography Is Re-Estimated From The Followed Points, Which Is Much Cheaper Than a Full Alignment.
+ * When Too Many Points Are Lost The Track Is Dropped & The Caller Should Re-Detect The Card.
+ */
+public class HomographyTracker {
+    static final int MAX_TRACKED_POINTS = 200;
+    static final int MIN_TRACKED_POINTS = 30;
+    static final double MIN_TRACKED_RATIO = 0.5;
+    static final double RANSAC_REPROJECTION_THRESHOLD = 3.0;
+
+    //OpenCV's Defaults Are Spelled Out Here & Below, The Desktop Build Lacks The Shorter Overloads Android Has
+    private final SparsePyrLKOpticalFlow opticalFlow = SparsePyrLKOpticalFlow.create(
+            new Size(21, 21), 3, new TermCriteria(TermCriteria.COUNT | TermCriteria.EPS, 30, 0.01), 0, 1e-4);
+
+    private Template template;
+    private Mat previousImageGray = new Mat();
+    private MatOfPoint2f imagePoints = new MatOfPoint2f();
+    private MatOfPoint2f templatePoints = new MatOfPoint2f();
+    private Mat homography;
+    private int seededPointsCount;
+
+    /**
+     * Starts a New Track From an Image Whose Homography (Image To Template) Is Already Known
+     *
+     * @return Whether Enough Trackable Points Were Found Inside The Card
+     */
+    public boolean seed(Mat imageGray, Mat homography, Template template) {
+        reset();
+
+        //Only Track Points That Lie Inside The Card
+        Mat mask = Mat.zeros(imageGray.size(), CvType.CV_8UC1);
+        MatOfPoint2f cardCorners = getCardCorners(homography, template.templateSize);
+        Imgproc.fillConvexPoly(mask, new MatOfPoint(cardCorners.toArray()), new Scalar(255));
+
+        MatOfPoint corners = new MatOfPoint();
+        Imgproc.goodFeaturesToTrack(imageGray, corners, MAX_TRACKED_POINTS, 0.01, 7, mask, 3, false, 0.04);
+        mask.release();
+        cardCorners.release();
+
+        if (corners.rows() < MIN_TRACKED_POINTS) {
+            corners.release();
+            return false;
+        }
+
+        //Each Followed Point Keeps Its Fixed Position In The Template Coordinates
+        imagePoints.fromArray(corners.toArray());
+        corners.release();
+        Core.perspectiveTransform(imagePoints, templatePoints, homography);
+
+        imageGray.copyTo(previousImageGray);
+        this.homography = homography.clone();
+        this.template = template;
+        this.seededPointsCount = imagePoints.rows();
+        return true;
+    }
+
+    /**
+     * Follows The Points Into The New Image & Re-Estimates The Homography
+     *
+     * @return The Updated Homography (Image To Template), Or Null If The Track Has Degraded And Was Dropped
+     */
+    public Mat track(Mat imageGray) {
+        if (!isTracking())
+            return null;
+
+        MatOfPoint2f nextImagePoints = new MatOfPoint2f();
+        MatOfByte status = new MatOfByte();
+        MatOfFloat error = new MatOfFloat();
+        Mat inliersMask = new Mat();
+
+        try {
+            opticalFlow.calc(previousImageGray, imageGray, imagePoints, nextImagePoints, status, error);
+
+            //Keep Only The Points Which Were Followed Successfully
+            byte[] statusArray = status.toArray();
+            Point[] nextImagePointsArray = nextImagePoints.toArray();
+            Point[] templatePointsArray = templatePoints.toArray();
+            List<Point> keptImagePoints = new ArrayList<>();
+            List<Point> keptTemplatePoints = new ArrayList<>();
+            for (int i = 0; i < statusArray.length; i++) {
+                if (statusArray[i] == 1) {
+                    keptImagePoints.add(nextImagePointsArray[i]);
+                    keptTemplatePoints.add(templatePointsArray[i]);
+                }
+            }
+
+            if (!isHealthy(keptImagePoints.size())) {
+                reset();
+                return null;
+            }
+
+            MatOfPoint2f keptImagePointsMat = new MatOfPoint2f();
+            keptImagePointsMat.fromList(keptImagePoints);
+            MatOfPoint2f keptTemplatePointsMat = new MatOfPoint2f();
+            keptTemplatePointsMat.fromList(keptTemplatePoints);
+
+            Mat newHomography = Calib3d.findHomography(keptImagePointsMat, keptTemplatePointsMat, Calib3d.RANSAC, RANSAC_REPROJECTION_THRESHOLD, inliersMask, 2000, 0.995);
+
+            //Outliers Are Dropped So They Don't Pollute The Next Estimations
+            byte[] inliers = new byte[(int) inliersMask.total()];
+            inliersMask.get(0, 0, inliers);
+            List<Point> inlierImagePoints = new ArrayList<>();
+            List<Point> inlierTemplatePoints = new ArrayList<>();
+            for (int i = 0; i < inliers.length; i++) {
+                if (inliers[i] != 0) {
+                    inlierImagePoints.add(keptImagePoints.get(i));
+                    inlierTemplatePoints.add(keptTemplatePoints.get(i));
+                }
+            }
+            keptImagePointsMat.release();
+            keptTemplatePointsMat.release();
+
+            if (newHomography.empty() || !isHealthy(inlierImagePoints.size())) {
+                newHomography.release();
+                reset();
+                return null;
+            }
+
+            imagePoints.fromList(inlierImagePoints);
+            templatePoints.fromList(inlierTemplatePoints);
+            imageGray.copyTo(previousImageGray);
+            homography.release();
+            homography = newHomography;
+            return homography.clone();
+        } finally {
+            nextImagePoints.release();
+            status.release();
+            error.release();
+            inliersMask.release();
+        }
+    }
+
+    /**
+     * Maps The Template Corners Into The Image Coordinates Using The Inverse Of The Homography
+     */
+    public MatOfPoint2f getCardCorners(Mat homography, Size templateSize) {
+        MatOfPoint2f templateCorners = new MatOfPoint2f(
+                new Point(0, 0),
+                new Point(templateSize.width - 1, 0),
+                new Point(templateSize.width - 1, templateSize.height - 1),
+                new Point(0, templateSize.height - 1));
+        MatOfPoint2f imageCorners = new MatOfPoint2f();
+        Mat inverseHomography = homography.inv();
+        Core.perspectiveTransform(templateCorners, imageCorners, inverseHomography);
+        inverseHomography.release();
+        templateCorners.release();
+        return imageCorners;
+    }
+
+    public boolean isTracking() {
+        return template != null;
+    }
+
+    public Template getTemplate() {
+        return template;
+    }
+
+    /**
+     * Drops The Current Track, The Next Frame Needs a Full Alignment
+     */
+    public void reset() {
+        template = null;
+        seededPointsCount = 0;
+        if (homography != null) {
+            homography.release();
+            homography = null;
+        }
+    }
+
+    /**
+     * Releases The Native Memory Held By The Tracker
+     */
+    public void release() {
+        reset();
+        previousImageGray.release();
+        imagePoints.release();
+        templatePoints.release();
+    }
+
+    private boolean isHealthy(int trackedPointsCount) {
+        return trackedPointsCount >= MIN_TRACKED_POINTS && trackedPointsCount >= MIN_TRACKED_RATIO * seededPointsCount;
+    }
+}
@@ -0,0 +1,56 @@
+package naji.cardreader;
+
+import org.opencv.core.Mat;
+
+/**
+ * Decides Whether a Homography Found By RANSAC Describes a Plausible View Of a Card
+ * <p>
+ * Kept Apart From The Activity So It Can Be Benchmarked On a Plain JVM.
+ */
+public class HomographyValidator {
+    static final double MAX_NORM = 4;
+    static final double MIN_NORM = 0.1;
+    static final double MAX_PERSPECTIVE_NORM = 0.002;
+
+    /**
+     * Extracts The Properties Of The Homography Matrix Including The Determinant
+     */
+    public double[] getHomographyProperties(Mat homography) {
+        double[] h = new double[9];
+        homography.get(0, 0, h);
+
+        double determinant = h[0] * h[4] - h[3] * h[1];
+
+        double N1 = Math.sqrt(h[0] * h[0] + h[3] * h[3]);
+        double N2 = Math.sqrt(h[1] * h[1] + h[4] * h[4]);
+        double N3 = Math.sqrt(h[6] * h[6] + h[7] * h[7]);
+
+        return new double[]{determinant, N1, N2, N3};
+    }
+
+    /**
+     * Property of an affine (and projective?) transformation:
+     * If the determinant of the top-left 2x2 matrix is > 0 the transformation is orientation-preserving.
+     * Else if the determinant is < 0, it is orientation-reversing.
+     */
+    public boolean determineNiceHomography(double[] homographyProperties) {
+        double determinant = homographyProperties[0];
+        double N1 = homographyProperties[1];
+        double N2 = homographyProperties[2];
+        double N3 = homographyProperties[3];
+
+        if (determinant < 0)
+            return false;
+
+        if (N1 > MAX_NORM || N1 < MIN_NORM)
+            return false;
+
+        if (N2 > MAX_NORM || N2 < MIN_NORM)
+            return false;
+
+        if (N3 > MAX_PERSPECTIVE_NORM)
+            return false;
+
+        return true;
+    }
+}
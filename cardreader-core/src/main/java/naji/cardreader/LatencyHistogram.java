@@ -0,0 +1,81 @@
+package naji.cardreader;
+
+/**
+ * Counts Latencies Into Logarithmic Buckets, So Percentiles Can Be Read Without Keeping Every Sample
+ * <p>
+ * Every Power Of Two (In Microseconds) Is Split Into {@link #SUB_BUCKETS} Buckets, So a Percentile Is Off By At Most About 20%,
+ * Which Is Plenty For Telling Which Stage Is Slow. Recording a Sample Never Allocates.
+ */
+public class LatencyHistogram {
+    static final int SUB_BUCKETS = 4;
+    static final int POWERS_OF_TWO = 26; // Up To About a Minute
+    static final int BUCKETS_COUNT = SUB_BUCKETS * POWERS_OF_TWO;
+
+    private final long[] counts = new long[BUCKETS_COUNT];
+    private long count = 0;
+    private long totalNanos = 0;
+    private long minNanos = Long.MAX_VALUE;
+    private long maxNanos = 0;
+
+    public void record(long nanos) {
+        counts[getBucket(nanos)]++;
+        count++;
+        totalNanos += nanos;
+        minNanos = Math.min(minNanos, nanos);
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    /**
+     * The Latency Below Which The Given Fraction Of The Samples Fall (In Milliseconds), Zero If Nothing Was Recorded
+     *
+     * @param percentile Between 0 & 100
+     */
+    public double getPercentileMillis(double percentile) {
+        if (count == 0)
+            return 0;
+
+        long rank = (long) Math.ceil(percentile / 100 * count);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS_COUNT; bucket++) {
+            seen += counts[bucket];
+            if (seen >= Math.max(rank, 1))
+                return Math.min(getBucketUpperBoundNanos(bucket), maxNanos) / 1e6;
+        }
+        return maxNanos / 1e6;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMeanMillis() {
+        return count == 0 ? 0 : totalNanos / 1e6 / count;
+    }
+
+    public double getMinMillis() {
+        return count == 0 ? 0 : minNanos / 1e6;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos / 1e6;
+    }
+
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKETS_COUNT; bucket++)
+            counts[bucket] = 0;
+        count = 0;
+        totalNanos = 0;
+        minNanos = Long.MAX_VALUE;
+        maxNanos = 0;
+    }
+
+    private static int getBucket(long nanos) {
+        double micros = Math.max(1, nanos / 1000.0);
+        int bucket = (int) (Math.log(micros) / Math.log(2) * SUB_BUCKETS);
+        return Math.min(bucket, BUCKETS_COUNT - 1);
+    }
+
+    private static long getBucketUpperBoundNanos(int bucket) {
+        return (long) (Math.pow(2, ((double) (bucket + 1)) / SUB_BUCKETS) * 1000);
+    }
+}
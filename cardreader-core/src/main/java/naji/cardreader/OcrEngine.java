@@ -0,0 +1,39 @@
+package naji.cardreader;
+
+import org.opencv.core.Mat;
+
+import naji.cardreader.DTOs.RecognizedText;
+
+/**
+ * Reads The Text Of a Preprocessed Serial Number Area
+ * <p>
+ * On Android This Is Tesseract Through tess-two, Headless Deployments Can Plug In Whatever OCR They Have.
+ * An Engine Is Used By One Pipeline At a Time, So It Doesn't Need To Be Thread Safe.
+ */
+public interface OcrEngine {
+    String PSM_SINGLE_LINE = "single_line";
+    String PSM_SINGLE_WORD = "single_word";
+    String PSM_SINGLE_BLOCK = "single_block";
+    String PSM_RAW_LINE = "raw_line";
+    String[] PAGE_SEGMENTATION_MODES = {PSM_SINGLE_LINE, PSM_SINGLE_WORD, PSM_SINGLE_BLOCK, PSM_RAW_LINE};
+
+    /**
+     * a Short Name Identifying The Engine (Or Its Model), Like "eng" Or "fas"
+     */
+    String getName();
+
+    /**
+     * @param image The Binary Single Channel (CV_8UC1) Serial Number Area
+     */
+    RecognizedText recognize(Mat image) throws Exception;
+
+    /**
+     * Sets The Allowed Characters & The Page Segmentation Mode For The Next Recognitions, As a Template Declares Them
+     *
+     * @param characterWhitelist   The Allowed Characters, Null For The Ones The Engine Was Created With
+     * @param pageSegmentationMode One Of {@link #PAGE_SEGMENTATION_MODES}, Null For The One The Engine Was Created With
+     */
+    void configure(String characterWhitelist, String pageSegmentationMode);
+
+    void release();
+}
@@ -0,0 +1,336 @@
+package naji.cardreader;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import naji.cardreader.DTOs.AlignedImage;
+import naji.cardreader.DTOs.ExtractedText;
+import naji.cardreader.DTOs.PreprocessingVariant;
+import naji.cardreader.DTOs.RecognizedText;
+import naji.cardreader.DTOs.TemplateInfo;
+
+/**
+ * OCRs Several Preprocessing Variants Of The Same Serial Number Area In Parallel & Keeps The One Read Best
+ * <p>
+ * a Single Preprocessing Chain Either Works For a Card Or Forces a Re-Capture. So Next To The Usual Chain Of The Template,
+ * The Area Is Also Binarized With The Other Profiles, Upscaled More & Inverted (For Light Characters On Dark Cards),
+ * Each Variant On Its Own Worker. The Variant Whose Text Has The Best Confidence While Also Looking Like a Serial Number
+ * (a Length The Template Allows, Only Letters & Digits) Wins. As Soon As One Variant Reads Well Enough,
+ * The Variants Still Waiting Are Cancelled & The Running Ones Stop Before Their Next OCR Engine, Their Late Results Are Released As They Arrive. Only As Many Variants As There Are
+ * Workers Are Read (The First Ones Of The List), So Even When None Reads Well The Latency Stays About That Of a Single Variant.
+ * <p>
+ * Every Worker Has Its Own Preprocessor & OCR Engines (Tesseract Can't Be Shared Between Threads).
+ * The Reader Itself Is Used By One Pipeline At a Time, Like The Recognizer Owning It.
+ */
+public class ParallelVariantReader {
+    static final int ACCEPT_CONFIDENCE = 75;
+    static final String VARIANT_TEMPLATE = "template";
+
+    static final PreprocessingVariant[] DEFAULT_VARIANTS = {
+            new PreprocessingVariant(VARIANT_TEMPLATE, null, 1, false),
+            new PreprocessingVariant("fast", SerialNumberPreprocessor.PROFILE_FAST, 1, false),
+            new PreprocessingVariant("bilateral", SerialNumberPreprocessor.PROFILE_BILATERAL, 1, false),
+            new PreprocessingVariant("upscaled", null, 1.5, false),
+            new PreprocessingVariant("inverted", null, 1, true)
+    };
+
+    /**
+     * The Preprocessor & The OCR Engines Of One Worker Thread
+     */
+    static class VariantWorker {
+        SerialNumberPreprocessor serialNumberPreprocessor = new SerialNumberPreprocessor();
+        List<OcrEngine> ocrEngines;
+
+        VariantWorker(List<OcrEngine> ocrEngines) {
+            this.ocrEngines = ocrEngines;
+        }
+    }
+
+    /**
+     * What One Variant Read, The Image Is a Header On The Buffers Of The Worker Which Preprocessed It
+     */
+    static class VariantResult {
+        PreprocessingVariant variant;
+        Mat image;
+        List<RecognizedText> recognizedTexts = new ArrayList<>();
+        List<String> engineNames = new ArrayList<>();
+    }
+
+    /**
+     * The Variants Of One Read, Results Posted After The Read Gave Up On Them Are Released Right Away
+     */
+    static class VariantRead {
+        //Posted By Variants Which Didn't Read Anything, So The Read Still Knows They Are Done
+        static final VariantResult NOTHING_READ = new VariantResult();
+
+        final AtomicBoolean accepted = new AtomicBoolean(false);
+        private final BlockingQueue<VariantResult> postedResults = new LinkedBlockingQueue<>();
+        private boolean abandoned = false;
+
+        synchronized void post(VariantResult variantResult) {
+            if (abandoned)
+                releaseResult(variantResult);
+            else
+                postedResults.add(variantResult);
+        }
+
+        VariantResult take() throws InterruptedException {
+            return postedResults.take();
+        }
+
+        /**
+         * Releases The Results Posted But Not Taken, & Every Result Posted From Now On
+         */
+        synchronized void abandon() {
+            abandoned = true;
+            VariantResult variantResult;
+            while ((variantResult = postedResults.poll()) != null)
+                releaseResult(variantResult);
+        }
+
+        private static void releaseResult(VariantResult variantResult) {
+            if (variantResult.image != null)
+                variantResult.image.release();
+        }
+    }
+
+    private final List<PreprocessingVariant> variants;
+    private final PipelineMetrics pipelineMetrics;
+    private final ExecutorService executor;
+    private final BlockingQueue<VariantWorker> idleWorkers;
+    private final List<VariantWorker> workers = new ArrayList<>();
+
+    /**
+     * @param ocrEngineSets One Set Of OCR Engines Per Worker, The Engines Are Left To Their Owner
+     */
+    public ParallelVariantReader(List<List<OcrEngine>> ocrEngineSets, List<PreprocessingVariant> variants, PipelineMetrics pipelineMetrics) {
+        this.variants = variants;
+        this.pipelineMetrics = pipelineMetrics;
+
+        idleWorkers = new ArrayBlockingQueue<>(ocrEngineSets.size());
+        for (List<OcrEngine> ocrEngines : ocrEngineSets) {
+            VariantWorker variantWorker = new VariantWorker(ocrEngines);
+            workers.add(variantWorker);
+            idleWorkers.add(variantWorker);
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(ocrEngineSets.size(), runnable -> {
+            Thread thread = new Thread(runnable, "variant-worker-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * OCRs The Variants Of The Serial Number Area Of The Aligned Image & Keeps The Best Read One
+     * <p>
+     * The Serial Number Image Of The Aligned Image Is Replaced By a Copy Of The Winning Variant, So It Matches The Returned Texts.
+     *
+     * @param alignedImage Needs Its Serial Number Area & Its Usual Serial Number Image (The Template Variant)
+     * @return The Texts Of The Winning Variant (One Per OCR Engine)
+     */
+    public ArrayList<ExtractedText> read(AlignedImage alignedImage, TemplateInfo templateInfo) throws InterruptedException {
+        long variantsStart = pipelineMetrics.start();
+        VariantRead variantRead = new VariantRead();
+        List<Future<?>> futures = new ArrayList<>();
+        List<Mat> headers = new ArrayList<>();
+        boolean templateVariantSubmitted = false;
+
+        //Every Task Gets Its Own Header, So The Pixels Stay Alive Even If a Cancelled Task Outlives The Aligned Image
+        for (PreprocessingVariant variant : variants) {
+            //More Variants Than Workers Would Be Read In Rounds, Adding Up The Latency
+            if (futures.size() >= workers.size())
+                break;
+            boolean templateVariant = isTemplateVariant(variant, templateInfo);
+            if (templateVariant && templateVariantSubmitted)
+                continue;
+            templateVariantSubmitted |= templateVariant;
+
+            Mat source = templateVariant ? alignedImage.serialNumberImage : alignedImage.serialNumberArea;
+            Mat header = source.submat(0, source.rows(), 0, source.cols());
+            headers.add(header);
+            futures.add(executor.submit(() -> postVariant(variant, header, alignedImage.serialNumberResizeFactor, templateInfo, variantRead)));
+        }
+
+        List<VariantResult> variantResults = new ArrayList<>();
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                VariantResult variantResult = variantRead.take();
+                if (variantResult == VariantRead.NOTHING_READ)
+                    continue;
+                variantResults.add(variantResult);
+
+                if (getValidConfidence(variantResult, templateInfo) >= ACCEPT_CONFIDENCE)
+                    break;
+            }
+        } finally {
+            //Cancels The Other Variants, Waiting Ones Never Start & Running Ones Stop Before Their Next OCR Engine
+            variantRead.accepted.set(true);
+            for (int i = 0; i < futures.size(); i++) {
+                if (futures.get(i).cancel(false))
+                    headers.get(i).release();
+            }
+            //Whatever The Running Ones Still Read Is Released Once They Finish
+            variantRead.abandon();
+        }
+
+        VariantResult bestResult = chooseBestVariant(variantResults, templateInfo);
+        ArrayList<ExtractedText> extractedTexts = new ArrayList<>();
+        if (bestResult != null) {
+            if (!isTemplateVariant(bestResult.variant, templateInfo)) {
+                alignedImage.serialNumberImage.release();
+                alignedImage.serialNumberImage = bestResult.image.clone();
+            }
+            for (int i = 0; i < bestResult.recognizedTexts.size(); i++) {
+                RecognizedText recognizedText = bestResult.recognizedTexts.get(i);
+                String text = CardRecognizer.cleanText(recognizedText.text, templateInfo);
+                extractedTexts.add(new ExtractedText(bestResult.engineNames.get(i), text, recognizedText.confidence, alignedImage));
+            }
+        }
+
+        for (VariantResult variantResult : variantResults)
+            variantResult.image.release();
+        pipelineMetrics.record(PipelineMetrics.VARIANTS, alignedImage.templateName, variantsStart);
+        return extractedTexts;
+    }
+
+    /**
+     * Reads One Variant & Posts What It Read To Its Read, Even If It Failed
+     */
+    private void postVariant(PreprocessingVariant variant, Mat source, double resizeFactor, TemplateInfo templateInfo, VariantRead variantRead) {
+        VariantResult variantResult = null;
+        try {
+            variantResult = readVariant(variant, source, resizeFactor, templateInfo, variantRead.accepted);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            variantRead.post(variantResult == null ? VariantRead.NOTHING_READ : variantResult);
+        }
+    }
+
+    /**
+     * Preprocesses (Unless It Is The Template Variant, Which Is Already Preprocessed) & OCRs One Variant On a Worker
+     *
+     * @return What The Variant Read, Or Null If Another Variant Was Accepted Before It Got Anywhere
+     */
+    private VariantResult readVariant(PreprocessingVariant variant, Mat source, double resizeFactor, TemplateInfo templateInfo, AtomicBoolean accepted) throws InterruptedException {
+        if (accepted.get()) {
+            source.release();
+            return null;
+        }
+
+        VariantWorker variantWorker = idleWorkers.take();
+        try {
+            VariantResult variantResult = new VariantResult();
+            variantResult.variant = variant;
+            if (isTemplateVariant(variant, templateInfo)) {
+                variantResult.image = source.submat(0, source.rows(), 0, source.cols());
+            } else {
+                //Every Variant Has Its Own Buffers, So The Images Of The Variants Of One Area Don't Overwrite Each Other
+                String bufferKey = templateInfo.templateName + "/" + variant.name;
+                double variantResizeFactor = resizeFactor * variant.resizeScale;
+                if (variant.profile == null && templateInfo.serialNumberPipeline != null) {
+                    variantResult.image = variantWorker.serialNumberPreprocessor.preprocess(source, variantResizeFactor, templateInfo.serialNumberPipeline, bufferKey);
+                } else {
+                    String profile = variant.profile == null ? templateInfo.preprocessingProfile : variant.profile;
+                    variantResult.image = variantWorker.serialNumberPreprocessor.preprocess(source, variantResizeFactor, profile, bufferKey);
+                }
+                if (variant.inverted)
+                    Core.bitwise_not(variantResult.image, variantResult.image);
+            }
+
+            for (OcrEngine ocrEngine : variantWorker.ocrEngines) {
+                if (accepted.get())
+                    break;
+                if (!CardRecognizer.configureOcrEngine(ocrEngine, templateInfo))
+                    continue;
+                try {
+                    long ocrStart = pipelineMetrics.start();
+                    variantResult.recognizedTexts.add(ocrEngine.recognize(variantResult.image));
+                    variantResult.engineNames.add(ocrEngine.getName());
+                    pipelineMetrics.record(PipelineMetrics.OCR + ocrEngine.getName(), templateInfo.templateName, ocrStart);
+                } catch (Exception e) {
+                    System.out.println(String.format("Error in Recognizing Text Of The '%s' Variant.", variant.name));
+                }
+            }
+            return variantResult;
+        } finally {
+            source.release();
+            idleWorkers.add(variantWorker);
+        }
+    }
+
+    /**
+     * The Variant With The Best Confidence Among The Texts Looking Like a Serial Number,
+     * Or The Template Variant (The Usual Result) If No Variant Read Anything Like It
+     */
+    private VariantResult chooseBestVariant(List<VariantResult> variantResults, TemplateInfo templateInfo) {
+        VariantResult bestResult = null;
+        int bestConfidence = -1;
+        for (VariantResult variantResult : variantResults) {
+            int confidence = getValidConfidence(variantResult, templateInfo);
+            if (confidence > bestConfidence) {
+                bestConfidence = confidence;
+                bestResult = variantResult;
+            }
+        }
+        if (bestResult != null)
+            return bestResult;
+
+        for (VariantResult variantResult : variantResults) {
+            if (isTemplateVariant(variantResult.variant, templateInfo))
+                return variantResult;
+        }
+        return variantResults.isEmpty() ? null : variantResults.get(0);
+    }
+
+    /**
+     * The Best Confidence Of The Texts Of The Variant Which Look Like a Serial Number Of The Template, -1 If None Does
+     */
+    private int getValidConfidence(VariantResult variantResult, TemplateInfo templateInfo) {
+        int validConfidence = -1;
+        for (RecognizedText recognizedText : variantResult.recognizedTexts) {
+            if (CardRecognizer.isFormatValid(CardRecognizer.cleanText(recognizedText.text, templateInfo), templateInfo))
+                validConfidence = Math.max(validConfidence, recognizedText.confidence);
+        }
+        return validConfidence;
+    }
+
+    /**
+     * Whether The Variant Is Just The Usual Preprocessing Of The Template (Its Declared Pipeline Or Profile), Which The Recognizer Has Already Done
+     */
+    private boolean isTemplateVariant(PreprocessingVariant variant, TemplateInfo templateInfo) {
+        boolean sameProfile = variant.profile == null || (templateInfo.serialNumberPipeline == null && variant.profile.equals(templateInfo.preprocessingProfile));
+        return sameProfile && variant.resizeScale == 1 && !variant.inverted;
+    }
+
+    /**
+     * Stops The Workers & Releases Their Preprocessors, The OCR Engines Are Left To Their Owner
+     */
+    public void release() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        for (VariantWorker variantWorker : workers)
+            variantWorker.serialNumberPreprocessor.release();
+        workers.clear();
+    }
+}
@@ -0,0 +1,144 @@
+package naji.cardreader;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Times Every Stage Of The Scan Pipeline, Per Template
+ * <p>
+ * a Stage Is Timed By Taking {@link #start()} Before It & Calling {@link #record(String, String, long)} After It.
+ * Stages Which Run Before The Template Is Known (Like Decoding) Are Recorded Under {@link #ANY_TEMPLATE}.
+ * The Latencies Are Kept As Histograms, So p50/p95/p99 Can Be Shown In The App Or Dumped To a JSON File For Offline Analysis.
+ * System.nanoTime Is Used Instead Of a TickMeter, It Measures The Same Thing Without Creating a Native Object Per Timer.
+ */
+public class PipelineMetrics {
+    static final String DECODE = "decode";
+    static final String QUAD = "quad";
+    //Quads Which Looked Like a Template But Had a Bad Homography, & The Feature Alignments Run After a Quad Gave No Serial Number
+    static final String QUAD_REJECTED = "quad_rejected";
+    static final String QUAD_FALLBACK = "quad_fallback";
+    static final String SHORTLIST = "shortlist";
+    static final String GRAY_AND_RESIZE = "gray_and_resize";
+    static final String DETECT_AND_COMPUTE = "detect_and_compute";
+    static final String MATCH = "match";
+    static final String FIND_HOMOGRAPHY = "find_homography";
+    static final String TRACK = "track";
+    static final String WARP = "warp";
+    static final String PREPROCESS = "preprocess";
+    static final String OCR = "ocr_";
+    static final String VARIANTS = "variants";
+    static final String TOTAL = "total";
+
+    static final String ANY_TEMPLATE = "*";
+    static final double[] PERCENTILES = {50, 95, 99};
+
+    //Stage -> Template -> Histogram, Sorted So The Summaries Are Stable
+    private final Map<String, Map<String, LatencyHistogram>> histograms = new TreeMap<>();
+
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records The Time Passed Since The Given Start Of The Stage
+     *
+     * @param templateName The Template The Stage Ran For, Or Null If It Ran Before Any Template Was Known
+     */
+    public synchronized void record(String stage, String templateName, long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        Map<String, LatencyHistogram> stageHistograms = histograms.get(stage);
+        if (stageHistograms == null) {
+            stageHistograms = new TreeMap<>();
+            histograms.put(stage, stageHistograms);
+        }
+
+        String key = templateName == null ? ANY_TEMPLATE : templateName;
+        LatencyHistogram histogram = stageHistograms.get(key);
+        if (histogram == null) {
+            histogram = new LatencyHistogram();
+            stageHistograms.put(key, histogram);
+        }
+        histogram.record(nanos);
+    }
+
+    /**
+     * a Human Readable Table Of The Percentiles Of Every Stage & Template, One Line Each
+     */
+    public synchronized String summarize() {
+        StringBuilder summary = new StringBuilder();
+        for (Map.Entry<String, Map<String, LatencyHistogram>> stage : histograms.entrySet()) {
+            for (Map.Entry<String, LatencyHistogram> template : stage.getValue().entrySet()) {
+                LatencyHistogram histogram = template.getValue();
+                summary.append(String.format(Locale.US, "%s [%s] n=%d p50=%.1f p95=%.1f p99=%.1f ms%n",
+                        stage.getKey(), template.getKey(), histogram.getCount(),
+                        histogram.getPercentileMillis(50), histogram.getPercentileMillis(95), histogram.getPercentileMillis(99)));
+            }
+        }
+        return summary.toString();
+    }
+
+    /**
+     * The Metrics As a JSON Object Of Stages, Each an Object Of Templates With Their Counts & Latencies (In Milliseconds)
+     */
+    public synchronized String toJson() {
+        StringBuilder json = new StringBuilder("{");
+        String stageSeparator = "";
+        for (Map.Entry<String, Map<String, LatencyHistogram>> stage : histograms.entrySet()) {
+            json.append(stageSeparator).append('"').append(escape(stage.getKey())).append("\":{");
+            stageSeparator = ",";
+
+            String templateSeparator = "";
+            for (Map.Entry<String, LatencyHistogram> template : stage.getValue().entrySet()) {
+                LatencyHistogram histogram = template.getValue();
+                json.append(templateSeparator).append('"').append(escape(template.getKey())).append("\":");
+                json.append(String.format(Locale.US, "{\"count\":%d,\"mean\":%.3f,\"min\":%.3f,\"max\":%.3f",
+                        histogram.getCount(), histogram.getMeanMillis(), histogram.getMinMillis(), histogram.getMaxMillis()));
+                for (double percentile : PERCENTILES)
+                    json.append(String.format(Locale.US, ",\"p%d\":%.3f", (int) percentile, histogram.getPercentileMillis(percentile)));
+                json.append('}');
+                templateSeparator = ",";
+            }
+            json.append('}');
+        }
+        return json.append('}').toString();
+    }
+
+    /**
+     * The Given Percentile Of Every Stage & Template (In Milliseconds), As Stage -> Template -> Latency
+     */
+    public synchronized Map<String, Map<String, Double>> getPercentilesMillis(double percentile) {
+        Map<String, Map<String, Double>> percentiles = new TreeMap<>();
+        for (Map.Entry<String, Map<String, LatencyHistogram>> stage : histograms.entrySet()) {
+            Map<String, Double> stagePercentiles = new TreeMap<>();
+            for (Map.Entry<String, LatencyHistogram> template : stage.getValue().entrySet())
+                stagePercentiles.put(template.getKey(), template.getValue().getPercentileMillis(percentile));
+            percentiles.put(stage.getKey(), stagePercentiles);
+        }
+        return percentiles;
+    }
+
+    /**
+     * Writes The JSON Metrics Into The File, Replacing It
+     */
+    public void dump(File file) throws IOException {
+        String json = toJson();
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(json);
+        }
+    }
+
+    public synchronized void reset() {
+        histograms.clear();
+    }
+
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
@@ -0,0 +1,94 @@
+package naji.cardreader;
+
+import org.opencv.core.Mat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Fuses The Serial Number Areas Of Several Aligned Live Frames Into One Cleaner Image
+ * <p>
+ * Every Single Frame Has Its Own Noise, Glare & Compression Artefacts, But Since The Frames Are Aligned With The Template
+ * The Same Pixel Shows The Same Part Of The Card In All Of Them. Taking The Per Pixel Median Removes Most Of These
+ * Artefacts, So We Can OCR The Fused Image Once Instead Of OCRing Every Frame.
+ */
+public class SerialNumberFusion {
+    static final int DEFAULT_FRAMES_COUNT = 5;
+
+    private final int framesCount;
+    private final List<Mat> serialNumberAreas = new ArrayList<>();
+    private String templateName;
+
+    public SerialNumberFusion() {
+        this(DEFAULT_FRAMES_COUNT);
+    }
+
+    public SerialNumberFusion(int framesCount) {
+        this.framesCount = framesCount;
+    }
+
+    /**
+     * Adds The Serial Number Area Of a New Frame, Areas Of a Different Template Discard The Previous Ones
+     *
+     * @param serialNumberArea The Cropped (Not Yet Preprocessed) Serial Number Area, It Is Copied
+     * @return Whether Enough Frames Have Been Collected To Be Fused
+     */
+    public boolean add(String templateName, Mat serialNumberArea) {
+        if (!templateName.equals(this.templateName)) {
+            clear();
+            this.templateName = templateName;
+        }
+
+        //The Oldest Frame Is Dropped, So The Fusion Always Uses The Latest Frames
+        if (serialNumberAreas.size() == framesCount)
+            serialNumberAreas.remove(0).release();
+        serialNumberAreas.add(serialNumberArea.clone());
+
+        return isReady();
+    }
+
+    public boolean isReady() {
+        return serialNumberAreas.size() == framesCount;
+    }
+
+    public String getTemplateName() {
+        return templateName;
+    }
+
+    /**
+     * Computes The Per Pixel (And Per Channel) Median Of The Collected Serial Number Areas
+     */
+    public Mat fuse() {
+        Mat first = serialNumberAreas.get(0);
+        int length = (int) (first.total() * first.channels());
+        int count = serialNumberAreas.size();
+
+        byte[][] frames = new byte[count][length];
+        for (int i = 0; i < count; i++)
+            serialNumberAreas.get(i).get(0, 0, frames[i]);
+
+        byte[] fused = new byte[length];
+        int[] values = new int[count];
+        for (int p = 0; p < length; p++) {
+            for (int i = 0; i < count; i++)
+                values[i] = frames[i][p] & 0xFF;
+            Arrays.sort(values);
+            fused[p] = (byte) values[count / 2];
+        }
+
+        Mat fusedMat = new Mat(first.rows(), first.cols(), first.type());
+        fusedMat.put(0, 0, fused);
+        return fusedMat;
+    }
+
+    /**
+     * Drops All The Collected Frames
+     */
+    public void clear() {
+        for (Mat serialNumberArea : serialNumberAreas)
+            serialNumberArea.release();
+        serialNumberAreas.clear();
+        templateName = null;
+    }
+}
@@ -0,0 +1,371 @@
+package naji.cardreader;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+import org.opencv.photo.Photo;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * The Serial Number Pipeline a Template Declares In `template_serial_number_positions.xml`, Compiled Once When It Is Loaded
+ * <p>
+ * Instead Of One Of The Fixed Preprocessing Profiles, a Template Can List The Preprocessing Steps It Needs (With Their Parameters),
+ * The OCR Engines Reading It (With Their Character Whitelist & Page Segmentation Mode) & The Format Of Its Serial Numbers:
+ * <pre>{@code
+ * <Pipeline>
+ *     <Step type="gray"/>
+ *     <Step type="clahe" clip_limit="2"/>
+ *     <Step type="resize"/>
+ *     <Step type="adaptive_threshold" block_size_ratio="0.5" offset="10"/>
+ *     <Step type="median" size="3"/>
+ *     <Ocr engine="eng" whitelist="0123456789" psm="single_line"/>
+ *     <Format>[0-9]{10,11}</Format>
+ * </Pipeline>
+ * }</pre>
+ * Compiling Checks The Step Types & Their Parameters, Builds The Morphology Kernels & Checks The Steps Fit Together
+ * (Color Steps Before "gray", Gray Steps After It, Ending On a Single Channel). So a Broken Declaration Fails At Load
+ * Instead Of In The Middle Of a Scan, & a Scan Only Runs The Stages Of Its Template One After Another.
+ * Without {@code <Ocr>} Elements Every Engine Reads The Template As It Was Created, Without a {@code <Format>} The Character Lengths Decide.
+ * <p>
+ * a Compiled Pipeline Is Only Read While Scanning, So It Is Shared By Every Recognizer Using The Template,
+ * The Buffers The Stages Write Into Belong To The {@link SerialNumberPreprocessor} Running Them.
+ */
+public class SerialNumberPipeline {
+    static final String STEP_GRAY = "gray";
+    static final String STEP_DETAIL_ENHANCE = "detail_enhance";
+    static final String STEP_CLAHE = "clahe";
+    static final String STEP_BILATERAL = "bilateral";
+    static final String STEP_OTSU = "otsu";
+    static final String STEP_THRESHOLD = "threshold";
+    static final String STEP_ADAPTIVE_THRESHOLD = "adaptive_threshold";
+    static final String STEP_RESIZE = "resize";
+    static final String STEP_MEDIAN = "median";
+    static final String STEP_CLOSE = "close";
+    static final String STEP_OPEN = "open";
+    static final String STEP_INVERT = "invert";
+
+    /**
+     * One Compiled Step, Reading The Output Of The Previous Step (Or The Area) & Writing Into Its Own Buffer
+     */
+    interface Stage {
+        /**
+         * @param resizeFactor How Much The Area Should Be Upscaled, As Asked By The Caller Of The Preprocessor
+         */
+        void apply(Mat source, Mat destination, double resizeFactor, SerialNumberPreprocessor serialNumberPreprocessor);
+    }
+
+    /**
+     * An OCR Engine Reading The Template & How It Is Configured For It, Null Settings Keep What The Engine Was Created With
+     */
+    static class OcrStage {
+        String engineName;
+        String characterWhitelist;
+        String pageSegmentationMode;
+
+        OcrStage(String engineName, String characterWhitelist, String pageSegmentationMode) {
+            this.engineName = engineName;
+            this.characterWhitelist = characterWhitelist;
+            this.pageSegmentationMode = pageSegmentationMode;
+        }
+    }
+
+    private final List<Stage> stages;
+    private final List<String> stageNames;
+    private final List<OcrStage> ocrStages;
+    private final Pattern format;
+    private final List<Mat> kernels;
+
+    private SerialNumberPipeline(List<Stage> stages, List<String> stageNames, List<OcrStage> ocrStages, Pattern format, List<Mat> kernels) {
+        this.stages = stages;
+        this.stageNames = stageNames;
+        this.ocrStages = ocrStages;
+        this.format = format;
+        this.kernels = kernels;
+    }
+
+    /**
+     * Compiles The Declared Pipeline Of a Template
+     *
+     * @param steps  The Attributes Of Every {@code <Step>} In Order, The "type" Attribute Names The Step
+     * @param ocrs   The Attributes Of Every {@code <Ocr>}, The "engine" Attribute Names The Engine
+     * @param format The Regular Expression a Whole Serial Number Matches, Or Null
+     * @throws IOException If The Declaration Is Broken, Naming The Template & The Step
+     */
+    public static SerialNumberPipeline compile(String templateName, List<Map<String, String>> steps, List<Map<String, String>> ocrs, String format) throws IOException {
+        List<Stage> stages = new ArrayList<>();
+        List<String> stageNames = new ArrayList<>();
+        List<Mat> kernels = new ArrayList<>();
+        boolean gray = false;
+        //Where The Declaration Is Broken, For The Error Message
+        String location = "Steps";
+
+        try {
+            if (steps.isEmpty())
+                throw new IOException("No Preprocessing Steps");
+
+            for (Map<String, String> step : steps) {
+                String type = step.get("type");
+                location = String.format("Step %d (%s)", stages.size() + 1, type);
+                if (type == null)
+                    throw new IOException("a Step Without a Type");
+
+                switch (type) {
+                    case STEP_GRAY:
+                        checkParameters(step);
+                        stages.add((source, destination, resizeFactor, serialNumberPreprocessor) -> {
+                            if (source.channels() == 1)
+                                source.copyTo(destination);
+                            else
+                                Imgproc.cvtColor(source, destination, Imgproc.COLOR_BGR2GRAY);
+                        });
+                        gray = true;
+                        break;
+
+                    case STEP_DETAIL_ENHANCE: {
+                        checkParameters(step, "sigma_s", "sigma_r");
+                        requireColor(gray, type);
+                        float sigmaS = (float) getDouble(step, "sigma_s", 10);
+                        float sigmaR = (float) getDouble(step, "sigma_r", 0.15);
+                        //Detail Enhance Needs Three Channels, Only The Alpha Is Dropped So The Colours Stay In Their Order
+                        stages.add((source, destination, resizeFactor, serialNumberPreprocessor) -> {
+                            if (source.channels() == 4) {
+                                Imgproc.cvtColor(source, destination, Imgproc.COLOR_BGRA2BGR);
+                                Photo.detailEnhance(destination, destination, sigmaS, sigmaR);
+                            } else {
+                                Photo.detailEnhance(source, destination, sigmaS, sigmaR);
+                            }
+                        });
+                        break;
+                    }
+
+                    case STEP_CLAHE: {
+                        checkParameters(step, "clip_limit", "tile_width", "tile_height");
+                        requireGray(gray, type);
+                        double clipLimit = getDouble(step, "clip_limit", SerialNumberPreprocessor.CLAHE_CLIP_LIMIT);
+                        Size tileGridSize = new Size(getInt(step, "tile_width", (int) SerialNumberPreprocessor.CLAHE_TILE_GRID_SIZE.width),
+                                getInt(step, "tile_height", (int) SerialNumberPreprocessor.CLAHE_TILE_GRID_SIZE.height));
+                        stages.add((source, destination, resizeFactor, serialNumberPreprocessor) ->
+                                serialNumberPreprocessor.getClahe(clipLimit, tileGridSize).apply(source, destination));
+                        break;
+                    }
+
+                    case STEP_BILATERAL: {
+                        checkParameters(step, "diameter", "sigma_color", "sigma_space");
+                        requireGray(gray, type);
+                        int diameter = getInt(step, "diameter", SerialNumberPreprocessor.BILATERAL_DIAMETER);
+                        double sigmaColor = getDouble(step, "sigma_color", SerialNumberPreprocessor.BILATERAL_SIGMA_COLOR);
+                        double sigmaSpace = getDouble(step, "sigma_space", SerialNumberPreprocessor.BILATERAL_SIGMA_SPACE);
+                        stages.add((source, destination, resizeFactor, serialNumberPreprocessor) ->
+                                Imgproc.bilateralFilter(source, destination, diameter, sigmaColor, sigmaSpace));
+                        break;
+                    }
+
+                    case STEP_OTSU:
+                        checkParameters(step);
+                        requireGray(gray, type);
+                        stages.add((source, destination, resizeFactor, serialNumberPreprocessor) ->
+                                Imgproc.threshold(source, destination, 128, 255, Imgproc.THRESH_OTSU));
+                        break;
+
+                    case STEP_THRESHOLD: {
+                        checkParameters(step, "value");
+                        requireGray(gray, type);
+                        double value = getDouble(step, "value", 128);
+                        stages.add((source, destination, resizeFactor, serialNumberPreprocessor) ->
+                                Imgproc.threshold(source, destination, value, 255, Imgproc.THRESH_BINARY));
+                        break;
+                    }
+
+                    case STEP_ADAPTIVE_THRESHOLD: {
+                        checkParameters(step, "block_size_ratio", "offset");
+                        requireGray(gray, type);
+                        double blockSizeRatio = getDouble(step, "block_size_ratio", SerialNumberPreprocessor.ADAPTIVE_BLOCK_SIZE_RATIO);
+                        double offset = getDouble(step, "offset", SerialNumberPreprocessor.ADAPTIVE_THRESHOLD_OFFSET);
+                        stages.add((source, destination, resizeFactor, serialNumberPreprocessor) -> {
+                            int blockSize = Math.max(3, (int) (source.height() * blockSizeRatio) | 1);
+                            Imgproc.adaptiveThreshold(source, destination, 255, Imgproc.ADAPTIVE_THRESH_GAUSSIAN_C, Imgproc.THRESH_BINARY, blockSize, offset);
+                        });
+                        break;
+                    }
+
+                    case STEP_RESIZE: {
+                        //Relative To The Factor The Caller Asks For, So Areas Already Read At Full Resolution Aren't Upscaled Again
+                        checkParameters(step, "scale");
+                        double scale = getDouble(step, "scale", 1);
+                        if (scale <= 0)
+                            throw new IOException("The Resize Scale Must Be Positive");
+                        stages.add((source, destination, resizeFactor, serialNumberPreprocessor) ->
+                                serialNumberPreprocessor.resize(source, destination, resizeFactor * scale));
+                        break;
+                    }
+
+                    case STEP_MEDIAN: {
+                        checkParameters(step, "size");
+                        int size = getInt(step, "size", 3);
+                        if (size < 3 || size % 2 == 0)
+                            throw new IOException("The Median Size Must Be Odd & At Least 3");
+                        stages.add((source, destination, resizeFactor, serialNumberPreprocessor) -> Imgproc.medianBlur(source, destination, size));
+                        break;
+                    }
+
+                    case STEP_CLOSE:
+                    case STEP_OPEN: {
+                        checkParameters(step, "size");
+                        int size = getInt(step, "size", 3);
+                        if (size < 1)
+                            throw new IOException("The Morphology Size Must Be At Least 1");
+                        Mat kernel = Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(size, size));
+                        kernels.add(kernel);
+                        int operation = type.equals(STEP_CLOSE) ? Imgproc.MORPH_CLOSE : Imgproc.MORPH_OPEN;
+                        stages.add((source, destination, resizeFactor, serialNumberPreprocessor) -> Imgproc.morphologyEx(source, destination, operation, kernel));
+                        break;
+                    }
+
+                    case STEP_INVERT:
+                        checkParameters(step);
+                        stages.add((source, destination, resizeFactor, serialNumberPreprocessor) -> Core.bitwise_not(source, destination));
+                        break;
+
+                    default:
+                        throw new IOException(String.format("Unknown Step Type '%s'", type));
+                }
+                stageNames.add(type);
+            }
+
+            location = "Steps";
+            if (!gray)
+                throw new IOException("The Steps Must End On a Single Channel Image, a 'gray' Step Is Missing");
+
+            List<OcrStage> ocrStages = new ArrayList<>();
+            for (Map<String, String> ocr : ocrs) {
+                checkParameters(ocr, "engine", "whitelist", "psm");
+                String engineName = ocr.get("engine");
+                location = String.format("OCR (%s)", engineName);
+                if (engineName == null)
+                    throw new IOException("an OCR Without an Engine");
+                String pageSegmentationMode = ocr.get("psm");
+                if (pageSegmentationMode != null && !Arrays.asList(OcrEngine.PAGE_SEGMENTATION_MODES).contains(pageSegmentationMode))
+                    throw new IOException(String.format("Unknown Page Segmentation Mode '%s'", pageSegmentationMode));
+                ocrStages.add(new OcrStage(engineName, ocr.get("whitelist"), pageSegmentationMode));
+            }
+
+            Pattern compiledFormat = null;
+            if (format != null) {
+                location = "Format";
+                try {
+                    compiledFormat = Pattern.compile(format.trim());
+                } catch (PatternSyntaxException e) {
+                    throw new IOException(String.format("Invalid Format '%s'", format), e);
+                }
+            }
+
+            return new SerialNumberPipeline(stages, Collections.unmodifiableList(stageNames), ocrStages, compiledFormat, kernels);
+        } catch (IOException e) {
+            for (Mat kernel : kernels)
+                kernel.release();
+            throw new IOException(String.format("The Pipeline Of '%s' Could Not Be Compiled, %s: %s", templateName, location, e.getMessage()), e);
+        }
+    }
+
+    public int getStageCount() {
+        return stages.size();
+    }
+
+    Stage getStage(int index) {
+        return stages.get(index);
+    }
+
+    /**
+     * The Step Types In Order, For Logging
+     */
+    public List<String> getStageNames() {
+        return stageNames;
+    }
+
+    /**
+     * Whether The Template Names The Engines Which Read It, Otherwise Every Engine Does
+     */
+    public boolean hasOcrStages() {
+        return !ocrStages.isEmpty();
+    }
+
+    /**
+     * The Declared OCR Stage Of The Engine, Or Null If The Template Isn't Read With It
+     */
+    public OcrStage getOcrStage(String engineName) {
+        for (OcrStage ocrStage : ocrStages) {
+            if (ocrStage.engineName.equals(engineName))
+                return ocrStage;
+        }
+        return null;
+    }
+
+    /**
+     * The Declared Format Of The Serial Numbers, Or Null If The Template Doesn't Declare One
+     */
+    public Pattern getFormat() {
+        return format;
+    }
+
+    /**
+     * Releases The Morphology Kernels, Once No Recognizer Uses The Template Anymore
+     */
+    public void release() {
+        for (Mat kernel : kernels)
+            kernel.release();
+        kernels.clear();
+    }
+
+    /**
+     * Rejects Misspelled Parameters, Which Would Otherwise Silently Fall Back To Their Defaults
+     */
+    private static void checkParameters(Map<String, String> attributes, String... parameters) throws IOException {
+        List<String> allowed = new ArrayList<>(Arrays.asList(parameters));
+        allowed.add("type");
+        for (String attribute : attributes.keySet()) {
+            if (!allowed.contains(attribute))
+                throw new IOException(String.format("Unknown Parameter '%s'", attribute));
+        }
+    }
+
+    private static void requireGray(boolean gray, String type) throws IOException {
+        if (!gray)
+            throw new IOException(String.format("'%s' Needs a Single Channel Image, Add a 'gray' Step Before It", type));
+    }
+
+    private static void requireColor(boolean gray, String type) throws IOException {
+        if (gray)
+            throw new IOException(String.format("'%s' Needs a Color Image, Move It Before The 'gray' Step", type));
+    }
+
+    private static double getDouble(Map<String, String> attributes, String parameter, double defaultValue) throws IOException {
+        String value = attributes.get(parameter);
+        if (value == null)
+            return defaultValue;
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IOException(String.format("'%s' Is Not a Number: %s", parameter, value));
+        }
+    }
+
+    private static int getInt(Map<String, String> attributes, String parameter, int defaultValue) throws IOException {
+        String value = attributes.get(parameter);
+        if (value == null)
+            return defaultValue;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IOException(String.format("'%s' Is Not an Integer: %s", parameter, value));
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package naji.cardreader;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.CLAHE;
+import org.opencv.imgproc.Imgproc;
+import org.opencv.photo.Photo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.opencv.imgproc.Imgproc.ADAPTIVE_THRESH_GAUSSIAN_C;
+import static org.opencv.imgproc.Imgproc.MORPH_CLOSE;
+import static org.opencv.imgproc.Imgproc.MORPH_OPEN;
+import static org.opencv.imgproc.Imgproc.MORPH_RECT;
+import static org.opencv.imgproc.Imgproc.THRESH_BINARY;
+import static org.opencv.imgproc.Imgproc.THRESH_OTSU;
+
+/**
+ * Enhances & Binarizes The Serial Number Area So Tesseract Can Read It
+ * <p>
+ * Only Works On Mats, Turning The Result Into a Bitmap Is Left To The Activity, So It Can Be Benchmarked On a Plain JVM.
+ * <p>
+ * There Are a Few Profiles To Choose From (Per Template):
+ * "accurate" Is The Original Edge Preserving Detail Enhancement & Otsu, Which Dominates The Preprocessing Time On a Phone,
+ * "fast" Equalizes The Contrast Locally (CLAHE) & Binarizes With an Adaptive Threshold, Which Also Copes With Uneven Light,
+ * "bilateral" Smooths The Background With a Small Bilateral Filter Before Otsu, Keeping The Character Edges Sharp.
+ * All Of Them End With The Same Cleanup (Median Blur & Morphology), So They Produce The Same Kind Of Binary Image.
+ * a Template Can Also Declare Its Own Steps Instead, Which Are Compiled Into a {@link SerialNumberPipeline} & Run Here.
+ * <p>
+ * a Preprocessor Is The Preprocessing Context Of One Worker (It Is Not Thread Safe): The Morphology Kernel & CLAHE Are Built Once,
+ * & Every Template Gets Its Own Set Of Scratch & Output Mats, Which Keep Their Size Because The Serial Number Area Of a Template
+ * Always Has The Same Size. So Once Every Template Was Seen, Preprocessing Doesn't Allocate Any Pixel Buffers Anymore.
+ * The Area Itself Is Only Read, Never Written, So a Submat Of The Aligned Image Can Be Passed As It Is.
+ */
+public class SerialNumberPreprocessor {
+    static final double DEFAULT_RESIZE_FACTOR = 2;
+
+    static final String PROFILE_ACCURATE = "accurate";
+    static final String PROFILE_FAST = "fast";
+    static final String PROFILE_BILATERAL = "bilateral";
+    static final String[] PROFILES = {PROFILE_ACCURATE, PROFILE_FAST, PROFILE_BILATERAL};
+    static final String DEFAULT_PROFILE = PROFILE_ACCURATE;
+
+    static final double CLAHE_CLIP_LIMIT = 2.0;
+    static final Size CLAHE_TILE_GRID_SIZE = new Size(8, 2);
+    //The Adaptive Threshold Looks At a Neighbourhood About Half As High As The Area, Bigger Than Any Character Stroke
+    static final double ADAPTIVE_BLOCK_SIZE_RATIO = 0.5;
+    static final double ADAPTIVE_THRESHOLD_OFFSET = 10;
+    static final int BILATERAL_DIAMETER = 5;
+    static final double BILATERAL_SIGMA_COLOR = 50;
+    static final double BILATERAL_SIGMA_SPACE = 5;
+
+    /**
+     * The Scratch & Output Mats Of One Template, OpenCV Reuses Their Memory As Long As The Size & Type Don't Change
+     */
+    static class PreprocessingBuffers {
+        Mat color = new Mat();
+        Mat enhanced = new Mat();
+        Mat gray = new Mat();
+        Mat filtered = new Mat();
+        Mat resized = new Mat();
+        Mat binary = new Mat();
+        Mat output = new Mat();
+        //One Output Per Stage Of a Declared Pipeline, Since Every Stage Keeps Its Own Size
+        List<Mat> stageOutputs = new ArrayList<>();
+
+        void release() {
+            for (Mat stageOutput : stageOutputs)
+                stageOutput.release();
+            color.release();
+            enhanced.release();
+            gray.release();
+            filtered.release();
+            resized.release();
+            binary.release();
+            output.release();
+        }
+    }
+
+    private final Mat kernel = Imgproc.getStructuringElement(MORPH_RECT, new Size(3, 3));
+    private final Size resizeToFactor = new Size();
+    private final Map<String, PreprocessingBuffers> buffers = new HashMap<>();
+    private final Map<String, CLAHE> declaredClahes = new HashMap<>();
+    private CLAHE clahe;
+
+    /**
+     * Whether The Name Is One Of The Known Profiles
+     */
+    public static boolean isProfile(String profile) {
+        return Arrays.asList(PROFILES).contains(profile);
+    }
+
+    /**
+     * Preprocesses The Serial Number Area Into The Output Buffer Of The Key
+     *
+     * @param area         The Serial Number Area (RGBA Or BGR), It Is Only Read
+     * @param resizeFactor How Much The Area Is Upscaled, Areas Already Read At a Higher Resolution Need Less
+     * @param profile      One Of {@link #PROFILES}
+     * @param bufferKey    Whose Buffers Are Used, Areas With The Same Key Should Have The Same Size (The Template Name)
+     * @return a Binary Single Channel Image, a Header On The Output Buffer Of The Key, Which Stays Valid Until The Next Area
+     * Of The Same Key Is Preprocessed. Releasing It Only Releases The Header, The Buffer Stays With The Preprocessor.
+     */
+    public Mat preprocess(Mat area, double resizeFactor, String profile, String bufferKey) {
+        PreprocessingBuffers preprocessingBuffers = getBuffers(bufferKey);
+
+        switch (profile) {
+            case PROFILE_FAST:
+                binarizeFast(area, resizeFactor, preprocessingBuffers);
+                break;
+
+            case PROFILE_BILATERAL:
+                binarizeBilateral(area, resizeFactor, preprocessingBuffers);
+                break;
+
+            case PROFILE_ACCURATE:
+                binarizeAccurate(area, resizeFactor, preprocessingBuffers);
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unknown Preprocessing Profile: " + profile);
+        }
+
+        //Median Blur Copies Its Input When Working In Place, So The Cleanup Goes Back & Forth Between Two Buffers
+        Mat binary = preprocessingBuffers.binary;
+        Mat output = preprocessingBuffers.output;
+        Imgproc.medianBlur(binary, output, 3);
+        Imgproc.morphologyEx(output, binary, MORPH_CLOSE, kernel);
+        Imgproc.morphologyEx(binary, output, MORPH_OPEN, kernel);
+
+        return output.submat(0, output.rows(), 0, output.cols());
+    }
+
+    /**
+     * Runs The Stages Of a Pipeline Declared By The Template, Each Into Its Own Buffer Of The Key
+     *
+     * @return a Binary Single Channel Image, a Header On The Output Buffer Of The Last Stage, Valid The Same Way As With a Profile
+     * @see #preprocess(Mat, double, String, String)
+     */
+    public Mat preprocess(Mat area, double resizeFactor, SerialNumberPipeline serialNumberPipeline, String bufferKey) {
+        List<Mat> stageOutputs = getBuffers(bufferKey).stageOutputs;
+        while (stageOutputs.size() < serialNumberPipeline.getStageCount())
+            stageOutputs.add(new Mat());
+
+        Mat source = area;
+        for (int i = 0; i < serialNumberPipeline.getStageCount(); i++) {
+            Mat destination = stageOutputs.get(i);
+            serialNumberPipeline.getStage(i).apply(source, destination, resizeFactor, this);
+            source = destination;
+        }
+        return source.submat(0, source.rows(), 0, source.cols());
+    }
+
+    /**
+     * The CLAHE Of a Declared Pipeline Stage, Built Once Per Preprocessor Since It Keeps Scratch Buffers Of Its Own
+     */
+    CLAHE getClahe(double clipLimit, Size tileGridSize) {
+        String claheKey = clipLimit + "/" + tileGridSize.width + "x" + tileGridSize.height;
+        CLAHE declaredClahe = declaredClahes.get(claheKey);
+        if (declaredClahe == null) {
+            declaredClahe = Imgproc.createCLAHE(clipLimit, tileGridSize);
+            declaredClahes.put(claheKey, declaredClahe);
+        }
+        return declaredClahe;
+    }
+
+    private PreprocessingBuffers getBuffers(String bufferKey) {
+        PreprocessingBuffers preprocessingBuffers = buffers.get(bufferKey);
+        if (preprocessingBuffers == null) {
+            preprocessingBuffers = new PreprocessingBuffers();
+            buffers.put(bufferKey, preprocessingBuffers);
+        }
+        return preprocessingBuffers;
+    }
+
+    /**
+     * Releases The Buffers Of Every Template & The Kernel, The Preprocessor Can't Be Used Anymore
+     */
+    public void release() {
+        for (PreprocessingBuffers preprocessingBuffers : buffers.values())
+            preprocessingBuffers.release();
+        buffers.clear();
+        declaredClahes.clear();
+        kernel.release();
+    }
+
+    private void binarizeAccurate(Mat area, double resizeFactor, PreprocessingBuffers preprocessingBuffers) {
+        //Detail Enhance Needs Three Channels, Only The Alpha Is Dropped So The Colours Stay In Their Order
+        Mat color = area;
+        if (area.channels() == 4) {
+            Imgproc.cvtColor(area, preprocessingBuffers.color, Imgproc.COLOR_BGRA2BGR);
+            color = preprocessingBuffers.color;
+        }
+        Photo.detailEnhance(color, preprocessingBuffers.enhanced, 10, (float) 0.15);
+
+        Imgproc.cvtColor(preprocessingBuffers.enhanced, preprocessingBuffers.gray, Imgproc.COLOR_BGR2GRAY);
+        Imgproc.threshold(preprocessingBuffers.gray, preprocessingBuffers.gray, 128, 255, THRESH_OTSU);
+        resize(preprocessingBuffers.gray, preprocessingBuffers.binary, resizeFactor);
+    }
+
+    /**
+     * The Gray Area Is Upscaled Before The Threshold, Which Gives Smoother Character Edges Than Upscaling The Binary Image
+     */
+    private void binarizeFast(Mat area, double resizeFactor, PreprocessingBuffers preprocessingBuffers) {
+        if (clahe == null)
+            clahe = Imgproc.createCLAHE(CLAHE_CLIP_LIMIT, CLAHE_TILE_GRID_SIZE);
+
+        Imgproc.cvtColor(area, preprocessingBuffers.gray, Imgproc.COLOR_BGR2GRAY);
+        clahe.apply(preprocessingBuffers.gray, preprocessingBuffers.filtered);
+        resize(preprocessingBuffers.filtered, preprocessingBuffers.resized, resizeFactor);
+
+        Mat resized = preprocessingBuffers.resized;
+        int blockSize = Math.max(3, (int) (resized.height() * ADAPTIVE_BLOCK_SIZE_RATIO) | 1);
+        Imgproc.adaptiveThreshold(resized, preprocessingBuffers.binary, 255, ADAPTIVE_THRESH_GAUSSIAN_C, THRESH_BINARY, blockSize, ADAPTIVE_THRESHOLD_OFFSET);
+    }
+
+    private void binarizeBilateral(Mat area, double resizeFactor, PreprocessingBuffers preprocessingBuffers) {
+        Imgproc.cvtColor(area, preprocessingBuffers.gray, Imgproc.COLOR_BGR2GRAY);
+        Imgproc.bilateralFilter(preprocessingBuffers.gray, preprocessingBuffers.filtered, BILATERAL_DIAMETER, BILATERAL_SIGMA_COLOR, BILATERAL_SIGMA_SPACE);
+        Imgproc.threshold(preprocessingBuffers.filtered, preprocessingBuffers.filtered, 128, 255, THRESH_OTSU);
+        resize(preprocessingBuffers.filtered, preprocessingBuffers.binary, resizeFactor);
+    }
+
+    /**
+     * Resizes By The Factor Into The Destination, Or Just Copies If There Is Nothing To Resize
+     */
+    void resize(Mat source, Mat destination, double resizeFactor) {
+        if (resizeFactor != 1)
+            Imgproc.resize(source, destination, resizeToFactor, resizeFactor, resizeFactor, Imgproc.INTER_LINEAR);
+        else
+            source.copyTo(destination);
+    }
+}
@@ -0,0 +1,277 @@
+package naji.cardreader;
+
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import naji.cardreader.DTOs.Template;
+import naji.cardreader.DTOs.TemplateInfo;
+
+/**
+ * The Built In Templates Together With The Template Packs Found In a Local Folder, Reloaded While The App Is Running
+ * <p>
+ * a Pack Is a Sub Folder Of The Library Holding a `templates.xml` (The Same Schema As `template_serial_number_positions.xml`)
+ * & a `<template name>.png` For Every Template In It. So a New Card Type Is Added By Copying a Pack Into The Folder,
+ * Without Rebuilding The App. a Pack Template With The Name Of a Built In Template Replaces It.
+ * <p>
+ * The Folder Is Polled On a Background Thread, Which Also Extracts The Features Of New Or Changed Templates
+ * (Unchanged Templates Are Reused As They Are). The Templates Are Then Published As a New {@link TemplateRegistry} Snapshot,
+ * Swapped In At Once. Recognizers Switch To The Latest Snapshot Between Scans, So a Scan In Flight Keeps Seeing The Templates It Started With.
+ * Snapshots Are Reference Counted & a Pack Template Is Only Released Once No Snapshot Holding It Is Used Anymore.
+ * <p>
+ * Packs Should Be Written Elsewhere & Moved Into The Folder, a Pack Caught Half Copied Is Skipped & Picked Up By The Next Poll.
+ */
+public class TemplateLibrary {
+    static final String PACK_TEMPLATES_FILE = "templates.xml";
+    static final long DEFAULT_POLL_MILLIS = 2000;
+    //Pack Templates Get Their Own Ids, Far From The Resource Ids Of The Built In Ones
+    static final int FIRST_PACK_TEMPLATE_ID = 1_000_000;
+
+    private final File libraryFolder;
+    private final List<Template> builtInTemplates;
+    //Shares The Pixel Cache Of The Built In Registry, So All The Templates Share One Memory Budget
+    private final TemplatePixelCache templatePixelCache;
+    //Only Used For Extracting & Releasing Pack Templates
+    private final TemplateRegistry templateExtractor;
+    private ScheduledExecutorService reloadExecutor;
+
+    //Guarded By `this`
+    private TemplateRegistry currentSnapshot;
+    private final Map<TemplateRegistry, Integer> snapshotReferences = new IdentityHashMap<>();
+    private final Map<Template, Integer> packTemplateReferences = new IdentityHashMap<>();
+
+    //Guarded By `reloadLock`, Pack Template Key (Its Image & Metadata Files With Their Modification Times & Sizes) -> The Template Extracted From It
+    private final Object reloadLock = new Object();
+    private Map<String, Template> packTemplates = new HashMap<>();
+    private String librarySignature = "";
+    private int nextTemplateId = FIRST_PACK_TEMPLATE_ID;
+
+    /**
+     * @param builtInRegistry The Templates Shipped With The App, They Stay With Their Owner & Are Never Released By The Library
+     * @param libraryFolder   The Folder Holding The Template Packs, Created If It Doesn't Exist
+     */
+    public TemplateLibrary(TemplateRegistry builtInRegistry, File libraryFolder) {
+        this.libraryFolder = libraryFolder;
+        this.builtInTemplates = new ArrayList<>(builtInRegistry.getTemplates());
+        this.templatePixelCache = builtInRegistry.getTemplatePixelCache();
+        this.templateExtractor = new TemplateRegistry(templatePixelCache);
+        if (!libraryFolder.exists())
+            libraryFolder.mkdirs();
+        publish(TemplateRegistry.snapshot(builtInTemplates, templatePixelCache));
+    }
+
+    /**
+     * Polls The Folder For Changed Packs On a Background Thread, Starting With a Reload Right Away
+     */
+    public synchronized void startWatching(long pollMillis) {
+        if (reloadExecutor != null)
+            return;
+        reloadExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "template-library");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reloadExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                reload();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }, 0, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * The Latest Snapshot, Which Stays Usable Until It Is Given Back With {@link #releaseSnapshot(TemplateRegistry)}
+     */
+    public synchronized TemplateRegistry acquireSnapshot() {
+        snapshotReferences.put(currentSnapshot, snapshotReferences.get(currentSnapshot) + 1);
+        return currentSnapshot;
+    }
+
+    /**
+     * Whether The Snapshot Is Still The Latest One, So Holders Of It Don't Need To Switch
+     */
+    public synchronized boolean isCurrent(TemplateRegistry snapshot) {
+        return snapshot == currentSnapshot;
+    }
+
+    /**
+     * Gives Back a Snapshot, The Pack Templates Only It Was Holding Are Released
+     */
+    public synchronized void releaseSnapshot(TemplateRegistry snapshot) {
+        int references = snapshotReferences.get(snapshot) - 1;
+        if (references > 0) {
+            snapshotReferences.put(snapshot, references);
+            return;
+        }
+
+        snapshotReferences.remove(snapshot);
+        for (Template template : snapshot.getTemplates()) {
+            Integer templateReferences = packTemplateReferences.get(template);
+            if (templateReferences == null)
+                continue;
+            if (templateReferences > 1) {
+                packTemplateReferences.put(template, templateReferences - 1);
+            } else {
+                packTemplateReferences.remove(template);
+                templateExtractor.releaseTemplate(template);
+            }
+        }
+    }
+
+    /**
+     * Reads The Packs Again & Publishes a New Snapshot If Anything Changed, Runs On The Calling Thread
+     *
+     * @return Whether a New Snapshot Was Published
+     */
+    public boolean reload() {
+        synchronized (reloadLock) {
+            File[] packFolders = libraryFolder.listFiles(File::isDirectory);
+            if (packFolders == null)
+                packFolders = new File[0];
+            Arrays.sort(packFolders);
+
+            //Listing The Files Is Cheap, So Most Polls End Here
+            String signature = getSignature(packFolders);
+            if (signature.equals(librarySignature))
+                return false;
+            librarySignature = signature;
+
+            Map<String, Template> reloadedTemplates = new HashMap<>();
+            Map<String, Template> templatesByName = new LinkedHashMap<>();
+            for (File packFolder : packFolders) {
+                File templatesFile = new File(packFolder, PACK_TEMPLATES_FILE);
+                List<TemplateInfo> templateInfos;
+                try (InputStream inputStream = new FileInputStream(templatesFile)) {
+                    templateInfos = TemplateRegistry.readTemplateInfos(inputStream);
+                } catch (IOException e) {
+                    //a Broken Pack Is Skipped, The Others Still Load
+                    System.out.println(String.format("Template Pack '%s' Skipped: %s", packFolder.getName(), e.getMessage()));
+                    continue;
+                }
+
+                for (TemplateInfo templateInfo : templateInfos) {
+                    //The Metadata Is Part Of The Key, So a Template Is Only Reused If Neither Its Image Nor Its Metadata Changed
+                    File imageFile = new File(packFolder, templateInfo.templateName + ".png");
+                    String templateKey = String.format("%s@%d/%d@%d/%d", imageFile.getPath(), imageFile.lastModified(), imageFile.length(),
+                            templatesFile.lastModified(), templatesFile.length());
+                    Template template = templatesByName.containsKey(templateInfo.templateName) ? null : packTemplates.get(templateKey);
+
+                    if (templatesByName.containsKey(templateInfo.templateName)) {
+                        System.out.println(String.format("Template '%s' Of Pack '%s' Skipped, An Earlier Pack Has It Too", templateInfo.templateName, packFolder.getName()));
+                    } else if (template == null) {
+                        Mat image = Imgcodecs.imread(imageFile.getPath(), Imgcodecs.IMREAD_COLOR);
+                        if (!image.empty()) {
+                            template = templateExtractor.extractTemplate(nextTemplateId++, templateInfo.templateName, templateInfo, image,
+                                    () -> Imgcodecs.imread(imageFile.getPath(), Imgcodecs.IMREAD_COLOR));
+                        } else {
+                            image.release();
+                            System.out.println(String.format("Template '%s' Of Pack '%s' Skipped, Its Image Could Not Be Read", templateInfo.templateName, packFolder.getName()));
+                        }
+                    }
+
+                    //The Freshly Parsed Info Isn't Used When The Template Is Reused Or Skipped
+                    if ((template == null || template.templateInfo != templateInfo) && templateInfo.serialNumberPipeline != null)
+                        templateInfo.serialNumberPipeline.release();
+                    if (template == null)
+                        continue;
+                    reloadedTemplates.put(templateKey, template);
+                    templatesByName.put(templateInfo.templateName, template);
+                }
+            }
+
+            List<Template> templates = new ArrayList<>();
+            for (Template builtInTemplate : builtInTemplates) {
+                if (!templatesByName.containsKey(builtInTemplate.templateResourceName))
+                    templates.add(builtInTemplate);
+            }
+            templates.addAll(templatesByName.values());
+
+            packTemplates = reloadedTemplates;
+            //Files Other Than The Images & templates.xml Changing Give The Very Same Templates, Then The Current Snapshot Stays
+            if (isPublished(templates))
+                return false;
+            publish(TemplateRegistry.snapshot(templates, templatePixelCache));
+            System.out.println(String.format("Template Library Changed, %d Templates (%d From Packs)", templates.size(), templatesByName.size()));
+            return true;
+        }
+    }
+
+    /**
+     * Whether The Current Snapshot Holds Exactly These Templates, In This Order
+     */
+    private synchronized boolean isPublished(List<Template> templates) {
+        return templates.equals(currentSnapshot.getTemplates());
+    }
+
+    /**
+     * Swaps In The New Snapshot, The Library Holds One Reference To The Current Snapshot
+     */
+    private synchronized void publish(TemplateRegistry snapshot) {
+        for (Template template : snapshot.getTemplates()) {
+            if (!builtInTemplates.contains(template))
+                packTemplateReferences.put(template, packTemplateReferences.getOrDefault(template, 0) + 1);
+        }
+        snapshotReferences.put(snapshot, 1);
+
+        TemplateRegistry previousSnapshot = currentSnapshot;
+        currentSnapshot = snapshot;
+        if (previousSnapshot != null)
+            releaseSnapshot(previousSnapshot);
+    }
+
+    /**
+     * The Names, Modification Times & Sizes Of Every File In The Packs
+     */
+    private static String getSignature(File[] packFolders) {
+        StringBuilder signature = new StringBuilder();
+        for (File packFolder : packFolders) {
+            File[] files = packFolder.listFiles();
+            if (files == null)
+                continue;
+            Arrays.sort(files);
+            for (File file : files)
+                signature.append(file.getPath()).append('@').append(file.lastModified()).append('/').append(file.length()).append('\n');
+        }
+        return signature.toString();
+    }
+
+    /**
+     * Stops Watching & Gives Back The Library's Reference To The Current Snapshot,
+     * Pack Templates Still Held By Recognizers Are Released When They Give Their Snapshots Back
+     */
+    public void release() {
+        synchronized (this) {
+            if (reloadExecutor != null)
+                reloadExecutor.shutdownNow();
+        }
+        try {
+            if (reloadExecutor != null)
+                reloadExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+
+        synchronized (this) {
+            if (currentSnapshot != null)
+                releaseSnapshot(currentSnapshot);
+            currentSnapshot = TemplateRegistry.snapshot(Collections.emptyList(), templatePixelCache);
+            snapshotReferences.put(currentSnapshot, 1);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package naji.cardreader;
+
+import org.opencv.core.Mat;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import naji.cardreader.DTOs.Template;
+
+/**
+ * Keeps The Pixels Of The Recently Used Templates Within a Native Memory Budget, The Least Recently Used Are Evicted First
+ * <p>
+ * Alignment Only Needs The Keypoints, Descriptors, Thumbnail, Signature & Size Of a Template, Which Stay Resident In The {@link Template}.
+ * The Full Colour Image Is Only Needed For Debugging, Display & The Tools, So It Is Only Loaded From Its Source When Asked For & Kept Until Evicted.
+ */
+public class TemplatePixelCache {
+    //About 4 Templates Of 1008x638 In BGR
+    static final long DEFAULT_BUDGET_BYTES = 8L * 1024 * 1024;
+
+    //The Levels Of Android's ComponentCallbacks2.onTrimMemory, The Core Doesn't Depend On Android
+    static final int TRIM_MEMORY_RUNNING_MODERATE = 5;
+    static final int TRIM_MEMORY_RUNNING_LOW = 10;
+
+    /**
+     * Reads The Template Image (In BGR Order) From Wherever It Came From, The Caller Owns The Result
+     */
+    public interface Loader {
+        Mat load() throws IOException;
+    }
+
+    private final long budgetBytes;
+    //Guarded By `this`, In Access Order So The First Entry Is The Least Recently Used
+    private final LinkedHashMap<Template, Mat> templateImages = new LinkedHashMap<>(16, 0.75f, true);
+    private long residentBytes;
+
+    public TemplatePixelCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * a Copy Of The Template Image In BGR Order, Loaded From Its Source If It Was Evicted. The Caller Owns The Copy
+     *
+     * @return The Image, Or Null If It Could Not Be Loaded
+     */
+    public Mat getTemplateImage(Template template) {
+        synchronized (this) {
+            Mat templateImage = templateImages.get(template);
+            if (templateImage != null)
+                return templateImage.clone();
+        }
+
+        //Loaded Outside The Lock, So a Slow Decode Doesn't Hold Up The Other Templates
+        Mat templateImage;
+        try {
+            templateImage = template.templateImageLoader.load();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+        if (templateImage == null || templateImage.empty()) {
+            if (templateImage != null)
+                templateImage.release();
+            System.out.println(String.format("The Image Of Template '%s' Could Not Be Loaded", template.templateResourceName));
+            return null;
+        }
+
+        Mat copy = templateImage.clone();
+        put(template, templateImage);
+        return copy;
+    }
+
+    /**
+     * Caches a Freshly Loaded Template Image, The Cache Takes Ownership Of It
+     */
+    private synchronized void put(Template template, Mat templateImage) {
+        long imageBytes = getBytes(templateImage);
+        //An Image Larger Than The Whole Budget Is Never Kept
+        if (imageBytes > budgetBytes || templateImages.containsKey(template)) {
+            templateImage.release();
+            return;
+        }
+
+        templateImages.put(template, templateImage);
+        residentBytes += imageBytes;
+        evict(budgetBytes);
+    }
+
+    /**
+     * Drops The Template Image, If Cached
+     */
+    public synchronized void remove(Template template) {
+        Mat templateImage = templateImages.remove(template);
+        if (templateImage != null) {
+            residentBytes -= getBytes(templateImage);
+            templateImage.release();
+        }
+    }
+
+    /**
+     * Gives Memory Back When The System Asks For It, Half The Budget On a Moderate Trim & Everything Beyond That
+     *
+     * @param level The Level Passed To onTrimMemory
+     */
+    public synchronized void trimMemory(int level) {
+        if (level >= TRIM_MEMORY_RUNNING_LOW)
+            evict(0);
+        else if (level >= TRIM_MEMORY_RUNNING_MODERATE)
+            evict(budgetBytes / 2);
+    }
+
+    public synchronized long getResidentBytes() {
+        return residentBytes;
+    }
+
+    /**
+     * Releases The Least Recently Used Images Until The Rest Fit In The Given Number Of Bytes
+     */
+    private void evict(long maxBytes) {
+        Iterator<Map.Entry<Template, Mat>> iterator = templateImages.entrySet().iterator();
+        while (residentBytes > maxBytes && iterator.hasNext()) {
+            Mat templateImage = iterator.next().getValue();
+            iterator.remove();
+            residentBytes -= getBytes(templateImage);
+            templateImage.release();
+        }
+    }
+
+    private static long getBytes(Mat image) {
+        return image.total() * image.elemSize();
+    }
+
+    /**
+     * Destroys OpenCV Resources To Prevent Memory Overflow
+     */
+    public synchronized void release() {
+        evict(0);
+    }
+}
@@ -0,0 +1,258 @@
+package naji.cardreader;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfKeyPoint;
+import org.opencv.core.Size;
+import org.opencv.features2d.Feature2D;
+import org.opencv.features2d.ORB;
+import org.opencv.imgproc.Imgproc;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.NodeList;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import naji.cardreader.DTOs.Template;
+import naji.cardreader.DTOs.TemplateInfo;
+
+/**
+ * Holds The Loaded Templates (Cards) Together With Everything Extracted From Them Once For Alignment
+ * <p>
+ * Where The Template Images Come From (Android Resources, Files, ...) Is Up To The Caller.
+ * Once Loaded, The Templates Are Only Read, So a Single Registry Can Be Shared By Several Pipelines.
+ * Only What Alignment Needs Stays Resident, The Template Pixels Are Kept In a Budgeted {@link TemplatePixelCache}.
+ * a {@link TemplateLibrary} Builds Registries As Snapshots Of Its Templates, Which Are Never Changed After They Are Built.
+ */
+public class TemplateRegistry {
+    private final Feature2D featureExtractor;
+    private final CardQuadDetector cardQuadDetector = new CardQuadDetector();
+    private final TemplateShortlist templateShortlist = new TemplateShortlist();
+    private final List<Template> templates = new ArrayList<>();
+    private final TemplatePixelCache templatePixelCache;
+
+    public TemplateRegistry() {
+        this(new TemplatePixelCache(TemplatePixelCache.DEFAULT_BUDGET_BYTES));
+    }
+
+    /**
+     * @param templatePixelCache Where The Template Pixels Are Kept, May Be Shared With Other Registries
+     */
+    public TemplateRegistry(TemplatePixelCache templatePixelCache) {
+//        featureExtractor = AKAZE.create(); // More Accurate But Slower
+        featureExtractor = ORB.create(); // Accurate Enough And Faster
+        this.templatePixelCache = templatePixelCache;
+    }
+
+    /**
+     * a Registry Of Templates Which Were Already Extracted, Their Owner Stays Responsible For Releasing Them
+     */
+    public static TemplateRegistry snapshot(List<Template> templates, TemplatePixelCache templatePixelCache) {
+        TemplateRegistry templateRegistry = new TemplateRegistry(templatePixelCache);
+        templateRegistry.templates.addAll(templates);
+        return templateRegistry;
+    }
+
+    /**
+     * Extracts The Features, The Thumbnail & The Signature Of The Template & Adds It To The Registry
+     *
+     * @param template            The Template Image In BGR Order (As Loaded By OpenCV), Released Once Its Features Are Extracted
+     * @param templateImageLoader Loads The Same Image Again When Its Pixels Are Needed
+     */
+    public Template addTemplate(int templateId, String templateName, TemplateInfo templateInfo, Mat template, TemplatePixelCache.Loader templateImageLoader) {
+        Template loadedTemplate = extractTemplate(templateId, templateName, templateInfo, template, templateImageLoader);
+        templates.add(loadedTemplate);
+        return loadedTemplate;
+    }
+
+    /**
+     * Extracts The Features, The Thumbnail & The Signature Of The Template Without Adding It, The Caller Owns The Result
+     *
+     * @param template            The Template Image In BGR Order (As Loaded By OpenCV), Released Once Its Features Are Extracted
+     * @param templateImageLoader Loads The Same Image Again When Its Pixels Are Needed
+     */
+    public Template extractTemplate(int templateId, String templateName, TemplateInfo templateInfo, Mat template, TemplatePixelCache.Loader templateImageLoader) {
+        Mat templateGray = new Mat(template.height(), template.width(), CvType.CV_8UC1);
+        Imgproc.cvtColor(template, templateGray, Imgproc.COLOR_BGR2GRAY);
+        MatOfKeyPoint templateKeypoints = new MatOfKeyPoint();
+        Mat templateDescriptors = new Mat();
+        featureExtractor.detectAndCompute(templateGray, new Mat(), templateKeypoints, templateDescriptors, false);
+        Mat templateThumbnail = cardQuadDetector.createThumbnail(templateGray);
+        Mat templateSignature = templateShortlist.computeSignature(template, false);
+        templateGray.release();
+
+        //Only The Features Stay Resident, The Pixels Are Loaded Into The Cache On Demand
+        Size templateSize = template.size();
+        template.release();
+        return new Template(templateId, templateName, templateInfo, templateSize, templateImageLoader,
+                templateKeypoints, templateDescriptors, templateThumbnail, templateSignature);
+    }
+
+    /**
+     * a Copy Of The Template Image In BGR Order (Loaded Again If Its Pixels Were Evicted), Or Null If It Could Not Be Loaded.
+     * The Caller Owns The Copy. Only For Debugging, Display & The Tools, Alignment Doesn't Need The Pixels
+     */
+    public Mat getTemplateImage(Template template) {
+        return templatePixelCache.getTemplateImage(template);
+    }
+
+    public TemplatePixelCache getTemplatePixelCache() {
+        return templatePixelCache;
+    }
+
+    /**
+     * Gives Template Pixels Back When The System Runs Low On Memory, The Descriptors Stay
+     *
+     * @param level The Level Passed To onTrimMemory
+     */
+    public void trimMemory(int level) {
+        templatePixelCache.trimMemory(level);
+    }
+
+    public List<Template> getTemplates() {
+        return Collections.unmodifiableList(templates);
+    }
+
+    /**
+     * Finds The Loaded Template With The Given Name, Or Null If There Is No Such Template
+     */
+    public Template findTemplateByName(String templateName) {
+        for (Template template : templates) {
+            if (template.templateResourceName.equals(templateName))
+                return template;
+        }
+        return null;
+    }
+
+    /**
+     * The Hard Coded Info (Serial Number Position, ...) Of The Template, Or Null If There Is No Such Template
+     */
+    public TemplateInfo getTemplateInfo(String templateName) {
+        Template template = findTemplateByName(templateName);
+        return template == null ? null : template.templateInfo;
+    }
+
+    /**
+     * The Width Of The Widest Template, Captured Images Are Decoded Relative To It
+     */
+    public int getMaxTemplateWidth() {
+        int maxTemplateWidth = 0;
+        for (Template template : templates)
+            maxTemplateWidth = Math.max(maxTemplateWidth, (int) template.templateSize.width);
+        return maxTemplateWidth;
+    }
+
+    public boolean isEmpty() {
+        return templates.isEmpty();
+    }
+
+    /**
+     * Destroys OpenCV Resources To Prevent Memory Overflow
+     */
+    public void release() {
+        for (Template template : templates)
+            releaseTemplate(template);
+        templates.clear();
+    }
+
+    /**
+     * Destroys The OpenCV Resources Of One Template, Including Its Cached Pixels
+     */
+    public void releaseTemplate(Template template) {
+        templatePixelCache.remove(template);
+        template.templateDescriptors.release();
+        template.templateKeypoints.release();
+        template.templateThumbnail.release();
+        template.templateSignature.release();
+        if (template.templateInfo.serialNumberPipeline != null)
+            template.templateInfo.serialNumberPipeline.release();
+    }
+
+    /**
+     * Reads The Template Infos From a `template_serial_number_positions.xml` Stream, For Where Android Resources Aren't Available
+     */
+    public static List<TemplateInfo> readTemplateInfos(InputStream inputStream) throws IOException {
+        try {
+            Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(inputStream);
+            List<TemplateInfo> templateInfos = new ArrayList<>();
+
+            NodeList templateElements = document.getElementsByTagName("template");
+            for (int i = 0; i < templateElements.getLength(); i++) {
+                Element templateElement = (Element) templateElements.item(i);
+                String templateName = templateElement.getAttribute("name");
+                int templateXLeft = Integer.parseInt(readText(templateElement, "XLeft"));
+                int templateXRight = Integer.parseInt(readText(templateElement, "XRight"));
+                int templateYTop = Integer.parseInt(readText(templateElement, "YTop"));
+                int templateYBottom = Integer.parseInt(readText(templateElement, "YBottom"));
+                int[] sortedCharacterLenghts = Arrays.stream(readText(templateElement, "CharactersLength").split(",")).map(String::trim).map(Integer::parseInt).sorted(Comparator.reverseOrder()).mapToInt(x -> x).toArray();
+
+                TemplateInfo templateInfo = new TemplateInfo(templateName, templateXLeft, templateXRight, templateYTop, templateYBottom, sortedCharacterLenghts);
+
+                //Optional, The Accurate Profile Is Used Without It
+                NodeList preprocessingProfiles = templateElement.getElementsByTagName("PreprocessingProfile");
+                if (preprocessingProfiles.getLength() > 0)
+                    templateInfo.preprocessingProfile = checkPreprocessingProfile(templateName, preprocessingProfiles.item(0).getTextContent());
+
+                //Optional, The Steps, OCR Engines & Format Of The Template Replace The Profile
+                NodeList pipelines = templateElement.getElementsByTagName("Pipeline");
+                if (pipelines.getLength() > 0) {
+                    Element pipelineElement = (Element) pipelines.item(0);
+                    List<Map<String, String>> steps = readAttributes(pipelineElement.getElementsByTagName("Step"));
+                    List<Map<String, String>> ocrs = readAttributes(pipelineElement.getElementsByTagName("Ocr"));
+                    NodeList formats = pipelineElement.getElementsByTagName("Format");
+                    String format = formats.getLength() > 0 ? formats.item(0).getTextContent() : null;
+                    templateInfo.serialNumberPipeline = SerialNumberPipeline.compile(templateName, steps, ocrs, format);
+                }
+                templateInfos.add(templateInfo);
+            }
+            return templateInfos;
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("The Template Infos Could Not Be Read", e);
+        }
+    }
+
+    /**
+     * The Declared Preprocessing Profile, Trimmed. The Template Infos Are Read Here & By The App's Resource Parser,
+     * Both Fail To Load On An Unknown Profile Or a Broken Pipeline Instead Of Quietly Falling Back To The Default
+     *
+     * @throws IOException If There Is No Such Profile
+     */
+    public static String checkPreprocessingProfile(String templateName, String preprocessingProfile) throws IOException {
+        preprocessingProfile = preprocessingProfile.trim();
+        if (!SerialNumberPreprocessor.isProfile(preprocessingProfile))
+            throw new IOException(String.format("Unknown Preprocessing Profile '%s' For '%s'", preprocessingProfile, templateName));
+        return preprocessingProfile;
+    }
+
+    /**
+     * The Attributes Of Every Element, In Document Order
+     */
+    private static List<Map<String, String>> readAttributes(NodeList elements) {
+        List<Map<String, String>> attributesList = new ArrayList<>();
+        for (int i = 0; i < elements.getLength(); i++) {
+            NamedNodeMap attributes = elements.item(i).getAttributes();
+            Map<String, String> attributeMap = new LinkedHashMap<>();
+            for (int j = 0; j < attributes.getLength(); j++)
+                attributeMap.put(attributes.item(j).getNodeName(), attributes.item(j).getNodeValue());
+            attributesList.add(attributeMap);
+        }
+        return attributesList;
+    }
+
+    private static String readText(Element element, String tagName) {
+        return element.getElementsByTagName(tagName).item(0).getTextContent().trim();
+    }
+}
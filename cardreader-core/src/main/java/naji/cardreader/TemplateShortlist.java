@@ -0,0 +1,91 @@
+package naji.cardreader;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfFloat;
+import org.opencv.core.MatOfInt;
+import org.opencv.core.Rect;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import naji.cardreader.DTOs.Template;
+
+/**
+ * Ranks The Templates By a Compact Global Signature (a Hue-Saturation Histogram) Before Any Homography Work
+ * <p>
+ * Comparing Two Histograms Costs Almost Nothing Compared To Matching Features & Running RANSAC,
+ * So The Full Alignment Only Has To Run For The Few Templates Whose Colours Look Like The Captured Card.
+ * This Keeps The Scan Time Nearly Flat As More Card Types Are Added.
+ */
+public class TemplateShortlist {
+    static final int SHORTLIST_SIZE = 2;
+    static final int HUE_BINS = 30;
+    static final int SATURATION_BINS = 32;
+    static final int SIGNATURE_WIDTH = 320;
+    static final double CAPTURED_CENTER_RATIO = 0.6;
+
+    /**
+     * Computes The Normalized Hue-Saturation Histogram Of The Image
+     *
+     * @param rgb Whether The Image Channels Are In RGB(A) Order (Android Bitmaps) Instead Of BGR(A) Order (OpenCV Decoders)
+     */
+    public Mat computeSignature(Mat image, boolean rgb) {
+        //The Histogram Doesn't Need Many Pixels, a Small Image Is Enough & Much Faster
+        double scale = Math.min(1.0, ((double) SIGNATURE_WIDTH) / image.width());
+        Mat smallImage = new Mat();
+        Mat hsv = new Mat();
+        Mat histogram = new Mat();
+
+        try {
+            Imgproc.resize(image, smallImage, new Size(), scale, scale, Imgproc.INTER_AREA);
+            if (smallImage.channels() == 4)
+                Imgproc.cvtColor(smallImage, smallImage, rgb ? Imgproc.COLOR_RGBA2RGB : Imgproc.COLOR_BGRA2BGR);
+            Imgproc.cvtColor(smallImage, hsv, rgb ? Imgproc.COLOR_RGB2HSV : Imgproc.COLOR_BGR2HSV);
+
+            List<Mat> images = new ArrayList<>();
+            images.add(hsv);
+            Imgproc.calcHist(images, new MatOfInt(0, 1), new Mat(), histogram,
+                    new MatOfInt(HUE_BINS, SATURATION_BINS), new MatOfFloat(0, 180, 0, 256));
+            Core.normalize(histogram, histogram, 1, 0, Core.NORM_L1);
+            return histogram;
+        } finally {
+            smallImage.release();
+            hsv.release();
+        }
+    }
+
+    /**
+     * Picks The Templates Whose Signatures Are The Most Similar To The Captured Image
+     * <p>
+     * The Card Usually Fills The Middle Of a Captured Image, So Only The Center Is Used To Keep The Background Out Of The Histogram.
+     *
+     * @param count How Many Templates To Keep
+     * @return The Best Templates, Most Similar First
+     */
+    public List<Template> shortlist(Mat image, boolean rgb, List<Template> templates, int count) {
+        if (templates.size() <= count)
+            return templates;
+
+        int marginX = (int) (image.width() * (1 - CAPTURED_CENTER_RATIO) / 2);
+        int marginY = (int) (image.height() * (1 - CAPTURED_CENTER_RATIO) / 2);
+        Mat center = image.submat(new Rect(marginX, marginY, image.width() - 2 * marginX, image.height() - 2 * marginY));
+        Mat signature = computeSignature(center, rgb);
+        center.release();
+
+        Map<Template, Double> similarities = new HashMap<>();
+        for (Template template : templates)
+            similarities.put(template, Imgproc.compareHist(signature, template.templateSignature, Imgproc.HISTCMP_CORREL));
+        signature.release();
+
+        List<Template> rankedTemplates = new ArrayList<>(templates);
+        rankedTemplates.sort(Comparator.comparingDouble((Template template) -> similarities.get(template)).reversed());
+        return Collections.unmodifiableList(rankedTemplates.subList(0, count));
+    }
+}
@@ -0,0 +1,78 @@
+package naji.cardreader;
+
+/**
+ * The Part Of {@link OcrEngine} Shared By The Tesseract Engines (tess-two On Android, tess4j Headless)
+ * <p>
+ * Keeps Track Of The Character Whitelist & The Page Segmentation Mode Tesseract Was Last Set To,
+ * So It Is Only Called When a Template Declares Different Settings Than The Previous One.
+ * Both Bindings Use Tesseract's Own Page Segmentation Mode Numbers, So The Mapping Lives Here Too.
+ */
+public abstract class TesseractSettings implements OcrEngine {
+    //Tesseract's PageSegMode Values
+    static final int TESSERACT_PSM_SINGLE_BLOCK = 6;
+    static final int TESSERACT_PSM_SINGLE_LINE = 7;
+    static final int TESSERACT_PSM_SINGLE_WORD = 8;
+    static final int TESSERACT_PSM_RAW_LINE = 13;
+
+    private final String defaultCharacterWhitelist;
+    private String characterWhitelist;
+    private String pageSegmentationMode = PSM_SINGLE_LINE;
+
+    /**
+     * @param characterWhitelist The Whitelist Tesseract Was Set Up With (Together With The Single Line Mode), Restored For Templates Which Don't Declare Their Own
+     */
+    protected TesseractSettings(String characterWhitelist) {
+        this.defaultCharacterWhitelist = characterWhitelist;
+        this.characterWhitelist = characterWhitelist;
+    }
+
+    /**
+     * Only Calls Into Tesseract When The Settings Change, As Most Templates Keep The Ones The Engine Was Created With
+     */
+    @Override
+    public void configure(String characterWhitelist, String pageSegmentationMode) {
+        if (characterWhitelist == null)
+            characterWhitelist = defaultCharacterWhitelist;
+        if (pageSegmentationMode == null)
+            pageSegmentationMode = PSM_SINGLE_LINE;
+
+        if (!characterWhitelist.equals(this.characterWhitelist)) {
+            setCharacterWhitelist(characterWhitelist);
+            this.characterWhitelist = characterWhitelist;
+        }
+        if (!pageSegmentationMode.equals(this.pageSegmentationMode)) {
+            setPageSegMode(getPageSegMode(pageSegmentationMode));
+            this.pageSegmentationMode = pageSegmentationMode;
+        }
+    }
+
+    /**
+     * The Characters a Model Reads Unless The Template Declares Others, The Same On The Device & Headless
+     */
+    public static String getCharacterWhitelist(String modelName) {
+        return modelName.contains("eng") ? "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789" : "0123456789٠١٢٣٤٥٦٧٨٩";
+    }
+
+    /**
+     * Tesseract's Number For One Of {@link #PAGE_SEGMENTATION_MODES}
+     */
+    static int getPageSegMode(String pageSegmentationMode) {
+        switch (pageSegmentationMode) {
+            case PSM_SINGLE_WORD:
+                return TESSERACT_PSM_SINGLE_WORD;
+            case PSM_SINGLE_BLOCK:
+                return TESSERACT_PSM_SINGLE_BLOCK;
+            case PSM_RAW_LINE:
+                return TESSERACT_PSM_RAW_LINE;
+            default:
+                return TESSERACT_PSM_SINGLE_LINE;
+        }
+    }
+
+    protected abstract void setCharacterWhitelist(String characterWhitelist);
+
+    /**
+     * @param pageSegMode One Of Tesseract's PageSegMode Values
+     */
+    protected abstract void setPageSegMode(int pageSegMode);
+}
@@ -0,0 +1,92 @@
+package naji.cardreader;
+
+import java.util.Arrays;
+
+/**
+ * Measures The Live Scanner Over a Rolling Window: How Fast Frames Arrive, How Fast They Are Analyzed,
+ * How Many Are Dropped In Between & How Long Analyzing Them Takes
+ * <p>
+ * OpenCV's FpsMeter Only Reports One Average Every 20 Frames & Formats a New String Each Time.
+ * With The Keep Only Latest Strategy The Camera Rate & The Analysis Rate Are Different Things, So They Are Counted Separately.
+ * All The Windows Are Fixed Size Arrays Allocated Once, Nothing Is Allocated Per Frame.
+ */
+public class ThroughputMeter {
+    static final int WINDOW_SIZE = 64;
+
+    private final long[] arrivalTimes = new long[WINDOW_SIZE];
+    private final long[] analysisTimes = new long[WINDOW_SIZE];
+    private final long[] latencies = new long[WINDOW_SIZE];
+    private final long[] sortedLatencies = new long[WINDOW_SIZE];
+    private long arrivedCount = 0;
+    private long analyzedCount = 0;
+
+    /**
+     * Called For Every Frame The Camera Delivers, Whether It Gets Analyzed Or Not
+     */
+    public synchronized void onFrameArrived() {
+        arrivalTimes[(int) (arrivedCount % WINDOW_SIZE)] = System.nanoTime();
+        arrivedCount++;
+    }
+
+    /**
+     * Called After a Frame Has Been Analyzed
+     *
+     * @param latencyNanos How Long The Analysis Of The Frame Took
+     */
+    public synchronized void onFrameAnalyzed(long latencyNanos) {
+        int index = (int) (analyzedCount % WINDOW_SIZE);
+        analysisTimes[index] = System.nanoTime();
+        latencies[index] = latencyNanos;
+        analyzedCount++;
+    }
+
+    /**
+     * Frames Per Second Delivered By The Camera Over The Window
+     */
+    public synchronized double getArrivalRate() {
+        return getRate(arrivalTimes, arrivedCount);
+    }
+
+    /**
+     * Frames Per Second Analyzed Over The Window
+     */
+    public synchronized double getAnalysisRate() {
+        return getRate(analysisTimes, analyzedCount);
+    }
+
+    /**
+     * Frames Which Arrived But Were Never Analyzed, Since The Last Reset
+     */
+    public synchronized long getDroppedCount() {
+        return Math.max(0, arrivedCount - analyzedCount);
+    }
+
+    /**
+     * The Analysis Latency (In Milliseconds) Below Which The Given Percentage Of The Frames In The Window Fall
+     */
+    public synchronized double getLatencyPercentileMillis(double percentile) {
+        int count = (int) Math.min(analyzedCount, WINDOW_SIZE);
+        if (count == 0)
+            return 0;
+
+        System.arraycopy(latencies, 0, sortedLatencies, 0, count);
+        Arrays.sort(sortedLatencies, 0, count);
+        int rank = (int) Math.ceil(percentile / 100 * count) - 1;
+        return sortedLatencies[Math.max(0, Math.min(rank, count - 1))] / 1e6;
+    }
+
+    public synchronized void reset() {
+        arrivedCount = 0;
+        analyzedCount = 0;
+    }
+
+    private double getRate(long[] times, long totalCount) {
+        int count = (int) Math.min(totalCount, WINDOW_SIZE);
+        if (count < 2)
+            return 0;
+
+        long newest = times[(int) ((totalCount - 1) % WINDOW_SIZE)];
+        long oldest = times[(int) ((totalCount - count) % WINDOW_SIZE)];
+        return (count - 1) * 1e9 / Math.max(1, newest - oldest);
+    }
+}
@@ -0,0 +1,61 @@
+package naji.cardreader;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The Percentiles Read From The Logarithmic Buckets Stay Within The Promised Error
+ */
+public class LatencyHistogramTest {
+    @Test
+    public void isZeroWithoutSamples() {
+        LatencyHistogram latencyHistogram = new LatencyHistogram();
+        assertEquals(0, latencyHistogram.getPercentileMillis(95), 0);
+        assertEquals(0, latencyHistogram.getMeanMillis(), 0);
+        assertEquals(0, latencyHistogram.getMinMillis(), 0);
+    }
+
+    @Test
+    public void percentilesAreWithinTheBucketError() {
+        LatencyHistogram latencyHistogram = new LatencyHistogram();
+        //1 To 100 ms
+        for (int millis = 1; millis <= 100; millis++)
+            latencyHistogram.record(millis * 1_000_000L);
+
+        assertEquals(100, latencyHistogram.getCount());
+        assertEquals(50.5, latencyHistogram.getMeanMillis(), 1e-9);
+        assertEquals(1, latencyHistogram.getMinMillis(), 1e-9);
+        assertEquals(100, latencyHistogram.getMaxMillis(), 1e-9);
+        assertWithin(50, latencyHistogram.getPercentileMillis(50));
+        assertWithin(95, latencyHistogram.getPercentileMillis(95));
+        assertWithin(99, latencyHistogram.getPercentileMillis(99));
+        //Never Above The Largest Sample
+        assertEquals(100, latencyHistogram.getPercentileMillis(100), 1e-9);
+    }
+
+    @Test
+    public void clampsHugeAndTinySamples() {
+        LatencyHistogram latencyHistogram = new LatencyHistogram();
+        latencyHistogram.record(0);
+        latencyHistogram.record(Long.MAX_VALUE / 2);
+        assertEquals(2, latencyHistogram.getCount());
+        assertTrue(latencyHistogram.getPercentileMillis(50) <= 0.002);
+    }
+
+    @Test
+    public void resetForgetsEverything() {
+        LatencyHistogram latencyHistogram = new LatencyHistogram();
+        latencyHistogram.record(5_000_000L);
+        latencyHistogram.reset();
+        assertEquals(0, latencyHistogram.getCount());
+        assertEquals(0, latencyHistogram.getPercentileMillis(50), 0);
+        assertEquals(0, latencyHistogram.getMaxMillis(), 0);
+    }
+
+    private static void assertWithin(double expectedMillis, double millis) {
+        //a Quarter Of a Power Of Two Is About 19%, The Bucket's Upper Bound Is Reported
+        assertTrue(String.format("%.3f Is Not Close To %.3f", millis, expectedMillis), millis >= expectedMillis && millis <= expectedMillis * 1.2);
+    }
+}
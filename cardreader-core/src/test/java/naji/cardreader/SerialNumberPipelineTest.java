@@ -0,0 +1,196 @@
+package naji.cardreader;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * The Validation Rules Of Declared Pipelines, Which Have To Fail At Load With a Message Naming The Template & The Step
+ */
+public class SerialNumberPipelineTest {
+    @BeforeClass
+    public static void loadOpenCV() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    @Test
+    public void compilesTheAccurateProfileAsAChain() throws IOException {
+        SerialNumberPipeline serialNumberPipeline = SerialNumberPipeline.compile("card", steps(
+                step("detail_enhance"), step("gray"), step("otsu"), step("resize"), step("median", "size", "3"),
+                step("close", "size", "3"), step("open")), Collections.emptyList(), null);
+
+        assertEquals(Arrays.asList("detail_enhance", "gray", "otsu", "resize", "median", "close", "open"), serialNumberPipeline.getStageNames());
+        assertFalse(serialNumberPipeline.hasOcrStages());
+        assertNull(serialNumberPipeline.getFormat());
+        serialNumberPipeline.release();
+    }
+
+    @Test
+    public void compilesOcrStagesAndFormat() throws IOException {
+        SerialNumberPipeline serialNumberPipeline = SerialNumberPipeline.compile("card", steps(step("gray"), step("otsu")),
+                steps(step(null, "engine", "eng", "whitelist", "0123456789", "psm", "single_word")), " [0-9]{10,11} ");
+
+        assertTrue(serialNumberPipeline.hasOcrStages());
+        assertEquals("0123456789", serialNumberPipeline.getOcrStage("eng").characterWhitelist);
+        assertEquals(OcrEngine.PSM_SINGLE_WORD, serialNumberPipeline.getOcrStage("eng").pageSegmentationMode);
+        assertNull(serialNumberPipeline.getOcrStage("fas"));
+        assertTrue(serialNumberPipeline.getFormat().matcher("0123456789").matches());
+        serialNumberPipeline.release();
+    }
+
+    @Test
+    public void runsIntoSingleChannelBuffers() throws IOException {
+        SerialNumberPipeline serialNumberPipeline = SerialNumberPipeline.compile("card", steps(step("gray"), step("resize", "scale", "1.5"), step("otsu")),
+                Collections.emptyList(), null);
+        SerialNumberPreprocessor serialNumberPreprocessor = new SerialNumberPreprocessor();
+        Mat area = new Mat(20, 100, CvType.CV_8UC4, new Scalar(200, 200, 200, 255));
+
+        Mat serialNumberImage = serialNumberPreprocessor.preprocess(area, 2, serialNumberPipeline, "card");
+        assertEquals(1, serialNumberImage.channels());
+        assertEquals(60, serialNumberImage.rows());
+        assertEquals(300, serialNumberImage.cols());
+
+        serialNumberImage.release();
+        area.release();
+        serialNumberPreprocessor.release();
+        serialNumberPipeline.release();
+    }
+
+    @Test
+    public void rejectsNoSteps() {
+        assertCompileFails(steps(), "No Preprocessing Steps");
+    }
+
+    @Test
+    public void rejectsMissingGray() {
+        assertCompileFails(steps(step("resize")), "'gray' Step Is Missing");
+    }
+
+    @Test
+    public void rejectsBilateralBeforeGray() {
+        //The Filter Takes One Or Three Channels, Live Frames Have Four
+        assertCompileFails(steps(step("bilateral"), step("gray")), "Step 1 (bilateral)");
+    }
+
+    @Test
+    public void rejectsGrayStepBeforeGray() {
+        assertCompileFails(steps(step("otsu"), step("gray")), "Step 1 (otsu)");
+    }
+
+    @Test
+    public void rejectsColorStepAfterGray() {
+        assertCompileFails(steps(step("gray"), step("detail_enhance")), "Step 2 (detail_enhance)");
+    }
+
+    @Test
+    public void rejectsUnknownStepType() {
+        assertCompileFails(steps(step("gray"), step("sharpen")), "Unknown Step Type 'sharpen'");
+    }
+
+    @Test
+    public void rejectsStepWithoutType() {
+        assertCompileFails(steps(step(null)), "a Step Without a Type");
+    }
+
+    @Test
+    public void rejectsUnknownParameter() {
+        assertCompileFails(steps(step("gray"), step("median", "sise", "3")), "Unknown Parameter 'sise'");
+    }
+
+    @Test
+    public void rejectsNonNumericParameter() {
+        assertCompileFails(steps(step("gray"), step("threshold", "value", "high")), "'value' Is Not a Number");
+    }
+
+    @Test
+    public void rejectsEvenMedianSize() {
+        assertCompileFails(steps(step("gray"), step("median", "size", "4")), "Odd & At Least 3");
+    }
+
+    @Test
+    public void rejectsNonPositiveMorphologySize() {
+        assertCompileFails(steps(step("gray"), step("close", "size", "0")), "Step 2 (close)");
+        assertCompileFails(steps(step("gray"), step("open", "size", "-1")), "Step 2 (open)");
+    }
+
+    @Test
+    public void rejectsNonPositiveResizeScale() {
+        assertCompileFails(steps(step("gray"), step("resize", "scale", "0")), "The Resize Scale Must Be Positive");
+    }
+
+    @Test
+    public void rejectsUnknownPageSegmentationMode() {
+        try {
+            SerialNumberPipeline.compile("card", steps(step("gray")), steps(step(null, "engine", "eng", "psm", "sparse")), null);
+            fail("The Pipeline Was Compiled");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("OCR (eng)"));
+            assertTrue(e.getMessage(), e.getMessage().contains("Unknown Page Segmentation Mode 'sparse'"));
+        }
+    }
+
+    @Test
+    public void rejectsOcrWithoutEngine() {
+        try {
+            SerialNumberPipeline.compile("card", steps(step("gray")), steps(step(null, "whitelist", "0123")), null);
+            fail("The Pipeline Was Compiled");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("an OCR Without an Engine"));
+        }
+    }
+
+    @Test
+    public void rejectsInvalidFormat() {
+        try {
+            SerialNumberPipeline.compile("card", steps(step("gray")), Collections.emptyList(), "[0-9{10");
+            fail("The Pipeline Was Compiled");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Format: Invalid Format"));
+        }
+    }
+
+    private static void assertCompileFails(List<Map<String, String>> steps, String expectedMessage) {
+        try {
+            SerialNumberPipeline.compile("template_card_9", steps, Collections.emptyList(), null);
+            fail("The Pipeline Was Compiled");
+        } catch (IOException e) {
+            assertNotNull(e.getMessage());
+            assertTrue(e.getMessage(), e.getMessage().startsWith("The Pipeline Of 'template_card_9' Could Not Be Compiled"));
+            assertTrue(e.getMessage(), e.getMessage().contains(expectedMessage));
+        }
+    }
+
+    @SafeVarargs
+    private static List<Map<String, String>> steps(Map<String, String>... steps) {
+        return new ArrayList<>(Arrays.asList(steps));
+    }
+
+    /**
+     * The Attributes Of One Element, The Type (If Not Null) Followed By Name & Value Pairs
+     */
+    private static Map<String, String> step(String type, String... parameters) {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        if (type != null)
+            attributes.put("type", type);
+        for (int i = 0; i < parameters.length; i += 2)
+            attributes.put(parameters[i], parameters[i + 1]);
+        return attributes;
+    }
+}
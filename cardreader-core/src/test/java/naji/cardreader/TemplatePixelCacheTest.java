@@ -0,0 +1,136 @@
+package naji.cardreader;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import naji.cardreader.DTOs.Template;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * The Least Recently Used Eviction & The Memory Trimming Of The Template Pixels
+ */
+public class TemplatePixelCacheTest {
+    //Every Test Image Is 100x100 In BGR
+    static final long IMAGE_BYTES = 100 * 100 * 3;
+
+    @BeforeClass
+    public static void loadOpenCV() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    @Test
+    public void loadsOnDemandAndServesCopies() {
+        TemplatePixelCache templatePixelCache = new TemplatePixelCache(IMAGE_BYTES * 2);
+        AtomicInteger loads = new AtomicInteger();
+        Template template = createTemplate("a", loads);
+        assertEquals(0, templatePixelCache.getResidentBytes());
+
+        Mat first = templatePixelCache.getTemplateImage(template);
+        Mat second = templatePixelCache.getTemplateImage(template);
+        assertEquals(1, loads.get());
+        assertEquals(IMAGE_BYTES, templatePixelCache.getResidentBytes());
+
+        //Releasing a Copy Leaves The Cached Image Alone
+        first.release();
+        Mat third = templatePixelCache.getTemplateImage(template);
+        assertEquals(100, third.rows());
+        assertEquals(1, loads.get());
+
+        second.release();
+        third.release();
+        templatePixelCache.release();
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsed() {
+        TemplatePixelCache templatePixelCache = new TemplatePixelCache(IMAGE_BYTES * 2);
+        AtomicInteger loadsA = new AtomicInteger();
+        AtomicInteger loadsB = new AtomicInteger();
+        AtomicInteger loadsC = new AtomicInteger();
+        Template templateA = createTemplate("a", loadsA);
+        Template templateB = createTemplate("b", loadsB);
+        Template templateC = createTemplate("c", loadsC);
+
+        templatePixelCache.getTemplateImage(templateA).release();
+        templatePixelCache.getTemplateImage(templateB).release();
+        //a Is Now More Recently Used Than b, So c Pushes b Out
+        templatePixelCache.getTemplateImage(templateA).release();
+        templatePixelCache.getTemplateImage(templateC).release();
+        assertEquals(IMAGE_BYTES * 2, templatePixelCache.getResidentBytes());
+
+        templatePixelCache.getTemplateImage(templateA).release();
+        templatePixelCache.getTemplateImage(templateB).release();
+        assertEquals(1, loadsA.get());
+        assertEquals(2, loadsB.get());
+        assertEquals(1, loadsC.get());
+        templatePixelCache.release();
+    }
+
+    @Test
+    public void neverKeepsImagesLargerThanTheBudget() {
+        TemplatePixelCache templatePixelCache = new TemplatePixelCache(IMAGE_BYTES - 1);
+        AtomicInteger loads = new AtomicInteger();
+        Template template = createTemplate("a", loads);
+
+        templatePixelCache.getTemplateImage(template).release();
+        templatePixelCache.getTemplateImage(template).release();
+        assertEquals(2, loads.get());
+        assertEquals(0, templatePixelCache.getResidentBytes());
+    }
+
+    @Test
+    public void trimsHalfOnModerateAndEverythingWhenLow() {
+        TemplatePixelCache templatePixelCache = new TemplatePixelCache(IMAGE_BYTES * 4);
+        for (String name : new String[]{"a", "b", "c", "d"})
+            templatePixelCache.getTemplateImage(createTemplate(name, new AtomicInteger())).release();
+        assertEquals(IMAGE_BYTES * 4, templatePixelCache.getResidentBytes());
+
+        templatePixelCache.trimMemory(TemplatePixelCache.TRIM_MEMORY_RUNNING_MODERATE - 1);
+        assertEquals(IMAGE_BYTES * 4, templatePixelCache.getResidentBytes());
+        templatePixelCache.trimMemory(TemplatePixelCache.TRIM_MEMORY_RUNNING_MODERATE);
+        assertEquals(IMAGE_BYTES * 2, templatePixelCache.getResidentBytes());
+        templatePixelCache.trimMemory(TemplatePixelCache.TRIM_MEMORY_RUNNING_LOW);
+        assertEquals(0, templatePixelCache.getResidentBytes());
+    }
+
+    @Test
+    public void returnsNullWhenTheImageCannotBeLoaded() {
+        TemplatePixelCache templatePixelCache = new TemplatePixelCache(IMAGE_BYTES);
+        Template emptyTemplate = new Template(1, "empty", null, null, Mat::new, null, null, null, null);
+        Template failingTemplate = new Template(2, "failing", null, null, () -> {
+            throw new IOException("Missing");
+        }, null, null, null, null);
+
+        assertNull(templatePixelCache.getTemplateImage(emptyTemplate));
+        assertNull(templatePixelCache.getTemplateImage(failingTemplate));
+        assertEquals(0, templatePixelCache.getResidentBytes());
+    }
+
+    @Test
+    public void removesReleasedTemplates() {
+        TemplatePixelCache templatePixelCache = new TemplatePixelCache(IMAGE_BYTES * 2);
+        Template template = createTemplate("a", new AtomicInteger());
+        templatePixelCache.getTemplateImage(template).release();
+
+        templatePixelCache.remove(template);
+        assertEquals(0, templatePixelCache.getResidentBytes());
+    }
+
+    /**
+     * a Template Whose Loader Counts How Often Its Pixels Were Loaded, Only The Pixels Matter To The Cache
+     */
+    private static Template createTemplate(String name, AtomicInteger loads) {
+        return new Template(0, name, null, null, () -> {
+            loads.incrementAndGet();
+            return new Mat(100, 100, CvType.CV_8UC3, new Scalar(0, 0, 0));
+        }, null, null, null, null);
+    }
+}
@@ -0,0 +1,190 @@
+package naji.cardreader;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import naji.cardreader.DTOs.ExtractedText;
+
+/**
+ * Writes The Result Of Every Scanned Image As Soon As It Is Ready, As a CSV Row Or a JSON Line
+ * <p>
+ * Next To The Results a Checkpoint File Lists The Images Already Written, One Per Line.
+ * a Result Is Flushed Before Its Image Is Checkpointed. When Resuming After a Crash, Both Files Are Cut Back To Their Last
+ * Complete Line (Dropping a Half Written Row) & The Images Already In The Results Are Skipped Too, Even If Not Checkpointed Yet.
+ * So Resuming Never Loses a Result Nor Writes One Twice.
+ */
+public class BatchResultWriter implements Closeable {
+    static final String CHECKPOINT_SUFFIX = ".checkpoint";
+    static final String CSV_HEADER = "image,status,template,engine,text,confidence,millis,error";
+
+    static final String STATUS_READ = "read";
+    static final String STATUS_UNREAD = "unread";
+    static final String STATUS_FAILED = "failed";
+
+    private final boolean jsonLines;
+    private final Set<String> checkpointedImages = new HashSet<>();
+    private final Writer resultWriter;
+    private final Writer checkpointWriter;
+
+    /**
+     * Opens The Result File, If Its Checkpoint Exists The Results Are Appended & The Images Already Written Are Remembered,
+     * Otherwise Both Files Are Started Over
+     */
+    public BatchResultWriter(File resultFile, boolean jsonLines) throws IOException {
+        this.jsonLines = jsonLines;
+
+        File checkpointFile = new File(resultFile.getPath() + CHECKPOINT_SUFFIX);
+        boolean resuming = checkpointFile.exists();
+        boolean writeHeader = !jsonLines;
+        if (resuming) {
+            truncateToLastLine(checkpointFile);
+            truncateToLastLine(resultFile);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(checkpointFile), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isEmpty())
+                        checkpointedImages.add(line);
+                }
+            }
+            //a Result Written Just Before a Crash May Not Have Been Checkpointed Yet
+            if (resultFile.exists())
+                readWrittenImages(resultFile, jsonLines, checkpointedImages);
+            writeHeader = !jsonLines && resultFile.length() == 0;
+            System.out.println(String.format("Resuming, %d Images Already Scanned", checkpointedImages.size()));
+        }
+
+        resultWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(resultFile, resuming), StandardCharsets.UTF_8));
+        checkpointWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(checkpointFile, resuming), StandardCharsets.UTF_8));
+        if (writeHeader) {
+            resultWriter.write(CSV_HEADER);
+            resultWriter.write('\n');
+            resultWriter.flush();
+        }
+    }
+
+    /**
+     * Whether The Image Was Already Written In a Previous Run, Only Meant For The Thread Listing The Images
+     */
+    public boolean isCheckpointed(String image) {
+        return checkpointedImages.contains(image);
+    }
+
+    /**
+     * @param extractedText The Read Serial Number, Or Null If Nothing Was Read
+     * @param error         Why The Image Couldn't Be Scanned, Or Null
+     */
+    public synchronized void write(String image, ExtractedText extractedText, long nanos, String error) throws IOException {
+        String status = error != null ? STATUS_FAILED : extractedText != null ? STATUS_READ : STATUS_UNREAD;
+        String template = extractedText == null ? null : extractedText.alignedImage.templateName;
+        String engine = extractedText == null ? null : extractedText.ocrEngineName;
+        String text = extractedText == null ? null : extractedText.text;
+        String confidence = extractedText == null ? null : String.valueOf(extractedText.confidence);
+        String millis = String.format(Locale.US, "%.1f", nanos / 1e6);
+
+        if (jsonLines) {
+            resultWriter.write(String.format("{\"image\":%s,\"status\":%s,\"template\":%s,\"engine\":%s,\"text\":%s,\"confidence\":%s,\"millis\":%s,\"error\":%s}",
+                    Json.quote(image), Json.quote(status), Json.quote(template), Json.quote(engine), Json.quote(text),
+                    confidence == null ? "null" : confidence, millis, Json.quote(error)));
+        } else {
+            resultWriter.write(String.join(",", csv(image), status, csv(template), csv(engine), csv(text), csv(confidence), millis, csv(error)));
+        }
+        resultWriter.write('\n');
+        resultWriter.flush();
+
+        checkpointWriter.write(image);
+        checkpointWriter.write('\n');
+        checkpointWriter.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            resultWriter.close();
+        } finally {
+            checkpointWriter.close();
+        }
+    }
+
+    /**
+     * Cuts The File Back To Its Last Complete Line, Dropping Whatever a Crash Left Half Written After It
+     */
+    static void truncateToLastLine(File file) throws IOException {
+        if (!file.exists())
+            return;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            long length = randomAccessFile.length();
+            long end = length;
+            while (end > 0) {
+                randomAccessFile.seek(end - 1);
+                if (randomAccessFile.read() == '\n')
+                    break;
+                end--;
+            }
+            if (end < length) {
+                randomAccessFile.setLength(end);
+                System.out.println(String.format("Dropped a Half Written Line (%d Bytes) At The End Of '%s'", length - end, file.getName()));
+            }
+        }
+    }
+
+    /**
+     * Adds The Image Of Every Row Of The Result File, The First Column Of Both Formats
+     */
+    static void readWrittenImages(File resultFile, boolean jsonLines, Set<String> images) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(resultFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.equals(CSV_HEADER))
+                    continue;
+                String image = jsonLines ? readJsonImage(line) : readCsvImage(line);
+                if (image != null)
+                    images.add(image);
+            }
+        }
+    }
+
+    private static String readJsonImage(String line) {
+        String prefix = "{\"image\":";
+        return line.startsWith(prefix) ? Json.unquote(line, prefix.length()) : null;
+    }
+
+    private static String readCsvImage(String line) {
+        if (!line.startsWith("\""))
+            return line.substring(0, line.indexOf(',') == -1 ? line.length() : line.indexOf(','));
+
+        StringBuilder image = new StringBuilder();
+        for (int i = 1; i < line.length(); i++) {
+            char character = line.charAt(i);
+            if (character != '"') {
+                image.append(character);
+            } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                image.append('"');
+                i++;
+            } else {
+                return image.toString();
+            }
+        }
+        return null;
+    }
+
+    private static String csv(String value) {
+        if (value == null)
+            return "";
+        if (value.indexOf(',') == -1 && value.indexOf('"') == -1 && value.indexOf('\n') == -1 && value.indexOf('\r') == -1)
+            return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
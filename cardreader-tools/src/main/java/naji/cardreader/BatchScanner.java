@@ -0,0 +1,183 @@
+package naji.cardreader;
+
+import org.opencv.core.Mat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import naji.cardreader.DTOs.ExtractedText;
+
+/**
+ * Streams a Folder Of Card Images Through The Alignment & OCR Pipeline On a Fixed Number Of Worker Threads
+ * <p>
+ * Only The Paths Of The Images Are Queued (In a Small Bounded Queue), Every Worker Decodes Its Image Itself
+ * & Releases It Before Taking The Next One, So No More Images Than Workers Are Ever Decoded At Once,
+ * However Big The Folder Is. Results Are Written As Soon As They Are Ready & a Killed Run Can Be Resumed.
+ */
+public class BatchScanner {
+    static final String[] IMAGE_EXTENSIONS = {".jpg", ".jpeg", ".png", ".bmp", ".tif", ".tiff", ".webp"};
+    static final int PROGRESS_INTERVAL = 100;
+
+    //Tells a Worker There Are No More Images
+    private static final String END_OF_IMAGES = "";
+
+    private final TemplateRegistry templateRegistry;
+    private final String tessDataPath;
+    private final int workerCount;
+    private final int queueCapacity;
+    private final PipelineMetrics pipelineMetrics = new PipelineMetrics();
+
+    private final AtomicInteger scannedCount = new AtomicInteger();
+    private final AtomicInteger readCount = new AtomicInteger();
+    private final AtomicInteger failedCount = new AtomicInteger();
+    private final AtomicReference<Exception> workerFailure = new AtomicReference<>();
+
+    /**
+     * @param queueCapacity How Many Image Paths May Wait For a Worker, Keeping The Folder Listing Just Ahead Of The Workers
+     */
+    public BatchScanner(TemplateRegistry templateRegistry, String tessDataPath, int workerCount, int queueCapacity) {
+        this.templateRegistry = templateRegistry;
+        this.tessDataPath = tessDataPath;
+        this.workerCount = workerCount;
+        this.queueCapacity = queueCapacity;
+    }
+
+    public PipelineMetrics getPipelineMetrics() {
+        return pipelineMetrics;
+    }
+
+    /**
+     * Scans Every Image Under The Folder (Recursively) Which Isn't Checkpointed Yet & Prints a Throughput Summary At The End
+     */
+    public void scan(File imageFolder, BatchResultWriter resultWriter) throws Exception {
+        BlockingQueue<String> pendingImages = new ArrayBlockingQueue<>(queueCapacity);
+        CountDownLatch workersDone = new CountDownLatch(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    work(imageFolder, pendingImages, resultWriter);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    workerFailure.compareAndSet(null, e);
+                } finally {
+                    workersDone.countDown();
+                }
+            }, "batch-worker-" + i);
+            worker.start();
+        }
+
+        long scanStart = System.nanoTime();
+        int skippedCount = 0;
+        Path folderPath = imageFolder.toPath();
+        try (Stream<Path> paths = Files.walk(folderPath)) {
+            Iterator<Path> iterator = paths.filter(Files::isRegularFile).filter(BatchScanner::isImage).iterator();
+            while (iterator.hasNext()) {
+                String image = folderPath.relativize(iterator.next()).toString();
+                if (resultWriter.isCheckpointed(image)) {
+                    skippedCount++;
+                    continue;
+                }
+                enqueue(pendingImages, image, workersDone);
+            }
+        } finally {
+            for (int i = 0; i < workerCount; i++)
+                enqueue(pendingImages, END_OF_IMAGES, workersDone);
+            workersDone.await();
+        }
+
+        if (workerFailure.get() != null)
+            throw workerFailure.get();
+
+        double seconds = (System.nanoTime() - scanStart) / 1e9;
+        System.out.println(String.format(Locale.US, "Scanned %d Images (%d Read, %d Unread, %d Failed, %d Skipped As Checkpointed) In %.1f s, %.2f Images/s",
+                scannedCount.get(), readCount.get(), scannedCount.get() - readCount.get() - failedCount.get(), failedCount.get(), skippedCount,
+                seconds, scannedCount.get() / Math.max(seconds, 1e-9)));
+        System.out.print(pipelineMetrics.summarize());
+    }
+
+    /**
+     * Waits For Room In The Queue, Giving Up If The Workers Have Died (So a Broken Pipeline Doesn't Hang The Scan)
+     */
+    private void enqueue(BlockingQueue<String> pendingImages, String image, CountDownLatch workersDone) throws InterruptedException {
+        while (!pendingImages.offer(image, 1, TimeUnit.SECONDS)) {
+            if (workersDone.getCount() == 0)
+                return;
+        }
+    }
+
+    /**
+     * The Loop Of a Worker Thread, Which Has Its Own Pipeline
+     */
+    private void work(File imageFolder, BlockingQueue<String> pendingImages, BatchResultWriter resultWriter) throws Exception {
+        HeadlessPipeline headlessPipeline = new HeadlessPipeline(templateRegistry, tessDataPath, pipelineMetrics);
+        try {
+            while (true) {
+                String image = pendingImages.take();
+                if (image.equals(END_OF_IMAGES))
+                    return;
+                scanImage(headlessPipeline, new File(imageFolder, image), image, resultWriter);
+            }
+        } finally {
+            headlessPipeline.release();
+        }
+    }
+
+    private void scanImage(HeadlessPipeline headlessPipeline, File imageFile, String image, BatchResultWriter resultWriter) throws IOException {
+        long imageStart = pipelineMetrics.start();
+        ExtractedText extractedText = null;
+        String error = null;
+        Mat decodedImage = null;
+
+        try {
+            long decodeStart = pipelineMetrics.start();
+            decodedImage = headlessPipeline.readImage(imageFile);
+            pipelineMetrics.record(PipelineMetrics.DECODE, null, decodeStart);
+
+            if (decodedImage == null)
+                error = "The Image Could Not Be Decoded";
+            else
+                extractedText = headlessPipeline.getCardRecognizer().recognize(decodedImage);
+        } catch (Exception e) {
+            e.printStackTrace();
+            error = e.toString();
+        }
+
+        try {
+            resultWriter.write(image, extractedText, System.nanoTime() - imageStart, error);
+        } finally {
+            if (decodedImage != null)
+                decodedImage.release();
+            if (extractedText != null)
+                extractedText.alignedImage.release();
+        }
+
+        if (error != null)
+            failedCount.incrementAndGet();
+        else if (extractedText != null)
+            readCount.incrementAndGet();
+
+        int scanned = scannedCount.incrementAndGet();
+        if (scanned % PROGRESS_INTERVAL == 0)
+            System.out.println(String.format("%d Images Scanned, %d Read", scanned, readCount.get()));
+    }
+
+    static boolean isImage(Path path) {
+        String fileName = path.getFileName().toString().toLowerCase(Locale.US);
+        for (String extension : IMAGE_EXTENSIONS) {
+            if (fileName.endsWith(extension))
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,193 @@
+package naji.cardreader;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import naji.cardreader.DTOs.Template;
+
+/**
+ * Runs The Card Reader Pipeline Headless On a Plain JVM, Each Tool Is a Sub Command
+ */
+public class CardReaderTools {
+    static final String USAGE = "Usage:\n" +
+            "  batch <image folder> <result file (.csv or .jsonl)> [--threads N] [--queue N]\n" +
+            "  serve [--port N] [--pipelines N] [--queue N] [--library <template pack folder>]\n" +
+            "  generate <output folder> [--count N (Per Template)] [--seed N]\n" +
+            "  golden <dataset folder> <baseline file> [--update] [--accuracy-tolerance F] [--latency-tolerance F] [--profile accurate|fast|bilateral] [--variants N (Workers, As Many Variants Are Read)]\n";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.out.print(USAGE);
+            System.exit(1);
+        }
+
+        String[] toolArgs = Arrays.copyOfRange(args, 1, args.length);
+        switch (args[0]) {
+            case "batch":
+                batch(toolArgs);
+                break;
+
+            case "serve":
+                serve(toolArgs);
+                break;
+
+            case "generate":
+                generate(toolArgs);
+                break;
+
+            case "golden":
+                golden(toolArgs);
+                break;
+
+            default:
+                System.out.print(USAGE);
+                System.exit(1);
+        }
+    }
+
+    /**
+     * Scans a Folder Of Images Into a CSV (Or JSON Lines) File, Resuming If The File Was Left Unfinished
+     */
+    static void batch(String[] args) throws Exception {
+        if (args.length < 2)
+            throw new IllegalArgumentException(USAGE);
+        File imageFolder = new File(args[0]);
+        File resultFile = new File(args[1]);
+        int threads = Integer.parseInt(getOption(args, "--threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int queue = Integer.parseInt(getOption(args, "--queue", String.valueOf(threads)));
+
+        TemplateRegistry templateRegistry = HeadlessPipeline.loadTemplateRegistry(HeadlessPipeline.getResourcesFolder());
+        BatchScanner batchScanner = new BatchScanner(templateRegistry, HeadlessPipeline.getTessDataPath(), threads, queue);
+        try (BatchResultWriter resultWriter = new BatchResultWriter(resultFile, resultFile.getName().endsWith(".jsonl"))) {
+            batchScanner.scan(imageFolder, resultWriter);
+        } finally {
+            batchScanner.getPipelineMetrics().dump(new File(resultFile.getPath() + ".metrics.json"));
+            templateRegistry.release();
+        }
+    }
+
+    /**
+     * Runs The Scan Service On Localhost Until The Process Is Stopped
+     */
+    static void serve(String[] args) throws Exception {
+        int port = Integer.parseInt(getOption(args, "--port", "8080"));
+        int pipelines = Integer.parseInt(getOption(args, "--pipelines", String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int queue = Integer.parseInt(getOption(args, "--queue", String.valueOf(pipelines * ScanService.MAX_TEMPLATE_RUN)));
+        String libraryFolder = getOption(args, "--library", null);
+
+        TemplateRegistry templateRegistry = HeadlessPipeline.loadTemplateRegistry(HeadlessPipeline.getResourcesFolder());
+        ScanService scanService = new ScanService(templateRegistry, HeadlessPipeline.getTessDataPath(), pipelines, queue);
+        //The Packs Already In The Folder Are Loaded Before The Pipelines Warm Up, Later Ones While Serving
+        TemplateLibrary templateLibrary = null;
+        if (libraryFolder != null) {
+            templateLibrary = new TemplateLibrary(templateRegistry, new File(libraryFolder));
+            templateLibrary.reload();
+            templateLibrary.startWatching(TemplateLibrary.DEFAULT_POLL_MILLIS);
+            scanService.setTemplateLibrary(templateLibrary);
+        }
+        scanService.start(port);
+
+        TemplateLibrary servedLibrary = templateLibrary;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                scanService.stop();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+            if (servedLibrary != null)
+                servedLibrary.release();
+            templateRegistry.release();
+        }));
+    }
+
+    /**
+     * Generates Synthetic Card Photos With Their Ground Truth, The Same Seed Always Gives The Same Images
+     */
+    static void generate(String[] args) throws Exception {
+        if (args.length < 1)
+            throw new IllegalArgumentException(USAGE);
+        File outputFolder = new File(args[0]);
+        int count = Integer.parseInt(getOption(args, "--count", "100"));
+        long seed = Long.parseLong(getOption(args, "--seed", "42"));
+
+        TemplateRegistry templateRegistry = HeadlessPipeline.loadTemplateRegistry(HeadlessPipeline.getResourcesFolder());
+        try {
+            new SyntheticCardGenerator(templateRegistry).generate(outputFolder, seed, count);
+        } finally {
+            templateRegistry.release();
+        }
+    }
+
+    /**
+     * Runs The Golden Dataset & Compares It With The Baseline (Exiting With 1 On Regressions), Or Writes The Baseline If It Doesn't Exist Yet Or `--update` Is Given
+     */
+    static void golden(String[] args) throws Exception {
+        if (args.length < 2)
+            throw new IllegalArgumentException(USAGE);
+        File datasetFolder = new File(args[0]);
+        File baselineFile = new File(args[1]);
+        boolean update = Arrays.asList(args).contains("--update");
+        double accuracyTolerance = Double.parseDouble(getOption(args, "--accuracy-tolerance", "0.01"));
+        double latencyTolerance = Double.parseDouble(getOption(args, "--latency-tolerance", "0.2"));
+        String profile = getOption(args, "--profile", null);
+        int variantWorkers = Integer.parseInt(getOption(args, "--variants", "0"));
+        if (profile != null && !SerialNumberPreprocessor.isProfile(profile))
+            throw new IllegalArgumentException("Unknown Preprocessing Profile: " + profile);
+
+        TemplateRegistry templateRegistry = HeadlessPipeline.loadTemplateRegistry(HeadlessPipeline.getResourcesFolder());
+        //Overrides The Profiles (And Declared Pipelines) Of The Templates, To Compare The Accuracy Of The Profiles On The Same Dataset
+        if (profile != null) {
+            for (Template template : templateRegistry.getTemplates()) {
+                template.templateInfo.preprocessingProfile = profile;
+                if (template.templateInfo.serialNumberPipeline != null) {
+                    template.templateInfo.serialNumberPipeline.release();
+                    template.templateInfo.serialNumberPipeline = null;
+                }
+            }
+        }
+        PipelineMetrics pipelineMetrics = new PipelineMetrics();
+        HeadlessPipeline headlessPipeline = new HeadlessPipeline(templateRegistry, HeadlessPipeline.getTessDataPath(), pipelineMetrics);
+        Properties results;
+        try {
+            //Reads The Preprocessing Variants In Parallel, To See How Much They Gain Over The Single Chain & What They Cost
+            if (variantWorkers > 0)
+                headlessPipeline.enableParallelVariants(HeadlessPipeline.getTessDataPath(), variantWorkers);
+            results = new GoldenDatasetHarness(headlessPipeline, pipelineMetrics).run(datasetFolder);
+        } finally {
+            headlessPipeline.release();
+            templateRegistry.release();
+        }
+
+        for (String key : new TreeSet<>(results.stringPropertyNames()))
+            System.out.println(String.format("%s = %s", key, results.getProperty(key)));
+
+        if (update || !baselineFile.exists()) {
+            GoldenDatasetHarness.writeBaseline(results, baselineFile);
+            System.out.println("Baseline Written To " + baselineFile);
+            return;
+        }
+
+        List<String> regressions = GoldenDatasetHarness.compare(GoldenDatasetHarness.readBaseline(baselineFile), results, accuracyTolerance, latencyTolerance);
+        if (regressions.isEmpty()) {
+            System.out.println("No Regressions Against The Baseline");
+            return;
+        }
+        for (String regression : regressions)
+            System.out.println("REGRESSION: " + regression);
+        System.exit(1);
+    }
+
+    /**
+     * The Value Following The Option, Or The Default If The Option Isn't Given
+     */
+    static String getOption(String[] args, String option, String defaultValue) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(option))
+                return args[i + 1];
+        }
+        return defaultValue;
+    }
+}
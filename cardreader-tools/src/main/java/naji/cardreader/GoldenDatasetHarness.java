@@ -0,0 +1,245 @@
+package naji.cardreader;
+
+import org.opencv.core.Mat;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import naji.cardreader.DTOs.AlignedImage;
+import naji.cardreader.DTOs.ExtractedText;
+
+/**
+ * Runs The Full Pipeline Over a Labelled Image Set & Compares Its Accuracy & Latency Against a Stored Baseline
+ * <p>
+ * The Labels Are Read From The `ground_truth.csv` Of The Dataset (As Written By {@link SyntheticCardGenerator},
+ * Only The `image`, `template` & `serial` Columns Are Needed, So Real Photos Can Be Labelled By Hand The Same Way).
+ * The Accuracy Is The Exact Match Rate Of The Serial Number Per Template, For Every OCR Engine On Its Own
+ * & For The Text The Pipeline Finally Chooses. The Latency Is The p95 Of Every Stage Per Template.
+ * <p>
+ * The Baseline Is a Properties File (Easy To Diff & Review), a Run Fails If Any Accuracy Drops By More Than The Accuracy
+ * Tolerance Or Any p95 Grows By More Than The Latency Tolerance, So Speed Can Be Tuned Without Silently Losing Reads.
+ */
+public class GoldenDatasetHarness {
+    static final String CHOSEN_ENGINE = "chosen";
+    static final String ACCURACY_PREFIX = "accuracy.";
+    static final String P95_PREFIX = "p95.";
+    static final double LATENCY_PERCENTILE = 95;
+
+    /**
+     * Stages Faster Than This Are Too Noisy To Be Compared By Ratio Alone, So This Much Growth Is Always Allowed
+     */
+    static final double LATENCY_SLACK_MILLIS = 1;
+
+    private final HeadlessPipeline headlessPipeline;
+    private final PipelineMetrics pipelineMetrics;
+
+    //Template -> Engine -> {Correct, Total}
+    private final Map<String, Map<String, int[]>> matches = new TreeMap<>();
+
+    public GoldenDatasetHarness(HeadlessPipeline headlessPipeline, PipelineMetrics pipelineMetrics) {
+        this.headlessPipeline = headlessPipeline;
+        this.pipelineMetrics = pipelineMetrics;
+    }
+
+    /**
+     * Scans Every Labelled Image Of The Dataset Once & Returns The Results As Baseline Properties
+     */
+    public Properties run(File datasetFolder) throws IOException {
+        headlessPipeline.warmUp();
+        pipelineMetrics.reset();
+        matches.clear();
+
+        List<String[]> labels = readLabels(new File(datasetFolder, SyntheticCardGenerator.GROUND_TRUTH_FILE));
+        for (String[] label : labels)
+            scanImage(new File(datasetFolder, label[0]), label[1], label[2]);
+        System.out.println(String.format("%d Labelled Images Scanned", labels.size()));
+
+        Properties results = new Properties();
+        for (Map.Entry<String, Map<String, int[]>> template : matches.entrySet()) {
+            for (Map.Entry<String, int[]> engine : template.getValue().entrySet()) {
+                int[] counts = engine.getValue();
+                results.setProperty(ACCURACY_PREFIX + template.getKey() + "." + engine.getKey(),
+                        String.format(Locale.US, "%.4f", ((double) counts[0]) / counts[1]));
+            }
+        }
+        for (Map.Entry<String, Map<String, Double>> stage : pipelineMetrics.getPercentilesMillis(LATENCY_PERCENTILE).entrySet()) {
+            for (Map.Entry<String, Double> template : stage.getValue().entrySet())
+                results.setProperty(P95_PREFIX + stage.getKey() + "." + template.getKey(), String.format(Locale.US, "%.3f", template.getValue()));
+        }
+        return results;
+    }
+
+    /**
+     * Scans One Image Like {@link CardRecognizer#recognize(Mat)} Does, But Keeps The Text Of Every Engine To Score Them Separately
+     */
+    private void scanImage(File imageFile, String templateName, String serialNumber) {
+        Mat image = headlessPipeline.readImage(imageFile);
+        if (image == null) {
+            //Counted Against Every Engine Too, So Their Accuracies Share The Denominator Of The Chosen One
+            System.out.println(String.format("'%s' Could Not Be Decoded, Counted As Unread", imageFile.getName()));
+            for (String engineName : HeadlessPipeline.OCR_MODELS)
+                count(templateName, engineName, false);
+            count(templateName, CHOSEN_ENGINE, false);
+            return;
+        }
+
+        CardRecognizer cardRecognizer = headlessPipeline.getCardRecognizer();
+        long totalStart = pipelineMetrics.start();
+        List<AlignedImage> alignedImages = new ArrayList<>(cardRecognizer.alignImageWithTemplates(image, true));
+        List<ExtractedText> extractedTexts = new ArrayList<>();
+        ExtractedText chosenText = readAlignedImages(cardRecognizer, alignedImages, extractedTexts);
+
+        //Like The Recognizer, a Quad Which Gave No Serial Number Falls Back To The Features
+        if (chosenText == null && CardRecognizer.isCardQuadAlignment(alignedImages)) {
+            List<AlignedImage> featureAlignedImages = cardRecognizer.alignImageWithFeatures(image, true);
+            alignedImages.addAll(featureAlignedImages);
+            chosenText = readAlignedImages(cardRecognizer, featureAlignedImages, extractedTexts);
+        }
+        pipelineMetrics.record(PipelineMetrics.TOTAL, templateName, totalStart);
+
+        //An Engine Has Read The Card If Its Most Confident Text (Over All Aligned Templates) Is Right
+        Map<String, ExtractedText> engineTexts = new TreeMap<>();
+        for (ExtractedText extractedText : extractedTexts) {
+            ExtractedText engineText = engineTexts.get(extractedText.ocrEngineName);
+            if (engineText == null || extractedText.confidence > engineText.confidence)
+                engineTexts.put(extractedText.ocrEngineName, extractedText);
+        }
+        for (String engineName : HeadlessPipeline.OCR_MODELS)
+            count(templateName, engineName, isMatch(engineTexts.get(engineName), templateName, serialNumber));
+        count(templateName, CHOSEN_ENGINE, isMatch(chosenText, templateName, serialNumber));
+
+        for (AlignedImage alignedImage : alignedImages) {
+            if (alignedImage != null)
+                alignedImage.release();
+        }
+        image.release();
+    }
+
+    /**
+     * OCRs Every Aligned Image, Adds The Text Of Every Engine To The Given List & Returns The Text The Recognizer Would Choose
+     */
+    private static ExtractedText readAlignedImages(CardRecognizer cardRecognizer, List<AlignedImage> alignedImages, List<ExtractedText> extractedTexts) {
+        List<ExtractedText> readTexts = new ArrayList<>();
+        for (AlignedImage alignedImage : alignedImages) {
+            if (alignedImage != null)
+                readTexts.addAll(cardRecognizer.extractSerialNumberFromAlignedImage(alignedImage));
+        }
+        extractedTexts.addAll(readTexts);
+        return cardRecognizer.chooseBestExtractedText(readTexts);
+    }
+
+    private void count(String templateName, String engineName, boolean match) {
+        Map<String, int[]> templateMatches = matches.computeIfAbsent(templateName, key -> new TreeMap<>());
+        int[] counts = templateMatches.computeIfAbsent(engineName, key -> new int[2]);
+        if (match)
+            counts[0]++;
+        counts[1]++;
+    }
+
+    /**
+     * a Read Only Counts If It Was Aligned With The Right Template & Its Digits (Latin Or Persian) Are Exactly The Serial Number
+     */
+    static boolean isMatch(ExtractedText extractedText, String templateName, String serialNumber) {
+        return extractedText != null
+                && templateName.equals(extractedText.alignedImage.templateName)
+                && normalizeDigits(extractedText.text).equals(serialNumber);
+    }
+
+    static String normalizeDigits(String text) {
+        StringBuilder normalized = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char character = text.charAt(i);
+            if (character >= '۰' && character <= '۹')
+                character = (char) ('0' + character - '۰');
+            else if (character >= '٠' && character <= '٩')
+                character = (char) ('0' + character - '٠');
+            normalized.append(character);
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Compares The Results With The Baseline & Returns Every Regression Beyond The Tolerances (Nothing If The Run Is Fine)
+     *
+     * @param accuracyTolerance How Much Any Accuracy May Drop (As a Fraction, 0.01 Is One Percentage Point)
+     * @param latencyTolerance  How Much Any p95 May Grow (As a Fraction Of The Baseline, 0.2 Is 20%)
+     */
+    public static List<String> compare(Properties baseline, Properties results, double accuracyTolerance, double latencyTolerance) {
+        List<String> regressions = new ArrayList<>();
+        for (String key : new TreeSet<>(baseline.stringPropertyNames())) {
+            double baselineValue = Double.parseDouble(baseline.getProperty(key));
+            String result = results.getProperty(key);
+            if (result == null) {
+                regressions.add(String.format("%s Is In The Baseline But Wasn't Measured", key));
+                continue;
+            }
+
+            double value = Double.parseDouble(result);
+            if (key.startsWith(ACCURACY_PREFIX) && value < baselineValue - accuracyTolerance)
+                regressions.add(String.format(Locale.US, "%s Dropped From %.4f To %.4f", key, baselineValue, value));
+            else if (key.startsWith(P95_PREFIX) && value > baselineValue * (1 + latencyTolerance) + LATENCY_SLACK_MILLIS)
+                regressions.add(String.format(Locale.US, "%s Grew From %.3f To %.3f ms", key, baselineValue, value));
+        }
+        return regressions;
+    }
+
+    public static Properties readBaseline(File baselineFile) throws IOException {
+        Properties baseline = new Properties();
+        try (InputStream inputStream = new FileInputStream(baselineFile)) {
+            baseline.load(inputStream);
+        }
+        return baseline;
+    }
+
+    public static void writeBaseline(Properties results, File baselineFile) throws IOException {
+        //Sorted, So Baselines Of Different Runs Can Be Diffed
+        StringBuilder lines = new StringBuilder("# Golden Dataset Baseline, Accuracy Per Template & Engine, p95 Latency (ms) Per Stage & Template\n");
+        for (Map.Entry<Object, Object> entry : new TreeMap<>(results).entrySet())
+            lines.append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+        try (OutputStream outputStream = new FileOutputStream(baselineFile)) {
+            outputStream.write(lines.toString().getBytes(StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    /**
+     * Reads The `image`, `template` & `serial` Columns Of The Ground Truth
+     */
+    static List<String[]> readLabels(File groundTruthFile) throws IOException {
+        List<String[]> labels = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(groundTruthFile), StandardCharsets.UTF_8))) {
+            String header = reader.readLine();
+            if (header == null)
+                throw new IOException("The Ground Truth Is Empty: " + groundTruthFile);
+            List<String> columns = Arrays.asList(header.split(","));
+            int imageColumn = columns.indexOf("image");
+            int templateColumn = columns.indexOf("template");
+            int serialColumn = columns.indexOf("serial");
+            if (imageColumn == -1 || templateColumn == -1 || serialColumn == -1)
+                throw new IOException("The Ground Truth Needs 'image', 'template' & 'serial' Columns: " + groundTruthFile);
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty())
+                    continue;
+                String[] values = line.split(",", -1);
+                labels.add(new String[]{values[imageColumn].trim(), values[templateColumn].trim(), values[serialColumn].trim()});
+            }
+        }
+        return labels;
+    }
+}
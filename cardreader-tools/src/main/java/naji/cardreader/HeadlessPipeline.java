@@ -0,0 +1,250 @@
+package naji.cardreader;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import naji.cardreader.DTOs.ExtractedText;
+import naji.cardreader.DTOs.Template;
+import naji.cardreader.DTOs.TemplateInfo;
+
+/**
+ * a Card Recognizer With Its Own OCR Engines, Loaded From The App Resources For Running On a Plain JVM
+ * <p>
+ * The Template Registry Is Loaded Once & Shared, Every Worker Thread Creates Its Own Pipeline From It,
+ * As The Feature Extractor, The Matcher & Tesseract Can't Be Used By Two Threads At Once.
+ */
+public class HeadlessPipeline {
+    /**
+     * The Decoded Image Is Kept This Many Times Bigger Than The Template, The Same As The App Does
+     */
+    static final int WORKING_RESOLUTION_FACTOR = 2;
+
+    /**
+     * The JPEG Decoder Can Only Reduce The Image By These Factors While Decoding
+     */
+    static final int MAX_REDUCTION = 8;
+
+    static final String[] OCR_MODELS = {"eng", "fas"};
+
+    static {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    private final CardRecognizer cardRecognizer;
+    private final List<OcrEngine> ocrEngines;
+    private final List<List<OcrEngine>> variantOcrEngines = new ArrayList<>();
+    private ParallelVariantReader parallelVariantReader;
+
+    public HeadlessPipeline(TemplateRegistry templateRegistry, String tessDataPath, PipelineMetrics pipelineMetrics) throws IOException {
+        ocrEngines = createOcrEngines(tessDataPath);
+        cardRecognizer = new CardRecognizer(templateRegistry, ocrEngines, pipelineMetrics);
+    }
+
+    public CardRecognizer getCardRecognizer() {
+        return cardRecognizer;
+    }
+
+    /**
+     * Lets The Recognizer Read The Preprocessing Variants Of Every Serial Number Area In Parallel, On Workers With Their Own OCR Engines
+     */
+    public void enableParallelVariants(String tessDataPath, int workers) throws IOException {
+        for (int i = 0; i < workers; i++)
+            variantOcrEngines.add(createOcrEngines(tessDataPath));
+        parallelVariantReader = new ParallelVariantReader(variantOcrEngines, Arrays.asList(ParallelVariantReader.DEFAULT_VARIANTS), cardRecognizer.getPipelineMetrics());
+        cardRecognizer.setParallelVariantReader(parallelVariantReader);
+    }
+
+    /**
+     * Reads The Image File Into an RGBA Mat, Reduced While Decoding To About The Working Resolution Of The Templates
+     *
+     * @return The Image, Or Null If The File Isn't an Image OpenCV Can Decode
+     */
+    public Mat readImage(File imageFile) {
+        int reduction = calculateReduction(imageFile, getWorkingResolution());
+        return toRGBA(Imgcodecs.imread(imageFile.getPath(), getReducedReadFlag(reduction)));
+    }
+
+    /**
+     * Decodes The Encoded Image (As Uploaded) Into an RGBA Mat, Reduced While Decoding To About The Working Resolution Of The Templates
+     *
+     * @return The Image, Or Null If The Bytes Aren't an Image OpenCV Can Decode
+     */
+    public static Mat decodeImage(byte[] imageBytes, int workingResolution) {
+        int reduction = calculateReduction(new ByteArrayInputStream(imageBytes), workingResolution);
+        MatOfByte encodedImage = new MatOfByte(imageBytes);
+        Mat image = Imgcodecs.imdecode(encodedImage, getReducedReadFlag(reduction));
+        encodedImage.release();
+        return toRGBA(image);
+    }
+
+    /**
+     * The Longer Side Decoded Images Are Reduced To, Relative To The Widest Template
+     */
+    public int getWorkingResolution() {
+        return cardRecognizer.getTemplateRegistry().getMaxTemplateWidth() * WORKING_RESOLUTION_FACTOR;
+    }
+
+    /**
+     * Runs Every Template Through The Pipeline Once, So The Models, The Native Buffers & The JIT Are Warm Before The First Real Scan
+     */
+    public void warmUp() {
+        TemplateRegistry templateRegistry = cardRecognizer.getTemplateRegistry();
+        for (Template template : templateRegistry.getTemplates()) {
+            Mat templateImage = templateRegistry.getTemplateImage(template);
+            if (templateImage == null)
+                continue;
+            Mat image = new Mat();
+            Imgproc.cvtColor(templateImage, image, Imgproc.COLOR_BGR2RGBA);
+            templateImage.release();
+            ExtractedText extractedText = cardRecognizer.recognize(image);
+            if (extractedText != null)
+                extractedText.alignedImage.release();
+            image.release();
+        }
+        cardRecognizer.resetTracking();
+    }
+
+    public void release() {
+        cardRecognizer.release();
+        for (OcrEngine ocrEngine : ocrEngines)
+            ocrEngine.release();
+
+        if (parallelVariantReader != null)
+            parallelVariantReader.release();
+        for (List<OcrEngine> variantEngines : variantOcrEngines) {
+            for (OcrEngine ocrEngine : variantEngines)
+                ocrEngine.release();
+        }
+        variantOcrEngines.clear();
+    }
+
+    /**
+     * The Folder Of The App Resources (`res`), Holding The Templates, Their Serial Number Positions & The Tesseract Models
+     */
+    public static File getResourcesFolder() {
+        return new File(System.getProperty("cardreader.resources", "../app/src/main/res"));
+    }
+
+    /**
+     * The Folder Holding The `.traineddata` Files, The App Ships Them As Raw Resources
+     */
+    public static String getTessDataPath() {
+        return System.getProperty("cardreader.tessdata", new File(getResourcesFolder(), "raw").getPath());
+    }
+
+    /**
+     * Loads Every `template_card_*.png` Of The Resources With Its Serial Number Position & Extracts Its Features
+     */
+    public static TemplateRegistry loadTemplateRegistry(File resourcesFolder) throws IOException {
+        List<TemplateInfo> templateInfos;
+        try (InputStream inputStream = new FileInputStream(new File(resourcesFolder, "xml/template_serial_number_positions.xml"))) {
+            templateInfos = TemplateRegistry.readTemplateInfos(inputStream);
+        }
+
+        File[] templateFiles = new File(resourcesFolder, "raw").listFiles((folder, fileName) -> fileName.startsWith("template_card") && fileName.endsWith(".png"));
+        if (templateFiles == null || templateFiles.length == 0)
+            throw new IOException("No Templates Found In: " + resourcesFolder);
+        Arrays.sort(templateFiles);
+
+        TemplateRegistry templateRegistry = new TemplateRegistry();
+        for (int templateId = 0; templateId < templateFiles.length; templateId++) {
+            String templateName = templateFiles[templateId].getName().replace(".png", "");
+            TemplateInfo templateInfo = templateInfos.stream().filter(x -> x.templateName.equals(templateName)).findFirst().orElse(null);
+            if (templateInfo == null)
+                throw new IOException("No Serial Number Position For: " + templateName);
+
+            Mat template = Imgcodecs.imread(templateFiles[templateId].getPath(), Imgcodecs.IMREAD_COLOR);
+            if (template.empty())
+                throw new IOException("Template Could Not Be Read: " + templateFiles[templateId]);
+            String templatePath = templateFiles[templateId].getPath();
+            templateRegistry.addTemplate(templateId, templateName, templateInfo, template, () -> Imgcodecs.imread(templatePath, Imgcodecs.IMREAD_COLOR));
+        }
+        System.out.println(String.format("%d Templates Loaded", templateFiles.length));
+        return templateRegistry;
+    }
+
+    /**
+     * Creates The Same OCR Engines As The App, With The Same Character Whitelists
+     */
+    public static List<OcrEngine> createOcrEngines(String tessDataPath) throws IOException {
+        List<OcrEngine> ocrEngines = new ArrayList<>();
+        try {
+            for (String modelName : OCR_MODELS)
+                ocrEngines.add(new TesseractOcrEngine(tessDataPath, modelName, TesseractSettings.getCharacterWhitelist(modelName)));
+        } catch (IOException e) {
+            for (OcrEngine ocrEngine : ocrEngines)
+                ocrEngine.release();
+            throw e;
+        }
+        return ocrEngines;
+    }
+
+    /**
+     * The Largest Power Of Two Reduction Which Still Keeps The Longer Side Of The Image At Least As Big As The Target
+     * <p>
+     * Only The Image Header Is Read Here, If It Can't Be Read The Image Is Decoded At Full Resolution.
+     *
+     * @param imageSource The Image File Or an Input Stream Of The Encoded Image
+     */
+    public static int calculateReduction(Object imageSource, int targetLongSide) {
+        try (ImageInputStream inputStream = ImageIO.createImageInputStream(imageSource)) {
+            Iterator<ImageReader> imageReaders = inputStream == null ? null : ImageIO.getImageReaders(inputStream);
+            if (imageReaders == null || !imageReaders.hasNext())
+                return 1;
+
+            ImageReader imageReader = imageReaders.next();
+            try {
+                imageReader.setInput(inputStream, true, true);
+                int longSide = Math.max(imageReader.getWidth(0), imageReader.getHeight(0));
+                int reduction = 1;
+                while (reduction < MAX_REDUCTION && longSide / (reduction * 2) >= targetLongSide)
+                    reduction *= 2;
+                return reduction;
+            } finally {
+                imageReader.dispose();
+            }
+        } catch (IOException e) {
+            return 1;
+        }
+    }
+
+    private static Mat toRGBA(Mat image) {
+        if (image.empty()) {
+            image.release();
+            return null;
+        }
+
+        //The Pipeline Has Always Worked On RGBA Images (As Produced By Android Bitmaps)
+        Imgproc.cvtColor(image, image, Imgproc.COLOR_BGR2RGBA);
+        return image;
+    }
+
+    public static int getReducedReadFlag(int reduction) {
+        switch (reduction) {
+            case 2:
+                return Imgcodecs.IMREAD_REDUCED_COLOR_2;
+            case 4:
+                return Imgcodecs.IMREAD_REDUCED_COLOR_4;
+            case 8:
+                return Imgcodecs.IMREAD_REDUCED_COLOR_8;
+            default:
+                return Imgcodecs.IMREAD_COLOR;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package naji.cardreader;
+
+/**
+ * The Bits Of JSON Writing (& Reading Back) The Tools Need, So No JSON Library Has To Be Pulled In
+ */
+public class Json {
+    /**
+     * The Text As a JSON String (With The Quotes), Or `null`
+     */
+    public static String quote(String text) {
+        if (text == null)
+            return "null";
+
+        StringBuilder quoted = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char character = text.charAt(i);
+            switch (character) {
+                case '"':
+                    quoted.append("\\\"");
+                    break;
+                case '\\':
+                    quoted.append("\\\\");
+                    break;
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+                case '\r':
+                    quoted.append("\\r");
+                    break;
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+                default:
+                    if (character < 0x20)
+                        quoted.append(String.format("\\u%04x", (int) character));
+                    else
+                        quoted.append(character);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * Reads Back a JSON String Written By {@link #quote(String)}
+     *
+     * @param start Where The Opening Quote Is
+     * @return The Text, Or Null If There Is No Complete String There
+     */
+    public static String unquote(String json, int start) {
+        if (start >= json.length() || json.charAt(start) != '"')
+            return null;
+
+        StringBuilder text = new StringBuilder();
+        for (int i = start + 1; i < json.length(); i++) {
+            char character = json.charAt(i);
+            if (character == '"')
+                return text.toString();
+            if (character != '\\') {
+                text.append(character);
+                continue;
+            }
+
+            if (++i >= json.length())
+                return null;
+            char escaped = json.charAt(i);
+            switch (escaped) {
+                case 'n':
+                    text.append('\n');
+                    break;
+                case 'r':
+                    text.append('\r');
+                    break;
+                case 't':
+                    text.append('\t');
+                    break;
+                case 'u':
+                    if (i + 4 >= json.length())
+                        return null;
+                    try {
+                        text.append((char) Integer.parseInt(json.substring(i + 1, i + 5), 16));
+                    } catch (NumberFormatException e) {
+                        return null;
+                    }
+                    i += 4;
+                    break;
+                default:
+                    text.append(escaped);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,412 @@
+package naji.cardreader;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.opencv.core.Mat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import naji.cardreader.DTOs.ExtractedText;
+import naji.cardreader.DTOs.Template;
+
+/**
+ * a Small HTTP Service (On The JDK's Built In Server, Bound To Localhost) Which Reads The Serial Numbers Of Uploaded Card Images
+ * <p>
+ * `POST /scan` With The Encoded Image As The Body Answers With The Read Serial Number As JSON,
+ * `GET /stats` Answers With The Queue Depth, The Latencies & The Per Stage Metrics.
+ * <p>
+ * Uploads Are Decoded On The HTTP Threads & Queued For a Fixed Pool Of Warmed Pipelines, Each With Its Own Feature Extractor,
+ * Matcher & Tesseract Instances. The Queue Is Kept Per Template (Guessed From The Cheap Colour Signature When The Upload Is Queued),
+ * & a Free Pipeline Takes a Run Of Uploads Of The Same Template & Aligns Each With That Template First (Skipping The Quad Search
+ * & The Shortlist), So The Same Template Data Stays Hot In The Caches. Only Uploads Not Read That Way Go Through The Full Search.
+ * This Is Only Template Affinity, Not Batching: The Uploads Of a Run Are Still Recognized One After Another, Each On Its Own.
+ * When The Queue Is Full, Uploads Are Turned Away With a 503 Before Their Body Is Even Read. Uploads Being Read & Decoded Hold
+ * a Queue Slot Too, So The Decoded Images Never Outnumber The Queue Capacity.
+ * With a {@link TemplateLibrary}, Template Packs Dropped Into Its Folder Are Served Without Restarting.
+ */
+public class ScanService {
+    static final int MAX_TEMPLATE_RUN = 8;
+    static final long REQUEST_TIMEOUT_SECONDS = 30;
+    static final int MAX_UPLOAD_BYTES = 32 * 1024 * 1024;
+
+    /**
+     * An Upload Waiting For (Or Being Scanned By) a Pipeline
+     */
+    static class ScanJob {
+        Mat image;
+        String templateGuess;
+        long queuedNanos;
+        CompletableFuture<String> response = new CompletableFuture<>();
+
+        ScanJob(Mat image, String templateGuess, long queuedNanos) {
+            this.image = image;
+            this.templateGuess = templateGuess;
+            this.queuedNanos = queuedNanos;
+        }
+    }
+
+    private final TemplateRegistry templateRegistry;
+    private TemplateLibrary templateLibrary;
+    private final String tessDataPath;
+    private final int pipelineCount;
+    private final int queueCapacity;
+    //One Permit Per Queue Slot, Held From Reading The Upload Until a Pipeline Takes It
+    private final Semaphore queueSlots;
+    private final TemplateShortlist templateShortlist = new TemplateShortlist();
+    private final PipelineMetrics pipelineMetrics = new PipelineMetrics();
+
+    //Template Guess -> Waiting Jobs, All Guarded By `this`
+    private final Map<String, ArrayDeque<ScanJob>> pendingJobs = new LinkedHashMap<>();
+    private int queueDepth = 0;
+    private int busyPipelines = 0;
+    private long acceptedCount = 0;
+    private long rejectedCount = 0;
+    private long completedCount = 0;
+    private long templateRunCount = 0;
+    private final LatencyHistogram queueLatency = new LatencyHistogram();
+    private final LatencyHistogram scanLatency = new LatencyHistogram();
+    private final LatencyHistogram totalLatency = new LatencyHistogram();
+    private boolean stopping = false;
+
+    private final List<Thread> pipelineThreads = new ArrayList<>();
+    private HttpServer httpServer;
+    private ExecutorService httpExecutor;
+
+    public ScanService(TemplateRegistry templateRegistry, String tessDataPath, int pipelineCount, int queueCapacity) {
+        this.templateRegistry = templateRegistry;
+        this.tessDataPath = tessDataPath;
+        this.pipelineCount = pipelineCount;
+        this.queueCapacity = queueCapacity;
+        this.queueSlots = new Semaphore(queueCapacity);
+    }
+
+    /**
+     * Serves The Snapshots Of The Library Instead Of The Registry, Must Be Set Before Starting
+     */
+    public void setTemplateLibrary(TemplateLibrary templateLibrary) {
+        this.templateLibrary = templateLibrary;
+    }
+
+    /**
+     * Creates & Warms The Pipelines, Then Starts Listening On Localhost
+     */
+    public void start(int port) throws IOException {
+        List<HeadlessPipeline> headlessPipelines = new ArrayList<>();
+        for (int i = 0; i < pipelineCount; i++) {
+            HeadlessPipeline headlessPipeline = new HeadlessPipeline(templateRegistry, tessDataPath, pipelineMetrics);
+            if (templateLibrary != null)
+                headlessPipeline.getCardRecognizer().setTemplateLibrary(templateLibrary);
+            headlessPipeline.warmUp();
+            headlessPipelines.add(headlessPipeline);
+        }
+        //The Warm Up Scans Shouldn't Show Up In The Stats
+        pipelineMetrics.reset();
+        System.out.println(String.format("%d Pipelines Warmed Up", pipelineCount));
+
+        for (int i = 0; i < pipelineCount; i++) {
+            HeadlessPipeline headlessPipeline = headlessPipelines.get(i);
+            Thread pipelineThread = new Thread(() -> work(headlessPipeline), "scan-pipeline-" + i);
+            pipelineThreads.add(pipelineThread);
+            pipelineThread.start();
+        }
+
+        //Every Queued Upload Holds an HTTP Thread While It Waits, So There Are Enough For a Full Queue & Busy Pipelines
+        httpExecutor = Executors.newFixedThreadPool(queueCapacity + pipelineCount + 1);
+        httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        httpServer.createContext("/scan", this::handleScan);
+        httpServer.createContext("/stats", this::handleStats);
+        httpServer.setExecutor(httpExecutor);
+        httpServer.start();
+        System.out.println(String.format("Scan Service Listening On http://localhost:%d", httpServer.getAddress().getPort()));
+    }
+
+    /**
+     * Stops Accepting Uploads, Fails The Queued Ones & Releases The Pipelines Once Their Current Template Run Is Done
+     */
+    public void stop() throws InterruptedException {
+        if (httpServer != null)
+            httpServer.stop(0);
+
+        synchronized (this) {
+            stopping = true;
+            for (ArrayDeque<ScanJob> jobs : pendingJobs.values()) {
+                for (ScanJob job : jobs) {
+                    job.image.release();
+                    job.response.completeExceptionally(new IllegalStateException("The Scan Service Is Stopping"));
+                }
+            }
+            queueSlots.release(queueDepth);
+            pendingJobs.clear();
+            queueDepth = 0;
+            notifyAll();
+        }
+
+        for (Thread pipelineThread : pipelineThreads)
+            pipelineThread.join();
+        if (httpExecutor != null)
+            httpExecutor.shutdownNow();
+    }
+
+    private void handleScan(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                respond(exchange, 405, "{\"error\":\"Use POST With The Image As The Body\"}");
+                return;
+            }
+
+            //Turned Away Before The Body Is Read, So a Burst Of Large Uploads Can't Pile Up In The Heap
+            if (!queueSlots.tryAcquire()) {
+                synchronized (this) {
+                    rejectedCount++;
+                }
+                respond(exchange, 503, "{\"error\":\"The Scan Queue Is Full\"}");
+                return;
+            }
+
+            ScanJob job;
+            boolean queued = false;
+            try {
+                long requestStart = System.nanoTime();
+                byte[] imageBytes = readBody(exchange.getRequestBody());
+                if (imageBytes == null) {
+                    respond(exchange, 413, "{\"error\":\"The Image Is Too Big\"}");
+                    return;
+                }
+
+                Mat image;
+                String templateGuess;
+                TemplateRegistry templates = acquireTemplates();
+                try {
+                    long decodeStart = pipelineMetrics.start();
+                    image = HeadlessPipeline.decodeImage(imageBytes, templates.getMaxTemplateWidth() * HeadlessPipeline.WORKING_RESOLUTION_FACTOR);
+                    pipelineMetrics.record(PipelineMetrics.DECODE, null, decodeStart);
+                    if (image == null) {
+                        respond(exchange, 400, "{\"error\":\"The Image Could Not Be Decoded\"}");
+                        return;
+                    }
+
+                    List<Template> shortlistedTemplates = templateShortlist.shortlist(image, true, templates.getTemplates(), 1);
+                    templateGuess = shortlistedTemplates.isEmpty() ? PipelineMetrics.ANY_TEMPLATE : shortlistedTemplates.get(0).templateResourceName;
+                } finally {
+                    releaseTemplates(templates);
+                }
+                job = new ScanJob(image, templateGuess, requestStart);
+                queued = enqueue(job);
+                if (!queued) {
+                    image.release();
+                    respond(exchange, 503, "{\"error\":\"The Scan Service Is Stopping\"}");
+                    return;
+                }
+            } finally {
+                //Once Queued, The Slot Is Given Back When a Pipeline Takes The Job
+                if (!queued)
+                    queueSlots.release();
+            }
+
+            try {
+                respond(exchange, 200, job.response.get(REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            } catch (TimeoutException e) {
+                //The Pipeline Skips Cancelled Jobs (Or Drops The Response If It Was Already Scanning It)
+                job.response.cancel(false);
+                respond(exchange, 504, "{\"error\":\"The Scan Timed Out\"}");
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            respond(exchange, 500, "{\"error\":" + Json.quote(e.toString()) + "}");
+        }
+    }
+
+    /**
+     * The Templates Uploads Are Routed With, The Latest Library Snapshot If The Service Has a Library
+     */
+    private TemplateRegistry acquireTemplates() {
+        return templateLibrary == null ? templateRegistry : templateLibrary.acquireSnapshot();
+    }
+
+    private void releaseTemplates(TemplateRegistry templates) {
+        if (templateLibrary != null)
+            templateLibrary.releaseSnapshot(templates);
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        StringBuilder stats = new StringBuilder();
+        synchronized (this) {
+            stats.append(String.format(Locale.US, "{\"queueDepth\":%d,\"queueCapacity\":%d,\"pipelines\":%d,\"busyPipelines\":%d," +
+                            "\"accepted\":%d,\"rejected\":%d,\"completed\":%d,\"templateRuns\":%d,\"meanTemplateRunLength\":%.2f",
+                    queueDepth, queueCapacity, pipelineCount, busyPipelines, acceptedCount, rejectedCount, completedCount, templateRunCount,
+                    templateRunCount == 0 ? 0.0 : ((double) completedCount) / templateRunCount));
+
+            stats.append(",\"queueDepthPerTemplate\":{");
+            String separator = "";
+            for (Map.Entry<String, ArrayDeque<ScanJob>> jobs : pendingJobs.entrySet()) {
+                stats.append(separator).append(Json.quote(jobs.getKey())).append(':').append(jobs.getValue().size());
+                separator = ",";
+            }
+            stats.append('}');
+
+            stats.append(",\"latency\":{");
+            appendLatency(stats, "queue", queueLatency).append(',');
+            appendLatency(stats, "scan", scanLatency).append(',');
+            appendLatency(stats, "total", totalLatency).append('}');
+        }
+        stats.append(",\"stages\":").append(pipelineMetrics.toJson()).append('}');
+        respond(exchange, 200, stats.toString());
+    }
+
+    private static StringBuilder appendLatency(StringBuilder stats, String name, LatencyHistogram histogram) {
+        return stats.append(String.format(Locale.US, "\"%s\":{\"count\":%d,\"mean\":%.3f,\"p50\":%.3f,\"p95\":%.3f,\"p99\":%.3f}",
+                name, histogram.getCount(), histogram.getMeanMillis(),
+                histogram.getPercentileMillis(50), histogram.getPercentileMillis(95), histogram.getPercentileMillis(99)));
+    }
+
+    /**
+     * Queues The Job Next To The Other Jobs Of Its Template, Unless The Queue Is Full Or The Service Is Stopping
+     */
+    private synchronized boolean enqueue(ScanJob job) {
+        if (stopping || queueDepth >= queueCapacity) {
+            rejectedCount++;
+            return false;
+        }
+
+        ArrayDeque<ScanJob> jobs = pendingJobs.get(job.templateGuess);
+        if (jobs == null) {
+            jobs = new ArrayDeque<>();
+            pendingJobs.put(job.templateGuess, jobs);
+        }
+        jobs.addLast(job);
+        queueDepth++;
+        acceptedCount++;
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Waits For Jobs & Takes a Run Of The Jobs Of The Template Whose Oldest Job Has Waited The Longest, So No Template Starves
+     *
+     * @return The Template Run, Or An Empty List If The Service Is Stopping
+     */
+    private synchronized List<ScanJob> takeTemplateRun() throws InterruptedException {
+        while (queueDepth == 0 && !stopping)
+            wait();
+        if (stopping)
+            return Collections.emptyList();
+
+        ArrayDeque<ScanJob> oldestJobs = null;
+        for (ArrayDeque<ScanJob> jobs : pendingJobs.values()) {
+            if (!jobs.isEmpty() && (oldestJobs == null || jobs.peekFirst().queuedNanos < oldestJobs.peekFirst().queuedNanos))
+                oldestJobs = jobs;
+        }
+
+        List<ScanJob> templateRun = new ArrayList<>();
+        while (!oldestJobs.isEmpty() && templateRun.size() < MAX_TEMPLATE_RUN)
+            templateRun.add(oldestJobs.pollFirst());
+        queueDepth -= templateRun.size();
+        queueSlots.release(templateRun.size());
+        busyPipelines++;
+        templateRunCount++;
+        return templateRun;
+    }
+
+    private synchronized void finishJob(ScanJob job, long scanStart, long scanEnd) {
+        queueLatency.record(scanStart - job.queuedNanos);
+        scanLatency.record(scanEnd - scanStart);
+        totalLatency.record(scanEnd - job.queuedNanos);
+        completedCount++;
+    }
+
+    private synchronized void finishTemplateRun() {
+        busyPipelines--;
+    }
+
+    /**
+     * The Loop Of a Pipeline Thread
+     */
+    private void work(HeadlessPipeline headlessPipeline) {
+        try {
+            while (true) {
+                List<ScanJob> templateRun = takeTemplateRun();
+                if (templateRun.isEmpty())
+                    return;
+
+                //One Image At a Time, The Run Only Keeps The Same Template In The Caches
+                for (ScanJob job : templateRun) {
+                    try {
+                        if (!job.response.isCancelled())
+                            job.response.complete(scan(headlessPipeline.getCardRecognizer(), job));
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                        job.response.completeExceptionally(e);
+                    } finally {
+                        job.image.release();
+                    }
+                }
+                finishTemplateRun();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            headlessPipeline.release();
+        }
+    }
+
+    private String scan(CardRecognizer cardRecognizer, ScanJob job) {
+        long scanStart = System.nanoTime();
+        String templateGuess = job.templateGuess.equals(PipelineMetrics.ANY_TEMPLATE) ? null : job.templateGuess;
+        ExtractedText extractedText = cardRecognizer.recognize(job.image, templateGuess);
+        long scanEnd = System.nanoTime();
+        finishJob(job, scanStart, scanEnd);
+
+        if (extractedText == null)
+            return String.format(Locale.US, "{\"status\":\"unread\",\"templateGuess\":%s,\"queueMillis\":%.1f,\"scanMillis\":%.1f}",
+                    Json.quote(job.templateGuess), (scanStart - job.queuedNanos) / 1e6, (scanEnd - scanStart) / 1e6);
+
+        extractedText.alignedImage.release();
+        return String.format(Locale.US, "{\"status\":\"read\",\"template\":%s,\"engine\":%s,\"text\":%s,\"confidence\":%d,\"templateGuess\":%s,\"queueMillis\":%.1f,\"scanMillis\":%.1f}",
+                Json.quote(extractedText.alignedImage.templateName), Json.quote(extractedText.ocrEngineName), Json.quote(extractedText.text),
+                extractedText.confidence, Json.quote(job.templateGuess), (scanStart - job.queuedNanos) / 1e6, (scanEnd - scanStart) / 1e6);
+    }
+
+    /**
+     * Reads The Whole Request Body, Or Returns Null If It Is Bigger Than An Upload May Be
+     */
+    private static byte[] readBody(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            if (body.size() + read > MAX_UPLOAD_BYTES)
+                return null;
+            body.write(buffer, 0, read);
+        }
+        return body.toByteArray();
+    }
+
+    private static void respond(HttpExchange exchange, int statusCode, String json) throws IOException {
+        byte[] responseBytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(statusCode, responseBytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(responseBytes);
+        }
+    }
+}
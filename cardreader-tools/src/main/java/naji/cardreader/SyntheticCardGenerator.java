@@ -0,0 +1,296 @@
+package naji.cardreader;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfInt;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+import naji.cardreader.DTOs.Template;
+import naji.cardreader.DTOs.TemplateInfo;
+
+/**
+ * Generates Realistic Looking Photos Of The Template Cards With Known Serial Numbers, For Load & Accuracy Benchmarks
+ * <p>
+ * The Printed Serial Number Of The Template Is Painted Over & a Random One Is Rendered Into Its Area,
+ * Then The Card Is Warped Onto a Background With a Random Scale, Rotation & Perspective,
+ * & Glare, Blur, Sensor Noise & JPEG Compression Are Added.
+ * Every Image Gets Its Own Random Generator Seeded From The Run Seed, The Template & The Image Number,
+ * So The Same Seed Always Gives The Same Images (With The Same Ground Truth), However Many Are Generated.
+ */
+public class SyntheticCardGenerator {
+    static final String GROUND_TRUTH_FILE = "ground_truth.csv";
+    static final String GROUND_TRUTH_HEADER = "image,template,serial,corners,scale,rotation,blur,noise,glare,jpegQuality";
+
+    static final Size CAPTURED_SIZE = new Size(1600, 1200);
+    static final double MIN_SCALE = 0.55;
+    static final double MAX_SCALE = 0.9;
+    static final double MAX_ROTATION_DEGREES = 20;
+    static final double MAX_CORNER_JITTER = 0.06;
+    static final double MAX_BLUR_SIGMA = 2.0;
+    static final double MAX_NOISE_DEVIATION = 8;
+    static final double GLARE_PROBABILITY = 0.4;
+    static final int MIN_JPEG_QUALITY = 40;
+    static final int MAX_JPEG_QUALITY = 95;
+
+    //How Much Of The Serial Number Area The Rendered Text Fills
+    static final double TEXT_HEIGHT_RATIO = 0.65;
+    static final double TEXT_WIDTH_RATIO = 0.9;
+
+    /**
+     * The Ground Truth & The Random Choices Of One Generated Image
+     */
+    static class SyntheticCard {
+        String templateName;
+        String serialNumber;
+        Point[] corners;
+        double scale;
+        double rotationDegrees;
+        double blurSigma;
+        double noiseDeviation;
+        boolean glare;
+        int jpegQuality;
+    }
+
+    private final TemplateRegistry templateRegistry;
+
+    public SyntheticCardGenerator(TemplateRegistry templateRegistry) {
+        this.templateRegistry = templateRegistry;
+    }
+
+    /**
+     * Generates The Images Of Every Template Into The Folder, Next To a `ground_truth.csv` Describing Them
+     */
+    public void generate(File outputFolder, long seed, int countPerTemplate) throws IOException {
+        if (!outputFolder.exists() && !outputFolder.mkdirs())
+            throw new IOException("The Output Folder Could Not Be Created: " + outputFolder);
+
+        try (Writer groundTruthWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(outputFolder, GROUND_TRUTH_FILE)), StandardCharsets.UTF_8))) {
+            groundTruthWriter.write(GROUND_TRUTH_HEADER);
+            groundTruthWriter.write('\n');
+
+            for (Template template : templateRegistry.getTemplates()) {
+                for (int i = 0; i < countPerTemplate; i++) {
+                    Random random = new Random(seed * 1_000_003L + template.templateResourceName.hashCode() * 10_007L + i);
+                    SyntheticCard syntheticCard = new SyntheticCard();
+                    Mat image = render(template, random, syntheticCard);
+
+                    String imageName = String.format(Locale.US, "%s_%05d.jpg", template.templateResourceName, i);
+                    MatOfInt jpegParameters = new MatOfInt(Imgcodecs.IMWRITE_JPEG_QUALITY, syntheticCard.jpegQuality);
+                    boolean written = Imgcodecs.imwrite(new File(outputFolder, imageName).getPath(), image, jpegParameters);
+                    jpegParameters.release();
+                    image.release();
+                    if (!written)
+                        throw new IOException("The Image Could Not Be Written: " + imageName);
+
+                    groundTruthWriter.write(toGroundTruthRow(imageName, syntheticCard));
+                    groundTruthWriter.write('\n');
+                }
+                System.out.println(String.format("%d Images Of '%s' Generated", countPerTemplate, template.templateResourceName));
+            }
+        }
+    }
+
+    /**
+     * Renders One Photo Of The Template (In BGR Order, Before The JPEG Compression) & Fills In Its Ground Truth
+     */
+    public Mat render(Template template, Random random, SyntheticCard syntheticCard) throws IOException {
+        syntheticCard.templateName = template.templateResourceName;
+        Mat card = templateRegistry.getTemplateImage(template);
+        if (card == null)
+            throw new IOException("The Template Image Could Not Be Loaded: " + template.templateResourceName);
+        syntheticCard.serialNumber = renderSerialNumber(card, template.templateInfo, random);
+
+        Mat image = createBackground(random);
+        syntheticCard.corners = placeCard(card, image, random, syntheticCard);
+        card.release();
+
+        syntheticCard.glare = random.nextDouble() < GLARE_PROBABILITY;
+        if (syntheticCard.glare)
+            addGlare(image, random);
+
+        syntheticCard.blurSigma = random.nextDouble() * MAX_BLUR_SIGMA;
+        if (syntheticCard.blurSigma > 0.3)
+            Imgproc.GaussianBlur(image, image, new Size(), syntheticCard.blurSigma);
+
+        syntheticCard.noiseDeviation = random.nextDouble() * MAX_NOISE_DEVIATION;
+        addNoise(image, syntheticCard.noiseDeviation, random);
+
+        syntheticCard.jpegQuality = MIN_JPEG_QUALITY + random.nextInt(MAX_JPEG_QUALITY - MIN_JPEG_QUALITY + 1);
+        return image;
+    }
+
+    /**
+     * Paints Over The Printed Serial Number With The Colour Around It & Renders a Random One Of a Valid Length In Its Place
+     */
+    public String renderSerialNumber(Mat card, TemplateInfo templateInfo, Random random) {
+        Rect serialNumberRect = new Rect(templateInfo.XLeft, templateInfo.YTop, templateInfo.XRight - templateInfo.XLeft, templateInfo.YBottom - templateInfo.YTop);
+        int length = templateInfo.characterLengths[random.nextInt(templateInfo.characterLengths.length)];
+        StringBuilder serialNumber = new StringBuilder();
+        for (int i = 0; i < length; i++)
+            serialNumber.append((char) ('0' + random.nextInt(10)));
+
+        Scalar background = getSurroundingColour(card, serialNumberRect);
+        Imgproc.rectangle(card, serialNumberRect.tl(), serialNumberRect.br(), background, Core.FILLED);
+
+        //Scales The Font So The Text Fits The Area, Both In Height & In Width
+        int fontFace = Core.FONT_HERSHEY_SIMPLEX;
+        int thickness = Math.max(1, (int) Math.round(serialNumberRect.height * 0.08));
+        int[] baseline = new int[1];
+        Size unitSize = Imgproc.getTextSize(serialNumber.toString(), fontFace, 1, thickness, baseline);
+        double fontScale = Math.min(serialNumberRect.height * TEXT_HEIGHT_RATIO / unitSize.height, serialNumberRect.width * TEXT_WIDTH_RATIO / unitSize.width);
+        Size textSize = Imgproc.getTextSize(serialNumber.toString(), fontFace, fontScale, thickness, baseline);
+
+        Point origin = new Point(serialNumberRect.x + (serialNumberRect.width - textSize.width) / 2, serialNumberRect.y + (serialNumberRect.height + textSize.height) / 2);
+        double ink = 20 + random.nextInt(40);
+        Imgproc.putText(card, serialNumber.toString(), origin, fontFace, fontScale, new Scalar(ink, ink, ink), thickness, Imgproc.LINE_AA, false);
+        return serialNumber.toString();
+    }
+
+    /**
+     * The Mean Colour Of a Thin Ring Around The Rectangle, Which Is The Card Background Next To The Serial Number
+     */
+    private Scalar getSurroundingColour(Mat card, Rect rect) {
+        int margin = 3;
+        Rect outer = new Rect(Math.max(0, rect.x - margin), Math.max(0, rect.y - margin), 0, 0);
+        outer.width = Math.min(card.width(), rect.x + rect.width + margin) - outer.x;
+        outer.height = Math.min(card.height(), rect.y + rect.height + margin) - outer.y;
+
+        Mat mask = Mat.zeros(card.size(), CvType.CV_8UC1);
+        Imgproc.rectangle(mask, outer.tl(), outer.br(), new Scalar(255), Core.FILLED);
+        Imgproc.rectangle(mask, rect.tl(), rect.br(), new Scalar(0), Core.FILLED);
+        Scalar colour = Core.mean(card, mask);
+        mask.release();
+        return colour;
+    }
+
+    /**
+     * a Plain Background With a Random Colour & a Soft Gradient, Like a Table Or a Hand
+     */
+    private Mat createBackground(Random random) {
+        Scalar colour = new Scalar(40 + random.nextInt(180), 40 + random.nextInt(180), 40 + random.nextInt(180));
+        Mat background = new Mat(CAPTURED_SIZE, CvType.CV_8UC3, colour);
+
+        Mat gradient = new Mat(1, (int) CAPTURED_SIZE.width, CvType.CV_8UC3);
+        double strength = random.nextDouble() * 60;
+        for (int x = 0; x < gradient.width(); x++) {
+            double value = strength * x / gradient.width();
+            gradient.put(0, x, value, value, value);
+        }
+        Mat gradientImage = new Mat();
+        Imgproc.resize(gradient, gradientImage, CAPTURED_SIZE, 0, 0, Imgproc.INTER_NEAREST);
+        if (random.nextBoolean())
+            Core.add(background, gradientImage, background);
+        else
+            Core.subtract(background, gradientImage, background);
+        gradient.release();
+        gradientImage.release();
+        return background;
+    }
+
+    /**
+     * Warps The Card Onto The Image With a Random Scale, Rotation, Perspective & Position
+     *
+     * @return The Corners Of The Card In The Image (Top Left, Top Right, Bottom Right, Bottom Left Of The Template)
+     */
+    private Point[] placeCard(Mat card, Mat image, Random random, SyntheticCard syntheticCard) {
+        syntheticCard.scale = MIN_SCALE + random.nextDouble() * (MAX_SCALE - MIN_SCALE);
+        syntheticCard.rotationDegrees = (random.nextDouble() * 2 - 1) * MAX_ROTATION_DEGREES;
+
+        double cardWidth = image.width() * syntheticCard.scale;
+        double cardHeight = cardWidth * card.height() / card.width();
+        double angle = Math.toRadians(syntheticCard.rotationDegrees);
+        double cos = Math.cos(angle), sin = Math.sin(angle);
+
+        double[][] offsets = {{-0.5, -0.5}, {0.5, -0.5}, {0.5, 0.5}, {-0.5, 0.5}};
+        Point[] corners = new Point[4];
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            double x = offsets[i][0] * cardWidth + (random.nextDouble() * 2 - 1) * MAX_CORNER_JITTER * cardWidth;
+            double y = offsets[i][1] * cardHeight + (random.nextDouble() * 2 - 1) * MAX_CORNER_JITTER * cardHeight;
+            corners[i] = new Point(x * cos - y * sin, x * sin + y * cos);
+            minX = Math.min(minX, corners[i].x);
+            minY = Math.min(minY, corners[i].y);
+            maxX = Math.max(maxX, corners[i].x);
+            maxY = Math.max(maxY, corners[i].y);
+        }
+
+        //Moves The Card To a Random Position Where It Still Lies Fully Inside The Image (Centered If It Is Too Big)
+        double centerX = -minX + Math.max(0, image.width() - (maxX - minX)) * random.nextDouble();
+        double centerY = -minY + Math.max(0, image.height() - (maxY - minY)) * random.nextDouble();
+        for (Point corner : corners) {
+            corner.x += centerX;
+            corner.y += centerY;
+        }
+
+        MatOfPoint2f cardCorners = new MatOfPoint2f(
+                new Point(0, 0),
+                new Point(card.width() - 1, 0),
+                new Point(card.width() - 1, card.height() - 1),
+                new Point(0, card.height() - 1));
+        MatOfPoint2f imageCorners = new MatOfPoint2f(corners);
+        Mat cardToImage = Imgproc.getPerspectiveTransform(cardCorners, imageCorners);
+        Imgproc.warpPerspective(card, image, cardToImage, image.size(), Imgproc.INTER_LINEAR, Core.BORDER_TRANSPARENT, new Scalar(0));
+        cardCorners.release();
+        imageCorners.release();
+        cardToImage.release();
+        return corners;
+    }
+
+    /**
+     * Adds a Soft Bright Spot, Like a Lamp Reflecting On The Card
+     */
+    private void addGlare(Mat image, Random random) {
+        Mat glare = Mat.zeros(image.size(), CvType.CV_8UC3);
+        Point center = new Point(random.nextInt(image.width()), random.nextInt(image.height()));
+        Size axes = new Size(60 + random.nextInt(200), 30 + random.nextInt(120));
+        double intensity = 120 + random.nextInt(120);
+        Imgproc.ellipse(glare, center, axes, random.nextInt(180), 0, 360, new Scalar(intensity, intensity, intensity), Core.FILLED);
+        Imgproc.GaussianBlur(glare, glare, new Size(), Math.max(axes.width, axes.height) / 3);
+        Core.add(image, glare, image);
+        glare.release();
+    }
+
+    /**
+     * Adds Gaussian Sensor Noise, Seeded From The Image's Random Generator
+     */
+    private void addNoise(Mat image, double deviation, Random random) {
+        Mat noise = new Mat(image.size(), CvType.CV_16SC3);
+        Core.setRNGSeed(random.nextInt());
+        Core.randn(noise, 0, deviation);
+
+        Mat noisyImage = new Mat();
+        image.convertTo(noisyImage, CvType.CV_16SC3);
+        Core.add(noisyImage, noise, noisyImage);
+        noisyImage.convertTo(image, CvType.CV_8UC3);
+        noise.release();
+        noisyImage.release();
+    }
+
+    private static String toGroundTruthRow(String imageName, SyntheticCard syntheticCard) {
+        StringBuilder corners = new StringBuilder();
+        for (Point corner : syntheticCard.corners)
+            corners.append(corners.length() == 0 ? "" : " ").append(String.format(Locale.US, "%.1f %.1f", corner.x, corner.y));
+
+        return String.format(Locale.US, "%s,%s,%s,%s,%.3f,%.2f,%.2f,%.2f,%b,%d",
+                imageName, syntheticCard.templateName, syntheticCard.serialNumber, corners,
+                syntheticCard.scale, syntheticCard.rotationDegrees, syntheticCard.blurSigma, syntheticCard.noiseDeviation,
+                syntheticCard.glare, syntheticCard.jpegQuality);
+    }
+}
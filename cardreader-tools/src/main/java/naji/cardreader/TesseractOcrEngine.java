@@ -0,0 +1,92 @@
+package naji.cardreader;
+
+import com.sun.jna.Pointer;
+
+import net.sourceforge.tess4j.ITessAPI;
+import net.sourceforge.tess4j.TessAPI1;
+
+import org.opencv.core.Mat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import naji.cardreader.DTOs.RecognizedText;
+
+/**
+ * Tesseract (Through tess4j) As The OCR Engine Of The Headless Pipeline, Set Up The Same Way The App Sets Up tess-two
+ * <p>
+ * The Low Level API Is Used So The Preprocessed Pixels Are Handed Over As They Are, Without Going Through a BufferedImage.
+ */
+public class TesseractOcrEngine extends TesseractSettings {
+    static final String VAR_CHAR_WHITELIST = "tessedit_char_whitelist";
+
+    private final String name;
+    private final ITessAPI.TessBaseAPI api;
+    private ByteBuffer pixels;
+    private byte[] row;
+
+    /**
+     * @param tessDataPath The Folder Holding The `.traineddata` Files
+     * @param modelName    The Model (Language) To Load, Like "eng"
+     */
+    public TesseractOcrEngine(String tessDataPath, String modelName, String characterWhitelist) throws IOException {
+        super(characterWhitelist);
+        name = modelName;
+        api = TessAPI1.TessBaseAPICreate();
+        if (TessAPI1.TessBaseAPIInit3(api, tessDataPath, modelName) != 0) {
+            TessAPI1.TessBaseAPIDelete(api);
+            throw new IOException(String.format("'%s' Tesseract Model Could Not Be Loaded...", modelName));
+        }
+
+        TessAPI1.TessBaseAPISetPageSegMode(api, ITessAPI.TessPageSegMode.PSM_SINGLE_LINE);
+        TessAPI1.TessBaseAPISetVariable(api, VAR_CHAR_WHITELIST, characterWhitelist);
+        System.out.println(String.format("'%s' Training File Loaded", modelName));
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public RecognizedText recognize(Mat image) {
+        int width = image.width();
+        int height = image.height();
+        if (pixels == null || pixels.capacity() < width * height)
+            pixels = ByteBuffer.allocateDirect(width * height);
+        if (row == null || row.length != width)
+            row = new byte[width];
+
+        //Copied Row By Row, So Submats (Which Aren't Continuous) Work Too
+        pixels.clear();
+        for (int y = 0; y < height; y++) {
+            image.get(y, 0, row);
+            pixels.put(row);
+        }
+        pixels.flip();
+
+        TessAPI1.TessBaseAPISetImage(api, pixels, width, height, 1, width);
+        Pointer textPointer = TessAPI1.TessBaseAPIGetUTF8Text(api);
+        String text = textPointer == null ? "" : textPointer.getString(0, "UTF-8");
+        if (textPointer != null)
+            TessAPI1.TessDeleteText(textPointer);
+        int confidence = TessAPI1.TessBaseAPIMeanTextConf(api);
+        return new RecognizedText(text, confidence);
+    }
+
+    @Override
+    protected void setCharacterWhitelist(String characterWhitelist) {
+        TessAPI1.TessBaseAPISetVariable(api, VAR_CHAR_WHITELIST, characterWhitelist);
+    }
+
+    @Override
+    protected void setPageSegMode(int pageSegMode) {
+        TessAPI1.TessBaseAPISetPageSegMode(api, pageSegMode);
+    }
+
+    @Override
+    public void release() {
+        TessAPI1.TessBaseAPIEnd(api);
+        TessAPI1.TessBaseAPIDelete(api);
+    }
+}
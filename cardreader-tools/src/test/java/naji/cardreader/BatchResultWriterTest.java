@@ -0,0 +1,126 @@
+package naji.cardreader;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Resuming An Interrupted Batch, Half Written Rows Are Cut & Every Image Is In The Results Exactly Once
+ */
+public class BatchResultWriterTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void startsOverWithoutCheckpoint() throws IOException {
+        File resultFile = temporaryFolder.newFile("results.csv");
+        Files.write(resultFile.toPath(), "stale\n".getBytes(StandardCharsets.UTF_8));
+
+        try (BatchResultWriter batchResultWriter = new BatchResultWriter(resultFile, false)) {
+            assertFalse(batchResultWriter.isCheckpointed("stale"));
+            batchResultWriter.write("a.jpg", null, 2_500_000L, null);
+        }
+        assertEquals(Arrays.asList(BatchResultWriter.CSV_HEADER, "a.jpg,unread,,,,,2.5,"), readLines(resultFile));
+    }
+
+    @Test
+    public void resumesCsvAfterHalfWrittenRows() throws IOException {
+        File resultFile = new File(temporaryFolder.getRoot(), "results.csv");
+        try (BatchResultWriter batchResultWriter = new BatchResultWriter(resultFile, false)) {
+            batchResultWriter.write("a.jpg", null, 1_000_000L, null);
+            batchResultWriter.write("b,c.jpg", null, 1_000_000L, "Undecodable");
+        }
+        //a Crash Left Half a Row & Half a Checkpoint Behind
+        append(resultFile, "d.jpg,unre");
+        append(checkpointFile(resultFile), "d.j");
+
+        try (BatchResultWriter batchResultWriter = new BatchResultWriter(resultFile, false)) {
+            assertTrue(batchResultWriter.isCheckpointed("a.jpg"));
+            assertTrue(batchResultWriter.isCheckpointed("b,c.jpg"));
+            assertFalse(batchResultWriter.isCheckpointed("d.jpg"));
+            assertFalse(batchResultWriter.isCheckpointed("d.j"));
+            batchResultWriter.write("d.jpg", null, 1_000_000L, null);
+        }
+        assertEquals(Arrays.asList(BatchResultWriter.CSV_HEADER, "a.jpg,unread,,,,,1.0,", "\"b,c.jpg\",failed,,,,,1.0,Undecodable", "d.jpg,unread,,,,,1.0,"),
+                readLines(resultFile));
+        assertEquals(Arrays.asList("a.jpg", "b,c.jpg", "d.jpg"), readLines(checkpointFile(resultFile)));
+    }
+
+    @Test
+    public void skipsResultsWrittenBeforeTheirCheckpoint() throws IOException {
+        File resultFile = new File(temporaryFolder.getRoot(), "results.jsonl");
+        try (BatchResultWriter batchResultWriter = new BatchResultWriter(resultFile, true)) {
+            batchResultWriter.write("a.jpg", null, 1_000_000L, null);
+        }
+        //The Result Of b Was Flushed, Then The Process Died Before Its Checkpoint
+        append(resultFile, "{\"image\":\"b \\\"quoted\\\".jpg\",\"status\":\"unread\"}\n");
+
+        try (BatchResultWriter batchResultWriter = new BatchResultWriter(resultFile, true)) {
+            assertTrue(batchResultWriter.isCheckpointed("a.jpg"));
+            assertTrue(batchResultWriter.isCheckpointed("b \"quoted\".jpg"));
+        }
+    }
+
+    @Test
+    public void writesTheHeaderWhenOnlyTheCheckpointSurvived() throws IOException {
+        File resultFile = new File(temporaryFolder.getRoot(), "results.csv");
+        Files.write(checkpointFile(resultFile).toPath(), new byte[0]);
+
+        try (BatchResultWriter batchResultWriter = new BatchResultWriter(resultFile, false)) {
+            batchResultWriter.write("a.jpg", null, 1_000_000L, null);
+        }
+        assertEquals(Arrays.asList(BatchResultWriter.CSV_HEADER, "a.jpg,unread,,,,,1.0,"), readLines(resultFile));
+    }
+
+    @Test
+    public void truncatesToTheLastCompleteLine() throws IOException {
+        File file = temporaryFolder.newFile("lines.txt");
+        Files.write(file.toPath(), "one\ntwo\nthr".getBytes(StandardCharsets.UTF_8));
+        BatchResultWriter.truncateToLastLine(file);
+        assertEquals("one\ntwo\n", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+
+        //Nothing Complete At All Leaves An Empty File
+        Files.write(file.toPath(), "half".getBytes(StandardCharsets.UTF_8));
+        BatchResultWriter.truncateToLastLine(file);
+        assertEquals(0, file.length());
+    }
+
+    @Test
+    public void readsQuotedCsvImages() throws IOException {
+        File resultFile = temporaryFolder.newFile("results.csv");
+        Files.write(resultFile.toPath(), (BatchResultWriter.CSV_HEADER + "\nplain.jpg,read\n\"with \"\"quotes\"\", and comma.jpg\",read\n").getBytes(StandardCharsets.UTF_8));
+
+        Set<String> images = new HashSet<>();
+        BatchResultWriter.readWrittenImages(resultFile, false, images);
+        assertEquals(new HashSet<>(Arrays.asList("plain.jpg", "with \"quotes\", and comma.jpg")), images);
+    }
+
+    private static File checkpointFile(File resultFile) {
+        return new File(resultFile.getPath() + BatchResultWriter.CHECKPOINT_SUFFIX);
+    }
+
+    private static void append(File file, String text) throws IOException {
+        try (OutputStream outputStream = new FileOutputStream(file, true)) {
+            outputStream.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static List<String> readLines(File file) throws IOException {
+        return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+    }
+}
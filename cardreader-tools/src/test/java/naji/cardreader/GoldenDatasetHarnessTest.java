@@ -0,0 +1,153 @@
+package naji.cardreader;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * The Regression Gate Of The Golden Dataset, The Tolerances Of The Baseline Comparison & The Ground Truth Parsing
+ */
+public class GoldenDatasetHarnessTest {
+    static final String ACCURACY_KEY = GoldenDatasetHarness.ACCURACY_PREFIX + "template_card_9.chosen";
+    static final String P95_KEY = GoldenDatasetHarness.P95_PREFIX + "ocr.template_card_9";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void acceptsResultsWithinTheTolerances() {
+        Properties baseline = properties(ACCURACY_KEY, "0.9500", P95_KEY, "100.000");
+        //An Accuracy Drop Of Exactly The Tolerance & a p95 Growth Of 20% Plus The Slack Both Pass
+        Properties results = properties(ACCURACY_KEY, "0.9400", P95_KEY, String.valueOf(120 + GoldenDatasetHarness.LATENCY_SLACK_MILLIS));
+
+        assertEquals(Collections.emptyList(), GoldenDatasetHarness.compare(baseline, results, 0.01, 0.2));
+    }
+
+    @Test
+    public void acceptsImprovements() {
+        Properties baseline = properties(ACCURACY_KEY, "0.9000", P95_KEY, "100.000");
+        Properties results = properties(ACCURACY_KEY, "1.0000", P95_KEY, "50.000");
+
+        assertEquals(Collections.emptyList(), GoldenDatasetHarness.compare(baseline, results, 0, 0));
+    }
+
+    @Test
+    public void reportsAccuracyDropsBeyondTheTolerance() {
+        Properties baseline = properties(ACCURACY_KEY, "0.9500");
+        Properties results = properties(ACCURACY_KEY, "0.9300");
+
+        List<String> regressions = GoldenDatasetHarness.compare(baseline, results, 0.01, 0.2);
+        assertEquals(1, regressions.size());
+        assertEquals(ACCURACY_KEY + " Dropped From 0.9500 To 0.9300", regressions.get(0));
+    }
+
+    @Test
+    public void reportsLatencyGrowthBeyondTheTolerance() {
+        Properties baseline = properties(P95_KEY, "100.000");
+        Properties results = properties(P95_KEY, "121.500");
+
+        List<String> regressions = GoldenDatasetHarness.compare(baseline, results, 0.01, 0.2);
+        assertEquals(1, regressions.size());
+        assertEquals(P95_KEY + " Grew From 100.000 To 121.500 ms", regressions.get(0));
+    }
+
+    @Test
+    public void toleratesJitterOfFastStages() {
+        //a Stage Of a Fraction Of a Millisecond Doubling Is Timer Noise, Not a Regression
+        Properties baseline = properties(P95_KEY, "0.200");
+        Properties results = properties(P95_KEY, "0.400");
+
+        assertEquals(Collections.emptyList(), GoldenDatasetHarness.compare(baseline, results, 0.01, 0.2));
+    }
+
+    @Test
+    public void reportsBaselineKeysMissingFromTheResults() {
+        Properties baseline = properties(ACCURACY_KEY, "0.9500", P95_KEY, "100.000");
+        Properties results = properties(P95_KEY, "100.000");
+
+        List<String> regressions = GoldenDatasetHarness.compare(baseline, results, 0.01, 0.2);
+        assertEquals(Collections.singletonList(ACCURACY_KEY + " Is In The Baseline But Wasn't Measured"), regressions);
+    }
+
+    @Test
+    public void ignoresResultsTheBaselineDoesNotHave() {
+        Properties baseline = properties(ACCURACY_KEY, "0.9500");
+        Properties results = properties(ACCURACY_KEY, "0.9500", P95_KEY, "1000.000");
+
+        assertEquals(Collections.emptyList(), GoldenDatasetHarness.compare(baseline, results, 0, 0));
+    }
+
+    @Test
+    public void writtenBaselinesReadBack() throws IOException {
+        Properties results = properties(ACCURACY_KEY, "0.9500", P95_KEY, "100.000");
+        File baselineFile = temporaryFolder.newFile("baseline.properties");
+
+        GoldenDatasetHarness.writeBaseline(results, baselineFile);
+        assertEquals(results, GoldenDatasetHarness.readBaseline(baselineFile));
+    }
+
+    @Test
+    public void readsLabelsInAnyColumnOrder() throws IOException {
+        File groundTruthFile = write("labels.csv", "serial,notes,image,template\n0012345678, smudged ,card1.jpg,template_card_9\n\n9876543210,,card2.jpg,template_card_10\n");
+
+        List<String[]> labels = GoldenDatasetHarness.readLabels(groundTruthFile);
+        assertEquals(2, labels.size());
+        assertArrayEquals(new String[]{"card1.jpg", "template_card_9", "0012345678"}, labels.get(0));
+        assertArrayEquals(new String[]{"card2.jpg", "template_card_10", "9876543210"}, labels.get(1));
+    }
+
+    @Test
+    public void rejectsGroundTruthWithoutTheColumns() throws IOException {
+        File groundTruthFile = write("labels.csv", "image,serial\ncard1.jpg,0012345678\n");
+        try {
+            GoldenDatasetHarness.readLabels(groundTruthFile);
+            fail("The Labels Were Read");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("The Ground Truth Needs 'image', 'template' & 'serial' Columns"));
+        }
+    }
+
+    @Test
+    public void rejectsEmptyGroundTruth() throws IOException {
+        File groundTruthFile = write("labels.csv", "");
+        try {
+            GoldenDatasetHarness.readLabels(groundTruthFile);
+            fail("The Labels Were Read");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("The Ground Truth Is Empty"));
+        }
+    }
+
+    @Test
+    public void normalizesPersianAndArabicDigits() {
+        assertEquals("0123456789", GoldenDatasetHarness.normalizeDigits("۰۱۲۳۴۵۶۷۸۹"));
+        assertEquals("0123456789", GoldenDatasetHarness.normalizeDigits("٠١٢٣٤٥٦٧٨٩"));
+        assertEquals("12-ab", GoldenDatasetHarness.normalizeDigits("1۲-ab"));
+    }
+
+    private File write(String name, String content) throws IOException {
+        File file = temporaryFolder.newFile(name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static Properties properties(String... keysAndValues) {
+        Properties properties = new Properties();
+        for (int i = 0; i < keysAndValues.length; i += 2)
+            properties.setProperty(keysAndValues[i], keysAndValues[i + 1]);
+        return properties;
+    }
+}